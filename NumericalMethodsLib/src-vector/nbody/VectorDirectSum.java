@@ -0,0 +1,172 @@
+package nbody;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorDirectSum class calculates the same direct sum as the DirectSum class, but uses the
+ * SIMD instructions of the processor to calculate the force from several bodies at once. For each
+ * body, the other bodies are loaded from the position and mass arrays a few at a time into the
+ * lanes of a vector, and the softened inverse cube of the distance is calculated for every lane
+ * with one instruction. The number of lanes depends on the processor, usually 4 doubles with AVX2
+ * or 8 doubles with AVX-512. The bodies left over at the end of the arrays are calculated one at a
+ * time like the DirectSum class.
+ *
+ * The lanes are added up in a different order than the serial loop, so the results are the same
+ * as DirectSum to within rounding error, but not bit for bit. Like DirectSum, the body itself is
+ * skipped by its index, so two different bodies at the same position still feel each other. If
+ * the system is tracking potentials, the potential at each body is added up in the same loop.
+ *
+ * This class uses the Java Vector API, which is an incubator module in Java 17. It is kept in the
+ * separate src-vector folder so that the rest of the library compiles without it. That folder
+ * has to be compiled with "--add-modules jdk.incubator.vector" and the classes in src on the
+ * class path, and the program has to be run with the same option. Use DirectSum.vectorized to
+ * create one, which falls back to the scalar DirectSum when this class or the module is not
+ * available.
+ *
+ * @author Matthew Jin
+ * @version 5/22/2018
+ */
+public class VectorDirectSum implements ForceEngine
+{
+
+    private final static VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private double softening;
+    private long interactions;
+
+    /**
+     * Constructor for the VectorDirectSum class with no softening.
+     */
+    public VectorDirectSum()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructor for the VectorDirectSum class which sets the softening length.
+     *
+     * @param softening the softening length in meters
+     */
+    public VectorDirectSum(double softening)
+    {
+        this.softening = softening;
+    }
+
+    /**
+     * Gets the number of doubles in each vector
+     *
+     * @return the number of lanes
+     */
+    public static int getLanes()
+    {
+        return SPECIES.length();
+    }
+
+    /**
+     * Calculates the acceleration of every body by looping over every other body, several bodies
+     * at a time.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodySystem s)
+    {
+        int n = s.size();
+        accelerations(s, 0, n, softening*softening);
+        if(s.getPotentials()!=null)
+        {
+            s.potentialsUpdated();
+        }
+        interactions = (long) n*(n-1);
+    }
+
+    /**
+     * Calculates the accelerations of the bodies from index lo up to but not including index hi.
+     * If the system is tracking potentials, the potential at each body is added up in the same
+     * loop.
+     *
+     * @param s the system of bodies
+     * @param lo the index of the first body
+     * @param hi one more than the index of the last body
+     * @param e2 the square of the softening length
+     */
+    static void accelerations(BodySystem s, int lo, int hi, double e2)
+    {
+        int n = s.size();
+        int bound = SPECIES.loopBound(n);
+        int lanes = SPECIES.length();
+        double[] x = s.x, y = s.y, z = s.z, m = s.m;
+        double[] pot = s.getPotentials();
+        boolean potentials = pot!=null;
+        DoubleVector soft = DoubleVector.broadcast(SPECIES, e2);
+
+        for(int j=lo; j<hi; j++)
+        {
+            double xj = x[j], yj = y[j], zj = z[j];
+            DoubleVector sumx = DoubleVector.zero(SPECIES);
+            DoubleVector sumy = DoubleVector.zero(SPECIES);
+            DoubleVector sumz = DoubleVector.zero(SPECIES);
+            DoubleVector sump = DoubleVector.zero(SPECIES);
+
+            int i = 0;
+            for(; i<bound; i+=lanes)
+            {
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i).sub(xj);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i).sub(yj);
+                DoubleVector dz = DoubleVector.fromArray(SPECIES, z, i).sub(zj);
+                DoubleVector d2 = dx.fma(dx, dy.fma(dy, dz.fma(dz, soft)));
+                DoubleVector scalar = DoubleVector.fromArray(SPECIES, m, i).mul(NBody.G)
+                        .div(d2.mul(d2.lanewise(VectorOperators.SQRT)));
+
+                if(j>=i && j<i+lanes)
+                {
+                    VectorMask<Double> self = SPECIES.indexInRange(i-j, 1);
+                    scalar = scalar.blend(0, self);
+                } //Only the lane i+lane==j is set, which skips the body itself
+
+                sumx = dx.fma(scalar, sumx);
+                sumy = dy.fma(scalar, sumy);
+                sumz = dz.fma(scalar, sumz);
+                if(potentials)
+                {
+                    sump = sump.sub(scalar.mul(d2));
+                } //G*m/r is the scalar times r squared
+            }
+
+            double ax = sumx.reduceLanes(VectorOperators.ADD);
+            double ay = sumy.reduceLanes(VectorOperators.ADD);
+            double az = sumz.reduceLanes(VectorOperators.ADD);
+            double p = sump.reduceLanes(VectorOperators.ADD);
+            for(; i<n; i++)
+            {
+                if(i!=j)
+                {
+                    double dx = x[i]-xj, dy = y[i]-yj, dz = z[i]-zj;
+                    double d2 = dx*dx+dy*dy+dz*dz+e2;
+                    double scalar = NBody.G*m[i]/(d2*Math.sqrt(d2));
+                    ax += dx*scalar; ay += dy*scalar; az += dz*scalar;
+                    p -= scalar*d2;
+                }
+            } //The bodies that do not fill a whole vector
+            s.ax[j] = ax; s.ay[j] = ay; s.az[j] = az;
+            if(potentials)
+            {
+                pot[j] = p;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of pair interactions that were calculated by the last call to
+     * accelerations
+     *
+     * @return the number of interactions
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+}
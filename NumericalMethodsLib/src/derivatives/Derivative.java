@@ -1,6 +1,7 @@
 package derivatives;
 
 import java.util.ArrayList;
+import java.util.function.DoubleUnaryOperator;
 
 import function.*;
 
@@ -12,16 +13,25 @@ import function.*;
  * function (gaussian, sinc, or polynomial) that is going to be calculated. Extends the 
  * Function class because this class calculates the function's derivative.
  * 
+ * If str is a formula, the exact derivative is found with Expression.derivative and compiled 
+ * in the constructor.
+ * 
+ * setCache also puts a cache in front of calcYDeriv, for solvers like Bisection that calculate 
+ * the derivative at the same points more than once. NewtonsMethod and Min use calcDual, which 
+ * has its own cache in Function.
+ * 
  * @author Matthew Jin
  * @version 9/5/17
  */
 public class Derivative extends Function {
 
+	protected DoubleUnaryOperator fprime;
+
 	/**
 	 * Constructor for the Derivative class. It initializes the starting value, 
 	 * ending value, increment value, and str by calling super.
 	 * 
-	 * @precondition str is either "gaussian" or "sinc" or "polynomial"
+	 * @precondition str is either "gaussian" or "sinc" or "polynomial" or a formula of x
 	 * 
 	 * @param start the value of the leftmost x coordinate
 	 * @param end the value of the rightmost x coordinate
@@ -30,6 +40,16 @@ public class Derivative extends Function {
 	 */
 	public Derivative(double start, double end, double inc, String str) {
 		super(start, end, inc, str);
+
+		if(expression!=null) {
+			fprime = expression.derivative().compile();
+		} else if(str.equalsIgnoreCase("sinc")) {
+			fprime = this::calcSincDeriv;
+		} else if(str.equalsIgnoreCase("gaussian")) {
+			fprime = this::calcGaussianDeriv;
+		} else {
+			fprime = this::calcOtherDeriv;
+		}
 	}
 	
 	/**
@@ -42,19 +62,18 @@ public class Derivative extends Function {
 	 * of the function
 	 */
 	public ArrayList<Vector> calcDeriv() {
-		ArrayList<Vector> deriv = new ArrayList<Vector>();
-
-		for(double i=start; i<=end; i+=inc) {
-			if(str.equalsIgnoreCase("sinc")) {
-				deriv.add(new Vector(i, calcSincDeriv(i)));
-			} else if(str.equalsIgnoreCase("gaussian")) {
-				deriv.add(new Vector(i, calcGaussianDeriv(i)));
-			} else {
-				deriv.add(new Vector(i, calcOtherDeriv(i)));
-			}
-		}
-		
-		return deriv;
+		return sampleDeriv().toVectors();
+	}
+	
+	/**
+	 * Calculates the y values of the derivative on a uniform grid over the x domain 
+	 * (start <= x <= end, ∆x = inc) and stores them in a SampledFunction. The subclasses 
+	 * override this method to calculate the derivative from the sampled function instead.
+	 * 
+	 * @return a SampledFunction containing the y values of the derivative
+	 */
+	public SampledFunction sampleDeriv() {
+		return SampledFunction.uniform(start, end, inc).fill(fprime);
 	}
 	
 	/**
@@ -98,20 +117,47 @@ public class Derivative extends Function {
 	}
 
 	/**
-	 * Calculates the y value of a function given a x value by calling the Derivative class's 
-	 * calcSincDeriv(), calcGaussianDeriv(), and calcOtherDeriv() methods.
+	 * Calculates the y value and the slope of the polynomial function with calcY and calcYDeriv, 
+	 * so that calcDual uses the same hand-written calcOther and calcOtherDeriv as everything 
+	 * else. The second derivative is not known and is NaN.
+	 * 
+	 * @param x the x value
+	 * @return a Dual containing the y value, the first derivative, and NaN
+	 */
+	protected Dual calcOtherDual(double x) {
+		return new Dual(calcY(x), calcYDeriv(x), Double.NaN);
+	}
+
+	/**
+	 * Calculates the y value of the derivative given a x value by calling the derivative that was 
+	 * chosen in the constructor: calcSincDeriv(), calcGaussianDeriv(), calcOtherDeriv(), or the 
+	 * compiled exact derivative of the formula.
 	 * 
 	 * @param x the x value
 	 * @return the y value corresponding to the x value in the derivative
 	 */
 	public double calcYDeriv(double x) {
-		if(str.equalsIgnoreCase("sinc")) {
-			return calcSincDeriv(x);
-		} else if(str.equalsIgnoreCase("gaussian")) {
-			return calcGaussianDeriv(x);		
-		} else {
-			return calcOtherDeriv(x);
-		}
+		return fprime.applyAsDouble(x);
+	}
+	
+	/**
+	 * Turns on caches of the y values calculated by calcY and calcYDeriv and the Duals calculated 
+	 * by calcDual, or turns them off. Each cache can hold capacity points.
+	 * 
+	 * @param capacity the most points each cache remembers, or 0 to turn the caches off
+	 */
+	public void setCache(int capacity) {
+		super.setCache(capacity);
+		fprime = capacity>0 ? new EvaluationCache(uncached(fprime), capacity) : uncached(fprime);
+	}
+	
+	/**
+	 * Gets the cache of the y values calculated by calcYDeriv, which has the hit and miss counts.
+	 * 
+	 * @return the cache, or null if there is no cache
+	 */
+	public EvaluationCache getDerivCache() {
+		return fprime instanceof EvaluationCache ? (EvaluationCache) fprime : null;
 	}
 	
 }
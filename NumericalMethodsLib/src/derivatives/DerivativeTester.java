@@ -3,6 +3,7 @@ package derivatives;
 import java.util.ArrayList;
 
 import function.Function;
+import function.SampledFunction;
 import function.Vector;
 
 /**
@@ -49,6 +50,8 @@ public class DerivativeTester {
 		
 		printMap(diff);
 		
+		System.out.println("5 point: " + RMS(d5.sampleDeriv(), d.sampleDeriv()));
+		
 //		System.out.println("2 point: " + RMS(deriv2, deriv) + ", " + deriv2.size());
 //		System.out.println("3 point: " + RMS(deriv3, deriv) + ", " + deriv3.size());
 //		System.out.println("5 point: " + RMS(deriv5, deriv) + ", " + deriv5.size());
@@ -109,5 +112,26 @@ public class DerivativeTester {
 		
 		return Math.sqrt(sumsquares/obs.size());
 	}
+	
+	/**
+	 * Calculates the Root Mean Square deviation between the observed and expected derivatives 
+	 * stored in SampledFunctions.
+	 * 
+	 * @precondition the observed and expected functions should have the same size and x values.
+	 * 
+	 * @param obs the observed derivative
+	 * @param exp the expected derivative
+	 * @return the Root Mean Square error between the observed and expected derivatives
+	 */
+	public static double RMS(SampledFunction obs, SampledFunction exp) {
+		double[] o = obs.getY(), e = exp.getY();
+		double sumsquares = 0;
+		
+		for(int i=0; i<o.length; i++) {
+			sumsquares += (o[i]-e[i])*(o[i]-e[i]);
+		}
+		
+		return Math.sqrt(sumsquares/o.length);
+	}
 
 }
@@ -1,13 +1,11 @@
 package derivatives;
 
-import java.util.ArrayList;
-
-import function.Vector;
+import function.SampledFunction;
 
 /**
  * Calculates the derivative of a function using the five point stencil
- * method. The derivative is calculated in the method calcDeriv and stored
- * in an ArrayList of Points. Extends the Derivative class because the five
+ * method. The derivative is calculated in the method sampleDeriv and stored
+ * in a SampledFunction. Extends the Derivative class because the five
  * point stencil is a method used to calculate derivatives and therefore fits
  * under the Derivative category.
  * 
@@ -16,13 +14,13 @@ import function.Vector;
  */
 public class FivePoint extends Derivative {
 
-	private ArrayList<Vector> func;
+	private SampledFunction func;
 
 	/**
 	 * Constructor for the FivePoint class. It sets the starting value, 
 	 * ending value, and increment value by calling super to initialize the variables  
 	 * and calculates the coordinates in the original function. The constructor also
-	 * initializes the func ArrayList which stores the coordinates for the original 
+	 * initializes the func SampledFunction which stores the y values of the original 
 	 * function.
 	 * 
  	 * @precondition str is either "gaussian" or "sinc" or "polynomial"
@@ -34,25 +32,25 @@ public class FivePoint extends Derivative {
 	 */
 	public FivePoint(double start, double end, double inc, String str) {
 		super(start, end, inc, str);
-		func = calcFunc();
+		func = sample();
 	}
 
 	/**
 	 * Calculates the derivative of the function using the five point stencil method. 
-	 * Loops through coordinates in func and uses the five point stencil formula to 
-	 * calculate the corresponding y value to the derivative 
+	 * Loops through the y values in func and uses the five point stencil formula to 
+	 * calculate the corresponding y value to the derivative. The derivative does not 
+	 * have the first two and last two points of the function.
 	 * 
-	 * @return Returns an ArrayList containing the points in the derivative.
+	 * @return Returns a SampledFunction containing the points in the derivative.
 	 */
-	public ArrayList<Vector> calcDeriv() {
-		ArrayList<Vector> deriv = new ArrayList<Vector>();
-
-		for(int i=2; i<func.size()-2; i++) {
-			double x2 = func.get(i-1).x, x3 = func.get(i).x;
-			double y1 = func.get(i-2).y, y2 = func.get(i-1).y, y4 = func.get(i+1).y, y5 = func.get(i+2).y;
-			double h = x3-x2;
-			
-			deriv.add(new Vector(x3, (-y5+8*y4-8*y2+y1)/(12*h)));
+	public SampledFunction sampleDeriv() {
+		int n = func.size();
+		double h = func.getInc();
+		SampledFunction deriv = new SampledFunction(func.getX(2), h, Math.max(0, n-4));
+		double[] y = func.getY(), d = deriv.getY();
+
+		for(int i=2; i<n-2; i++) {
+			d[i-2] = (-y[i+2]+8*y[i+1]-8*y[i-1]+y[i-2])/(12*h);
 		}
 		
 		return deriv;
@@ -1,13 +1,11 @@
 package derivatives;
 
-import java.util.ArrayList;
-
-import function.Vector;
+import function.SampledFunction;
 
 /**
  * Calculates the derivative of a function using the parabolic fit method. 
- * The derivative is calculated in the method calcDeriv and stored in an 
- * ArrayList of Points. Extends the Derivative class because the parabolic
+ * The derivative is calculated in the method sampleDeriv and stored in a 
+ * SampledFunction. Extends the Derivative class because the parabolic
  * fit is a method used to calculate derivatives and therefore fits under 
  * the Derivative category.
  * 
@@ -16,13 +14,13 @@ import function.Vector;
  */
 public class ParabolicFit extends Derivative {
 
-	private ArrayList<Vector> func;
+	private SampledFunction func;
 
 	/**
 	 * Constructor for the ParabolicFit class. It sets the starting value, 
 	 * ending value, and increment value by calling super to initialize the variables  
 	 * and calculates the coordinates in the original function. The constructor also
-	 * initializes the func ArrayList which stores the coordinates for the original 
+	 * initializes the func SampledFunction which stores the y values of the original 
 	 * function.
 	 * 
  	 * @precondition str is either "gaussian" or "sinc" or "polynomial"
@@ -34,94 +32,39 @@ public class ParabolicFit extends Derivative {
 	 */
 	public ParabolicFit(double start, double end, double inc, String str) {
 		super(start, end, inc, str);
-		func = calcFunc();
+		func = sample();
 	}
 
 	/**
 	 * Calculates the derivative of the function using the parabolic fit method. Loops 
-	 * through coordinates in func and uses the parabolic fit method to calculate the 
-	 * corresponding y value in the derivative 
+	 * through the y values in func and fits a parabola through each point and the points 
+	 * on either side of it. The derivative at the point is the slope of the parabola at 
+	 * that point. The first and last points use the slope of the first and last parabolas 
+	 * at their ends.
+	 * 
+	 * On a uniform grid with points y1, y2, y3 an increment h apart, the slope of the 
+	 * parabola is (y3-y1)/(2h) at the middle point, (-3*y1+4*y2-y3)/(2h) at the first 
+	 * point, and (y1-4*y2+3*y3)/(2h) at the last point.
 	 * 
-	 * @precondition func has more than three points (func.size() >= 3)
+	 * If func has fewer than three points there is no parabola, and the derivative is empty.
 	 * 
-	 * @return Returns an ArrayList containing the points in the derivative.
+	 * @return Returns a SampledFunction containing the points in the derivative.
 	 */
-	public ArrayList<Vector> calcDeriv() {
-		ArrayList<Vector> deriv = new ArrayList<Vector>();
+	public SampledFunction sampleDeriv() {
+		int n = func.size();
+		double h = func.getInc();
+		SampledFunction deriv = new SampledFunction(func.getX(0), h, n<3 ? 0 : n);
+		if(n<3) {
+			return deriv;
+		} //A parabola needs three points
+		double[] y = func.getY(), d = deriv.getY();
 
-		for(int i=1; i<func.size()-1; i++) {
-			Vector p1 = func.get(i-1), p2 = func.get(i), p3 = func.get(i+1);
-			
-			if(i==1) {
-				deriv.add(parabolicFit(p1, p2, p3, p1.x));
-			}
-			
-			deriv.add(parabolicFit(p1, p2, p3, p2.x));
-			
-			if(i==func.size()-2) {
-				deriv.add(parabolicFit(p1, p2, p3, p3.x));
-			}
+		for(int i=1; i<n-1; i++) {
+			d[i] = (y[i+1]-y[i-1])/(2*h);
 		}
+		d[0] = (-3*y[0]+4*y[1]-y[2])/(2*h);
+		d[n-1] = (y[n-3]-4*y[n-2]+3*y[n-1])/(2*h);
 
 		return deriv;
 	}
-	
-	/**
-	 * Does a parabolic fit across three points and takes the derivative 
-	 * at a given value x. Uses the calcA and calcB helper methods to 
-	 * calculate a and b values of the parabola.
-	 * 
-	 * @param p1 the first point
-	 * @param p2 the second point
-	 * @param p3 the third point
-	 * @param the point to take the derivative at
-	 * @return a Point that contains the x value and the y value of the 
-	 * derivative that corresponds to that x value
-	 */
-	private Vector parabolicFit(Vector p1, Vector p2, Vector p3, double x) {
-		double a = calcA(p1, p2, p3), b = calcB(p1, p2, p3);
-		return new Vector(x, 2*a*x+b);
-	}
-	
-	/**
-	 * Calculates the "a" value for the parabolic fit by plugging the given 
-	 * points into a hardcoded math formula.
-	 * 
-	 * @param p1 the first point
-	 * @param p2 the second point
-	 * @param p3 the third point
-	 * @return the value of a
-	 */
-	private double calcA(Vector p1, Vector p2, Vector p3) {
-		return (p1.x*(p3.y-p2.y)+p2.x*(p1.y-p3.y)+p3.x*(p2.y-p1.y)) / 
-				((p1.x-p2.x)*(p1.x-p3.x)*(p2.x-p3.x));
-	}
-	
-	/**
-	 * Calculates the "b" value for the parabolic fit by plugging the given 
-	 * points into a hardcoded math formula.
-	 * 
-	 * @param p1 the first point
-	 * @param p2 the second point
-	 * @param p3 the third point
-	 * @return the value of b
-	 */
-	private double calcB(Vector p1, Vector p2, Vector p3) {
-		return (p1.x*p1.x*(p2.y-p3.y)+p2.x*p2.x*(p3.y-p1.y)+p3.x*p3.x*(p1.y-p2.y)) / 
-				((p1.x-p2.x)*(p1.x-p3.x)*(p2.x-p3.x));
-	}
-
-	/**
-	 * Calculates the "c" value for the parabolic fit by plugging the given 
-	 * points into a hardcoded math formula.
-	 * 
-	 * @param p1 the first point
-	 * @param p2 the second point
-	 * @param p3 the third point
-	 * @return the value of c
-	 */
-	private double calcC(Vector p1, Vector p2, Vector p3) {
-		return (p2.x*(p1.x*p1.x*p3.y-p3.x*p3.x*p1.y)+p2.x*p2.x*(p3.x*p1.y-p1.x*p3.y)+p1.x*p3.x*p2.y*(p3.x-p1.x)) / 
-				((p1.x-p2.x)*(p1.x-p3.x)*(p2.x-p3.x));
-	}
 }
@@ -1,13 +1,11 @@
 package derivatives;
 
-import java.util.ArrayList;
-
-import function.Vector;
+import function.SampledFunction;
 
 /**
  * Calculates the derivative of a function using the three point method. 
- * The derivative is calculated in the method calcDeriv and stored in an 
- * ArrayList of Points. Extends the Derivative class because the three 
+ * The derivative is calculated in the method sampleDeriv and stored in a 
+ * SampledFunction. Extends the Derivative class because the three 
  * point method used to calculate derivatives and therefore fits under 
  * the Derivative category.
  * 
@@ -16,13 +14,13 @@ import function.Vector;
  */
 public class ThreePoint extends Derivative {
 
-	private ArrayList<Vector> func;
+	private SampledFunction func;
 
 	/**
 	 * Constructor for the ThreePoint class. It sets the starting value,  
 	 * ending value, and increment value by calling super to initialize the variables  
 	 * and calculates the coordinates in the original function. The constructor 
-	 * also initializes the func ArrayList which stores the coordinates for the original 
+	 * also initializes the func SampledFunction which stores the y values of the original 
 	 * function.
 	 * 
 	 * @precondition str is either "gaussian" or "sinc" or "polynomial"
@@ -34,24 +32,26 @@ public class ThreePoint extends Derivative {
 	 */
 	public ThreePoint(double start, double end, double inc, String str) {
 		super(start, end, inc, str);
-		func = calcFunc();
+		func = sample();
 	}
 
 	/**
 	 * Calculates the derivative of the function using the three point method. 
-	 * Loops through coordinates in func and takes the slope from the first 
+	 * Loops through the y values in func and takes the slope from the first 
 	 * point to the third point and sets the y value corresponding to the 
-	 * middle point as the slope. The slope is calculated using the inherited 
-	 * calcMid and calcSlope methods from the Derivative class.
+	 * middle point as the slope. The derivative does not have the first and 
+	 * last points of the function.
 	 * 
-	 * @return Returns an ArrayList containing the points in the derivative.
+	 * @return Returns a SampledFunction containing the points in the derivative.
 	 */
-	public ArrayList<Vector> calcDeriv() {
-		ArrayList<Vector> deriv = new ArrayList<Vector>();
-
-		for(int i=1; i<func.size()-1; i++) {
-			Vector p1 = func.get(i-1), p2 = func.get(i), p3 = func.get(i+1);
-			deriv.add(new Vector(p2.x, calcSlope(p1, p3)));
+	public SampledFunction sampleDeriv() {
+		int n = func.size();
+		double h = func.getInc();
+		SampledFunction deriv = new SampledFunction(func.getX(1), h, Math.max(0, n-2));
+		double[] y = func.getY(), d = deriv.getY();
+
+		for(int i=1; i<n-1; i++) {
+			d[i-1] = (y[i+1]-y[i-1])/(2*h);
 		}
 		
 		return deriv;
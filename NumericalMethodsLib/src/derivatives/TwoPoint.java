@@ -1,13 +1,11 @@
 package derivatives;
 
-import java.util.ArrayList;
-
-import function.Vector;
+import function.SampledFunction;
 
 /**
  * Calculates the derivative of a function using the two point
- * method. The derivative is calculated in the method calcDeriv and stored 
- * in an ArrayList of Points. Extends the Derivative class because the two 
+ * method. The derivative is calculated in the method sampleDeriv and stored 
+ * in a SampledFunction. Extends the Derivative class because the two 
  * point method used to calculate derivatives and therefore fits under the 
  * Derivative category.
  * 
@@ -16,13 +14,13 @@ import function.Vector;
  */
 public class TwoPoint extends Derivative {
 
-	private ArrayList<Vector> func;
+	private SampledFunction func;
 	
 	/**
 	 * Constructor for the TwoPoint class. It sets the starting value, ending 
 	 * value, and increment value by calling super to initialize the variables and 
 	 * calculates the coordinates in the original function. The constructor also
-	 * initializes the func ArrayList which stores the coordinates for the original 
+	 * initializes the func SampledFunction which stores the y values of the original 
 	 * function.
 	 * 
 	 * @precondition str is either "gaussian" or "sinc" or "polynomial"
@@ -34,25 +32,26 @@ public class TwoPoint extends Derivative {
 	 */
 	public TwoPoint(double start, double end, double inc, String str) {
 		super(start, end, inc, str);
-		func = calcFunc();
+		func = sample();
 	}
 
 	/**
 	 * Calculates the derivative of the function using the two point method. 
-	 * Loops through coordinates in func and takes the slope from the first 
+	 * Loops through the y values in func and takes the slope from the first 
 	 * point to the second point and sets the slope as the y value of the 
-	 * midpoint of the two x values. The midopint and slope are calculated 
-	 * using the inherited calcMid and calcSlope methods from the Derivative 
-	 * class.
+	 * midpoint of the two x values, so the derivative has one less point 
+	 * and its grid starts half of an increment after the function's grid.
 	 * 
-	 * @return Returns an ArrayList containing the points in the derivative.
+	 * @return Returns a SampledFunction containing the points in the derivative.
 	 */
-	public ArrayList<Vector> calcDeriv() {
-		ArrayList<Vector> deriv = new ArrayList<Vector>();
+	public SampledFunction sampleDeriv() {
+		int n = func.size();
+		double h = func.getInc();
+		SampledFunction deriv = new SampledFunction(func.getX(0)+h/2, h, Math.max(0, n-1));
+		double[] y = func.getY(), d = deriv.getY();
 		
-		for(int i=1; i<func.size(); i++) {
-			Vector p1 = func.get(i-1), p2 = func.get(i);
-			deriv.add(new Vector(calcMid(p1.x, p2.x), calcSlope(p1, p2)));
+		for(int i=0; i<n-1; i++) {
+			d[i] = (y[i+1]-y[i])/h;
 		}
 		
 		return deriv;
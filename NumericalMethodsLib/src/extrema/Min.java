@@ -3,10 +3,15 @@ package extrema;
 import java.util.ArrayList;
 
 import derivatives.Derivative;
+import function.Dual;
 import function.Vector;
 
 /**
- * Min class
+ * Min class. Finds a minimum with Newton's Method on the derivative. The first and second 
+ * derivatives at each x value come from one evaluation of the function with Duals (see 
+ * Function.calcDual) instead of the five point stencils in calcDeriv and calcDoubleDeriv, which 
+ * take ten evaluations. The hand-written calcOther function has no Dual version, so for it the 
+ * derivatives still come from the five point stencils.
  * 
  * @author Matthew Jin
  * @version 10/17/17
@@ -33,19 +38,21 @@ public class Min extends Derivative {
 		this.inc = inc;
 		ArrayList<Double> extrema = new ArrayList<Double>();
 		double x = start, iter = 0;
+		Dual y = calcDual(x);
 
-		while(Math.abs(calcDeriv(x))>MIN && !Double.isInfinite(calcY(x)) && iter<maxiter) {
-			Vector next = nextX(x);
-			x = next.x;
+		while(Math.abs(y.deriv)>MIN && !Double.isInfinite(y.value) && iter<maxiter) {
+			x -= y.deriv/y.deriv2;
+			y = calcDual(x);
 			iter++;
-//			System.out.println(x + ", " + calcY(x));
+//			System.out.println(x + ", " + y.value);
 		}
 		extrema.add(x);
 		
-		if(calcDoubleDeriv(x)<0 || 
-				(Double.isInfinite(calcY(x)) || Double.isNaN(calcY(x))) || 
-				(calcDeriv(x-inc)<0 && calcDeriv(x)<0 && calcDeriv(x+inc)<0) || 
-				(calcDeriv(x-inc)>0 && calcDeriv(x)>0 && calcDeriv(x+inc)>0)) {
+		double left = calcDual(x-inc).deriv, right = calcDual(x+inc).deriv;
+		if(y.deriv2<0 || 
+				(Double.isInfinite(y.value) || Double.isNaN(y.value)) || 
+				(left<0 && y.deriv<0 && right<0) || 
+				(left>0 && y.deriv>0 && right>0)) {
 			extrema.add(0.0);
 		} else {
 			extrema.add(-1.0);
@@ -55,11 +62,30 @@ public class Min extends Derivative {
 		return extrema;
 	}
 
+	/**
+	 * Finds the next x value with Newton's Method on the derivative, using one evaluation of the 
+	 * function with Duals.
+	 * 
+	 * @param x0 the starting x value
+	 * @return a Vector containing the next x value and the second derivative
+	 */
 	public Vector nextX(double x0) {
-		double m = calcDoubleDeriv(x0), y0 = calcDeriv(x0);
+		Dual y = calcDual(x0);
+		double m = y.deriv2, y0 = y.deriv;
 		return new Vector(-y0/m+x0, m);
 	}
 
+	/**
+	 * Calculates the y value and the first two derivatives of the polynomial function with 
+	 * calcY and the five point stencils, because calcOther is written with doubles.
+	 * 
+	 * @param x the x value
+	 * @return a Dual containing the y value, the first derivative, and the second derivative
+	 */
+	protected Dual calcOtherDual(double x) {
+		return new Dual(calcY(x), calcDeriv(x), calcDoubleDeriv(x));
+	}
+
 	public double calcDeriv(double x) {
 		double y1 = calcY(x-2*inc), y2 = calcY(x-inc), y4 = calcY(x+inc), y5 = calcY(x+2*inc);
 		return (-y5+8*y4-8*y2+y1)/(12*inc);
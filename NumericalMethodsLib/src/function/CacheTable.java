@@ -0,0 +1,230 @@
+package function;
+
+import java.util.Arrays;
+
+/**
+ * The CacheTable class is the table of x values shared by the caches of a function. It finds the
+ * slot of an x value and chooses which point to forget when it is full, and the subclasses keep
+ * the values for each slot in their own arrays: EvaluationCache keeps y values and DualCache keeps
+ * Duals.
+ *
+ * The x values are kept in a primitive array as an open addressing hash table with linear
+ * probing, so there is no boxing of Doubles or allocation for each call. The table is twice as big
+ * as the capacity so the probes stay short. The x values are compared by their bits, so 0.0 and
+ * -0.0 are different keys and NaN is a key like any other.
+ *
+ * When the cache is full the CLOCK method chooses which point to forget. Each point has a bit that
+ * is set whenever it is used. A hand moves around the table, clearing the bits it passes, and the
+ * first point it finds with a clear bit is removed, so points that were used since the hand last
+ * passed them get a second chance. The number of hits and misses are counted.
+ *
+ * @author Matthew Jin
+ * @version 8/21/2018
+ */
+public abstract class CacheTable {
+
+	private final int capacity;
+	private final int mask;
+	private final int shift;
+	private final long[] keys;
+	private final boolean[] used;
+	private final boolean[] referenced;
+	private int size;
+	private int hand;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructor for the CacheTable class which creates an empty table.
+	 *
+	 * @param capacity the most points the cache remembers
+	 */
+	protected CacheTable(int capacity) {
+		if(capacity<=0 || capacity>1<<29) {
+			throw new IllegalArgumentException("The capacity of the cache must be between 1 and 2^29, not " + capacity);
+		}
+		this.capacity = capacity;
+		int length = Integer.highestOneBit(capacity)<<1;
+		if(length<2*capacity) {
+			length <<= 1;
+		}
+		mask = length-1;
+		shift = 64-Integer.numberOfTrailingZeros(length);
+		keys = new long[length];
+		used = new boolean[length];
+		referenced = new boolean[length];
+	}
+
+	/**
+	 * Gets the number of slots in the table, which is the length the subclasses need for their
+	 * arrays of values
+	 *
+	 * @return the number of slots
+	 */
+	protected int length() {
+		return keys.length;
+	}
+
+	/**
+	 * Looks for an x value in the table and counts a hit or a miss.
+	 *
+	 * @param x the x value
+	 * @return the index of the slot of x, or -1 if x is not in the table
+	 */
+	protected int lookup(double x) {
+		int i = find(Double.doubleToRawLongBits(x));
+		if(used[i]) {
+			hits++;
+			referenced[i] = true;
+			return i;
+		}
+		misses++;
+		return -1;
+	}
+
+	/**
+	 * Adds an x value that is not in the table, removing another point if the table is full. The
+	 * subclass then stores the value of x in the slot.
+	 *
+	 * @param x the x value
+	 * @return the index of the slot of x
+	 */
+	protected int insert(double x) {
+		long key = Double.doubleToRawLongBits(x);
+		if(size==capacity) {
+			evict();
+		}
+		int i = find(key);
+		keys[i] = key;
+		used[i] = true;
+		referenced[i] = true;
+		size++;
+		return i;
+	}
+
+	/**
+	 * Moves the value of a point from one slot to another when a point is removed.
+	 *
+	 * @param from the index of the slot the point was in
+	 * @param to the index of the slot the point is moved to
+	 */
+	protected abstract void move(int from, int to);
+
+	/**
+	 * Finds the slot of a key, or the empty slot where it would be added.
+	 *
+	 * @param key the bits of the x value
+	 * @return the index of the slot
+	 */
+	private int find(long key) {
+		int i = home(key);
+		while(used[i] && keys[i]!=key) {
+			i = (i+1)&mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the slot a key starts probing from, by multiplying the bits by a large odd number and
+	 * taking the top bits, which mixes the exponent and the mantissa of the x value.
+	 *
+	 * @param key the bits of the x value
+	 * @return the index of the first slot to check
+	 */
+	private int home(long key) {
+		return (int) ((key*0x9E3779B97F4A7C15L)>>>shift);
+	}
+
+	/**
+	 * Moves the clock hand until it finds a point that has not been used since the hand last
+	 * passed it, and removes that point.
+	 */
+	private void evict() {
+		while(!used[hand] || referenced[hand]) {
+			referenced[hand] = false;
+			hand = (hand+1)&mask;
+		}
+		remove(hand);
+	}
+
+	/**
+	 * Removes the point in a slot. The points after it in the same run of full slots are moved
+	 * back to fill the gap if their probes started at or before the gap, so every point can still
+	 * be found without marking removed slots.
+	 *
+	 * @param i the index of the slot
+	 */
+	private void remove(int i) {
+		int j = i;
+		while(true) {
+			used[i] = false;
+			while(true) {
+				j = (j+1)&mask;
+				if(!used[j]) {
+					size--;
+					return;
+				}
+				int k = home(keys[j]);
+				boolean stays = i<=j ? (i<k && k<=j) : (i<k || k<=j);
+				if(!stays) {
+					break;
+				}
+			}
+			keys[i] = keys[j];
+			move(j, i);
+			referenced[i] = referenced[j];
+			used[i] = true;
+			i = j;
+		}
+	}
+
+	/**
+	 * Removes every point and sets the hit and miss counts back to zero.
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		Arrays.fill(referenced, false);
+		size = 0;
+		hand = 0;
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * Gets the most points the cache remembers
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() { return capacity; }
+
+	/**
+	 * Gets the number of points in the cache
+	 *
+	 * @return the number of points
+	 */
+	public int size() { return size; }
+
+	/**
+	 * Gets the number of calls that found their x value in the cache
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() { return hits; }
+
+	/**
+	 * Gets the number of calls that had to call the function
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() { return misses; }
+
+	/**
+	 * Returns a string with the size, capacity, hits, and misses of the cache.
+	 *
+	 * @return a string representing the cache
+	 */
+	public String toString() {
+		return "cache " + size + "/" + capacity + ", " + hits + " hits, " + misses + " misses";
+	}
+
+}
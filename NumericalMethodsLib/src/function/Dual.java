@@ -0,0 +1,262 @@
+package function;
+
+/**
+ * The Dual class holds the value of a function together with its first and second derivatives
+ * at one x value. Doing math with Duals instead of doubles carries the derivatives along with
+ * the chain rule, which is called forward mode automatic differentiation. A function written with
+ * Duals gives its value and both derivatives in one evaluation, and the derivatives are exact
+ * instead of being estimated from nearby points with a step size.
+ *
+ * To differentiate a function at x, start from variable(x), which has a first derivative of 1,
+ * and use constant(c) for numbers. Every operation returns a new Dual.
+ *
+ * @author Matthew Jin
+ * @version 7/31/2018
+ */
+public class Dual {
+
+	public final double value;
+	public final double deriv;
+	public final double deriv2;
+
+	/**
+	 * Constructor for the Dual class which sets the value and the derivatives.
+	 *
+	 * @param value the value of the function
+	 * @param deriv the first derivative
+	 * @param deriv2 the second derivative
+	 */
+	public Dual(double value, double deriv, double deriv2) {
+		this.value = value;
+		this.deriv = deriv;
+		this.deriv2 = deriv2;
+	}
+
+	/**
+	 * Creates the Dual of the variable x, which has a first derivative of 1.
+	 *
+	 * @param x the x value
+	 * @return the Dual of x
+	 */
+	public static Dual variable(double x) {
+		return new Dual(x, 1, 0);
+	}
+
+	/**
+	 * Creates the Dual of a constant, which has derivatives of 0.
+	 *
+	 * @param c the constant
+	 * @return the Dual of the constant
+	 */
+	public static Dual constant(double c) {
+		return new Dual(c, 0, 0);
+	}
+
+	/**
+	 * Applies a function of one variable with the chain rule, given the value and the first two
+	 * derivatives of the function at this Dual's value.
+	 *
+	 * @param f the value of the function
+	 * @param df the first derivative of the function
+	 * @param ddf the second derivative of the function
+	 * @return the Dual of the function of this Dual
+	 */
+	private Dual chain(double f, double df, double ddf) {
+		return new Dual(f, df*deriv, ddf*deriv*deriv + df*deriv2);
+	}
+
+	/**
+	 * Adds two Duals.
+	 *
+	 * @param b the other Dual
+	 * @return the sum
+	 */
+	public Dual add(Dual b) { return new Dual(value+b.value, deriv+b.deriv, deriv2+b.deriv2); }
+
+	/**
+	 * Adds a constant to the Dual.
+	 *
+	 * @param c the constant
+	 * @return the sum
+	 */
+	public Dual add(double c) { return new Dual(value+c, deriv, deriv2); }
+
+	/**
+	 * Subtracts two Duals.
+	 *
+	 * @param b the Dual being subtracted
+	 * @return the difference
+	 */
+	public Dual sub(Dual b) { return new Dual(value-b.value, deriv-b.deriv, deriv2-b.deriv2); }
+
+	/**
+	 * Negates the Dual.
+	 *
+	 * @return the negative of the Dual
+	 */
+	public Dual neg() { return new Dual(-value, -deriv, -deriv2); }
+
+	/**
+	 * Multiplies the Dual by a constant.
+	 *
+	 * @param c the constant
+	 * @return the product
+	 */
+	public Dual mult(double c) { return new Dual(c*value, c*deriv, c*deriv2); }
+
+	/**
+	 * Multiplies two Duals with the product rule.
+	 *
+	 * @param b the other Dual
+	 * @return the product
+	 */
+	public Dual mult(Dual b) {
+		return new Dual(value*b.value, deriv*b.value + value*b.deriv,
+				deriv2*b.value + 2*deriv*b.deriv + value*b.deriv2);
+	}
+
+	/**
+	 * Divides two Duals with the quotient rule.
+	 *
+	 * @param b the denominator
+	 * @return the quotient
+	 */
+	public Dual div(Dual b) {
+		double q = value/b.value;
+		double dq = (deriv - q*b.deriv)/b.value;
+		return new Dual(q, dq, (deriv2 - 2*dq*b.deriv - q*b.deriv2)/b.value);
+	}
+
+	/**
+	 * Raises the Dual to a constant power.
+	 *
+	 * @param c the power
+	 * @return the power of the Dual
+	 */
+	public Dual pow(double c) {
+		if(c==2) {
+			return mult(this);
+		}
+		double df = c==0 ? 0 : c*Math.pow(value, c-1);
+		double ddf = c==0 || c==1 ? 0 : c*(c-1)*Math.pow(value, c-2);
+		return chain(Math.pow(value, c), df, ddf);
+	} //The derivatives that are always 0 are not multiplied by an infinite power at value 0
+
+	/**
+	 * Raises the Dual to a power that is also a Dual, using u^v = exp(v*log(u)).
+	 *
+	 * @param b the power
+	 * @return the power of the Dual
+	 */
+	public Dual pow(Dual b) {
+		if(b.deriv==0 && b.deriv2==0) {
+			return pow(b.value);
+		}
+		return b.mult(log()).exp();
+	}
+
+	/**
+	 * Calculates e to the power of the Dual.
+	 *
+	 * @return the exponential
+	 */
+	public Dual exp() { double e = Math.exp(value); return chain(e, e, e); }
+
+	/**
+	 * Calculates the natural log of the Dual.
+	 *
+	 * @return the natural log
+	 */
+	public Dual log() { return chain(Math.log(value), 1/value, -1/(value*value)); }
+
+	/**
+	 * Calculates the sine of the Dual.
+	 *
+	 * @return the sine
+	 */
+	public Dual sin() { double s = Math.sin(value), c = Math.cos(value); return chain(s, c, -s); }
+
+	/**
+	 * Calculates the cosine of the Dual.
+	 *
+	 * @return the cosine
+	 */
+	public Dual cos() { double s = Math.sin(value), c = Math.cos(value); return chain(c, -s, -c); }
+
+	/**
+	 * Calculates the tangent of the Dual.
+	 *
+	 * @return the tangent
+	 */
+	public Dual tan() {
+		double t = Math.tan(value), sec2 = 1+t*t;
+		return chain(t, sec2, 2*t*sec2);
+	}
+
+	/**
+	 * Calculates the square root of the Dual.
+	 *
+	 * @return the square root
+	 */
+	public Dual sqrt() {
+		double r = Math.sqrt(value);
+		return chain(r, 0.5/r, -0.25/(r*value));
+	}
+
+	/**
+	 * Calculates the absolute value of the Dual. The derivatives at zero are taken from the right.
+	 *
+	 * @return the absolute value
+	 */
+	public Dual abs() {
+		return value<0 ? neg() : this;
+	}
+
+	/**
+	 * Calculates sinc, sin(x)/x, of the Dual, using the limits at zero.
+	 *
+	 * @return the sinc of the Dual
+	 */
+	public Dual sinc() {
+		return chain(sinc(value, 0), sinc(value, 1), sinc(value, 2));
+	}
+
+	/**
+	 * Calculates sinc(x) = sin(x)/x or one of its first two derivatives. Close to x=0 the
+	 * formulas subtract numbers that are almost equal and lose most of their digits, so a Taylor
+	 * series is used for |x| < 0.1 instead.
+	 *
+	 * @param x the x value
+	 * @param order the order of the derivative, from 0 to 2
+	 * @return the value of sinc or its derivative
+	 */
+	static double sinc(double x, int order) {
+		double x2 = x*x;
+		if(Math.abs(x)<0.1) {
+			if(order==0) {
+				return 1 - x2/6*(1 - x2/20*(1 - x2/42*(1 - x2/72)));
+			} else if(order==1) {
+				return -x/3*(1 - x2/10*(1 - x2/28*(1 - x2/54)));
+			}
+			return -1.0/3*(1 - 3*x2/10*(1 - 5*x2/84*(1 - 7*x2/270)));
+		}
+
+		double s = Math.sin(x), c = Math.cos(x);
+		if(order==0) {
+			return s/x;
+		} else if(order==1) {
+			return (x*c-s)/x2;
+		}
+		return (2*s-2*x*c-x2*s)/(x2*x);
+	}
+
+	/**
+	 * Returns a string with the value and the two derivatives.
+	 *
+	 * @return a string representing the Dual
+	 */
+	public String toString() {
+		return "{" + value + ", " + deriv + ", " + deriv2 + "}";
+	}
+
+}
@@ -0,0 +1,72 @@
+package function;
+
+import java.util.Arrays;
+import java.util.function.DoubleFunction;
+
+/**
+ * The DualCache class remembers the Duals of a function, which hold the y value and the first two
+ * derivatives, for the x values it was last called with. It is used through Function.setCache,
+ * which puts it in front of calcDual, so that Newton's Method and Min get the same cache as calcY.
+ *
+ * The x values are kept in the table of the CacheTable class. Duals cannot be changed, so the
+ * cache keeps the Dual that was calculated and returns the same object on a hit.
+ *
+ * The cache is not thread safe, so one cache should only be used by one solver at a time.
+ *
+ * @author Matthew Jin
+ * @version 8/21/2018
+ */
+public class DualCache extends CacheTable {
+
+	private final DoubleFunction<Dual> f;
+	private final Dual[] values;
+
+	/**
+	 * Constructor for the DualCache class which creates an empty cache for a function.
+	 *
+	 * @param f the function that calculates the Dual at an x value
+	 * @param capacity the most points the cache remembers
+	 */
+	public DualCache(DoubleFunction<Dual> f, int capacity) {
+		super(capacity);
+		this.f = f;
+		values = new Dual[length()];
+	}
+
+	/**
+	 * Gets the Dual of the function at x, from the cache if x is in it. Otherwise the function is
+	 * called and the point is added to the cache, removing another point if the cache is full.
+	 *
+	 * @param x the x value
+	 * @return a Dual containing the y value, the first derivative, and the second derivative
+	 */
+	public Dual apply(double x) {
+		int i = lookup(x);
+		if(i>=0) {
+			return values[i];
+		}
+
+		Dual y = f.apply(x);
+		values[insert(x)] = y;
+		return y;
+	}
+
+	/**
+	 * Moves a Dual from one slot to another when a point is removed.
+	 *
+	 * @param from the index of the slot the point was in
+	 * @param to the index of the slot the point is moved to
+	 */
+	protected void move(int from, int to) {
+		values[to] = values[from];
+	}
+
+	/**
+	 * Removes every point and sets the hit and miss counts back to zero.
+	 */
+	public void clear() {
+		super.clear();
+		Arrays.fill(values, null);
+	}
+
+}
@@ -0,0 +1,70 @@
+package function;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The EvaluationCache class remembers the y values of a function for the x values it was last
+ * called with, so that a solver which asks for the same point many times only calculates it once.
+ * It is used through Function.setCache, which puts the cache in front of calcY.
+ *
+ * The x values are kept in the table of the CacheTable class, and the y values are kept in a
+ * primitive array next to it, so there is no boxing of Doubles or allocation for each call.
+ *
+ * The cache is not thread safe, so one cache should only be used by one solver at a time.
+ *
+ * @author Matthew Jin
+ * @version 8/21/2018
+ */
+public class EvaluationCache extends CacheTable implements DoubleUnaryOperator {
+
+	private final DoubleUnaryOperator f;
+	private final double[] values;
+
+	/**
+	 * Constructor for the EvaluationCache class which creates an empty cache for a function.
+	 *
+	 * @param f the function whose y values are cached
+	 * @param capacity the most points the cache remembers
+	 */
+	public EvaluationCache(DoubleUnaryOperator f, int capacity) {
+		super(capacity);
+		this.f = f;
+		values = new double[length()];
+	}
+
+	/**
+	 * Gets the y value of the function at x, from the cache if x is in it. Otherwise the function
+	 * is called and the point is added to the cache, removing another point if the cache is full.
+	 *
+	 * @param x the x value
+	 * @return the y value
+	 */
+	public double applyAsDouble(double x) {
+		int i = lookup(x);
+		if(i>=0) {
+			return values[i];
+		}
+
+		double y = f.applyAsDouble(x);
+		values[insert(x)] = y;
+		return y;
+	}
+
+	/**
+	 * Moves a y value from one slot to another when a point is removed.
+	 *
+	 * @param from the index of the slot the point was in
+	 * @param to the index of the slot the point is moved to
+	 */
+	protected void move(int from, int to) {
+		values[to] = values[from];
+	}
+
+	/**
+	 * Gets the function whose y values are cached
+	 *
+	 * @return the function
+	 */
+	public DoubleUnaryOperator getFunction() { return f; }
+
+}
@@ -0,0 +1,602 @@
+package function;
+
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * The Expression class turns a formula written as a String, like "x*exp(-x^2)", into a tree
+ * that can be evaluated, differentiated, and compiled. The formula can use the variable x,
+ * numbers, the constants e and pi, the parameters p0, p1, p2, and so on, the operators +, -, *,
+ * /, and ^, parentheses, and the functions sin, cos, tan, exp, log (natural log), sqrt, abs, and
+ * sinc. The usual order of operations is used, and ^ is done from right to left, so -x^2 is
+ * -(x^2) and 2^3^2 is 2^9.
+ *
+ * The compile method turns the tree into a DoubleUnaryOperator made of lambdas that each hold
+ * their own children, so evaluating it does not look at the String or the type of each node
+ * again. Constants are folded when the tree is built, and small integer powers are compiled into
+ * multiplications, so the result is close to the speed of the same formula written in Java.
+ *
+ * The derivative method builds the tree of the exact derivative with respect to x using the
+ * usual rules, so the derivative is not approximated with a step size. The compileDual method
+ * compiles the tree to work on Duals instead, which gives the value and the first two
+ * derivatives in one evaluation.
+ *
+ * @author Matthew Jin
+ * @version 7/24/2018
+ */
+public class Expression {
+
+	private static final int CONST = 0, X = 1, PARAM = 2, ADD = 3, SUB = 4, MUL = 5, DIV = 6,
+			POW = 7, NEG = 8, SIN = 9, COS = 10, TAN = 11, EXP = 12, LOG = 13, SQRT = 14, ABS = 15,
+			SINC = 16;
+	private static final String[] NAMES = {"", "x", "p", "+", "-", "*", "/", "^", "-", "sin", "cos",
+			"tan", "exp", "log", "sqrt", "abs", "sinc"};
+
+	private final int op;
+	private final double value;
+	private final Expression left, right;
+
+	/**
+	 * Constructor for the Expression class. The value is the number for a constant, the index for
+	 * a parameter, or the order of the derivative for sinc.
+	 *
+	 * @param op the type of the node
+	 * @param value the number stored in the node
+	 * @param left the first child, or the argument of a function
+	 * @param right the second child
+	 */
+	private Expression(int op, double value, Expression left, Expression right) {
+		this.op = op;
+		this.value = value;
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Parses a formula into an Expression.
+	 *
+	 * @param text the formula
+	 * @return the tree of the formula
+	 * @throws IllegalArgumentException if the formula cannot be parsed
+	 */
+	public static Expression parse(String text) {
+		Parser p = new Parser(text);
+		Expression e = p.sum();
+		p.skip();
+		if(p.pos<text.length()) {
+			throw new IllegalArgumentException("Unexpected '" + text.charAt(p.pos) + "' at " + p.pos + " in " + text);
+		}
+		return e;
+	}
+
+	/**
+	 * Gets the number of parameters used by the expression, which is one more than the largest
+	 * parameter index
+	 *
+	 * @return the number of parameters
+	 */
+	public int getParameters() {
+		int n = op==PARAM ? (int) value+1 : 0;
+		if(left!=null) {
+			n = Math.max(n, left.getParameters());
+		}
+		if(right!=null) {
+			n = Math.max(n, right.getParameters());
+		}
+		return n;
+	}
+
+	/**
+	 * Compiles the expression, with every parameter equal to zero.
+	 *
+	 * @return the function of x
+	 */
+	public DoubleUnaryOperator compile() {
+		return compile(new double[getParameters()]);
+	}
+
+	/**
+	 * Compiles the expression into a tree of lambdas. The parameters are read from the array
+	 * every time the function is called, so changing the array changes the function without
+	 * compiling it again.
+	 *
+	 * @precondition params has at least getParameters() values
+	 *
+	 * @param params the values of the parameters
+	 * @return the function of x
+	 */
+	public DoubleUnaryOperator compile(double[] params) {
+		if(op==CONST) {
+			double c = value;
+			return x -> c;
+		} else if(op==X) {
+			return x -> x;
+		} else if(op==PARAM) {
+			int i = (int) value;
+			return x -> params[i];
+		}
+
+		DoubleUnaryOperator a = left.compile(params);
+		if(op==POW && right.op==CONST) {
+			double c = right.value;
+			if(c==2) {
+				return x -> { double v = a.applyAsDouble(x); return v*v; };
+			} else if(c==3) {
+				return x -> { double v = a.applyAsDouble(x); return v*v*v; };
+			} else if(c==-1) {
+				return x -> 1/a.applyAsDouble(x);
+			}
+		} else if(op==POW && left.op==CONST && left.value==Math.E) {
+			DoubleUnaryOperator b = right.compile(params);
+			return x -> Math.exp(b.applyAsDouble(x));
+		} //Small powers and powers of e do not need Math.pow
+
+		if(right!=null) {
+			DoubleUnaryOperator b = right.compile(params);
+			switch(op) {
+				case ADD: return x -> a.applyAsDouble(x)+b.applyAsDouble(x);
+				case SUB: return x -> a.applyAsDouble(x)-b.applyAsDouble(x);
+				case MUL: return x -> a.applyAsDouble(x)*b.applyAsDouble(x);
+				case DIV: return x -> a.applyAsDouble(x)/b.applyAsDouble(x);
+				default: return x -> Math.pow(a.applyAsDouble(x), b.applyAsDouble(x));
+			}
+		}
+
+		switch(op) {
+			case NEG: return x -> -a.applyAsDouble(x);
+			case SIN: return x -> Math.sin(a.applyAsDouble(x));
+			case COS: return x -> Math.cos(a.applyAsDouble(x));
+			case TAN: return x -> Math.tan(a.applyAsDouble(x));
+			case EXP: return x -> Math.exp(a.applyAsDouble(x));
+			case LOG: return x -> Math.log(a.applyAsDouble(x));
+			case SQRT: return x -> Math.sqrt(a.applyAsDouble(x));
+			case ABS: return x -> Math.abs(a.applyAsDouble(x));
+			default:
+				int order = (int) value;
+				return x -> Dual.sinc(a.applyAsDouble(x), order);
+		}
+	}
+
+	/**
+	 * Compiles the expression, with every parameter equal to zero, into a tree of lambdas that
+	 * works on Duals.
+	 *
+	 * @return the function of a Dual
+	 */
+	public UnaryOperator<Dual> compileDual() {
+		return compileDual(new double[getParameters()]);
+	}
+
+	/**
+	 * Compiles the expression into a tree of lambdas that works on Duals, so that calling it with
+	 * Dual.variable(x) gives the value and the first two derivatives at x. The parameters are
+	 * read from the array every time the function is called.
+	 *
+	 * @precondition params has at least getParameters() values
+	 *
+	 * @param params the values of the parameters
+	 * @return the function of a Dual
+	 * @throws UnsupportedOperationException if the expression has a derivative of sinc in it
+	 */
+	public UnaryOperator<Dual> compileDual(double[] params) {
+		if(op==CONST) {
+			Dual c = Dual.constant(value);
+			return x -> c;
+		} else if(op==X) {
+			return x -> x;
+		} else if(op==PARAM) {
+			int i = (int) value;
+			return x -> Dual.constant(params[i]);
+		}
+
+		UnaryOperator<Dual> a = left.compileDual(params);
+		if(op==POW && right.op==CONST) {
+			double c = right.value;
+			return x -> a.apply(x).pow(c);
+		} else if(op==POW && left.op==CONST && left.value==Math.E) {
+			UnaryOperator<Dual> b = right.compileDual(params);
+			return x -> b.apply(x).exp();
+		}
+
+		if(right!=null) {
+			UnaryOperator<Dual> b = right.compileDual(params);
+			switch(op) {
+				case ADD: return x -> a.apply(x).add(b.apply(x));
+				case SUB: return x -> a.apply(x).sub(b.apply(x));
+				case MUL: return x -> a.apply(x).mult(b.apply(x));
+				case DIV: return x -> a.apply(x).div(b.apply(x));
+				default: return x -> a.apply(x).pow(b.apply(x));
+			}
+		}
+
+		switch(op) {
+			case NEG: return x -> a.apply(x).neg();
+			case SIN: return x -> a.apply(x).sin();
+			case COS: return x -> a.apply(x).cos();
+			case TAN: return x -> a.apply(x).tan();
+			case EXP: return x -> a.apply(x).exp();
+			case LOG: return x -> a.apply(x).log();
+			case SQRT: return x -> a.apply(x).sqrt();
+			case ABS: return x -> a.apply(x).abs();
+			default:
+				if(value>0) {
+					throw new UnsupportedOperationException("Derivatives of sinc cannot be compiled to Duals");
+				} //Compiling the original formula gives the same derivatives
+				return x -> a.apply(x).sinc();
+		}
+	}
+
+	/**
+	 * Calculates the exact derivative of the expression with respect to x.
+	 *
+	 * @return the tree of the derivative
+	 * @throws UnsupportedOperationException for the third derivative of sinc
+	 */
+	public Expression derivative() {
+		switch(op) {
+			case CONST: case PARAM: return constant(0);
+			case X: return constant(1);
+			case ADD: return add(left.derivative(), right.derivative());
+			case SUB: return sub(left.derivative(), right.derivative());
+			case MUL: return add(mul(left.derivative(), right), mul(left, right.derivative()));
+			case DIV: return div(sub(mul(left.derivative(), right), mul(left, right.derivative())),
+					pow(right, constant(2)));
+			case POW:
+				if(right.op==CONST) {
+					return mul(mul(right, pow(left, constant(right.value-1))), left.derivative());
+				} //d/dx u^c = c u^(c-1) u'
+				return mul(this, add(mul(right.derivative(), unary(LOG, left)),
+						div(mul(right, left.derivative()), left)));
+			case NEG: return neg(left.derivative());
+		}
+
+		Expression u = left, inner = left.derivative();
+		Expression outer;
+		switch(op) {
+			case SIN: outer = unary(COS, u); break;
+			case COS: outer = neg(unary(SIN, u)); break;
+			case TAN: outer = div(constant(1), pow(unary(COS, u), constant(2))); break;
+			case EXP: outer = this; break;
+			case LOG: outer = div(constant(1), u); break;
+			case SQRT: outer = div(constant(0.5), this); break;
+			case ABS: outer = div(u, this); break;
+			default:
+				if(value>=2) {
+					throw new UnsupportedOperationException("The third derivative of sinc is not supported");
+				}
+				outer = new Expression(SINC, value+1, u, null);
+		}
+		return mul(outer, inner); //Chain rule
+	}
+
+	/**
+	 * Writes the expression as a formula with every operation in parentheses. Derivatives of sinc
+	 * are written as sinc' and sinc''.
+	 *
+	 * @return the formula
+	 */
+	public String toString() {
+		switch(op) {
+			case CONST: return value==Math.E ? "e" : value==Math.PI ? "pi" : Double.toString(value);
+			case X: return "x";
+			case PARAM: return "p" + (int) value;
+			case NEG: return "-(" + left + ")";
+			case SINC:
+				if(value>0) {
+					return "sinc" + "'".repeat((int) value) + "(" + left + ")";
+				}
+		}
+		if(right!=null) {
+			return "(" + left + NAMES[op] + right + ")";
+		}
+		return NAMES[op] + "(" + left + ")";
+	}
+
+	/**
+	 * Creates a constant.
+	 *
+	 * @param c the value of the constant
+	 * @return the constant
+	 */
+	private static Expression constant(double c) {
+		return new Expression(CONST, c, null, null);
+	}
+
+	/**
+	 * Checks if an expression is a constant with a value.
+	 *
+	 * @param e the expression
+	 * @param c the value
+	 * @return true if e is the constant c
+	 */
+	private static boolean is(Expression e, double c) {
+		return e.op==CONST && e.value==c;
+	}
+
+	/**
+	 * Creates a node with two children. If both children are constants, the result is folded
+	 * into one constant.
+	 *
+	 * @param op the operator
+	 * @param a the first child
+	 * @param b the second child
+	 * @return the node
+	 */
+	private static Expression binary(int op, Expression a, Expression b) {
+		Expression e = new Expression(op, 0, a, b);
+		if(a.op==CONST && b.op==CONST) {
+			return constant(e.compile(new double[0]).applyAsDouble(0));
+		}
+		return e;
+	}
+
+	/**
+	 * Adds two expressions, leaving out a zero.
+	 *
+	 * @param a the first expression
+	 * @param b the second expression
+	 * @return the result
+	 */
+	private static Expression add(Expression a, Expression b) {
+		if(is(a, 0)) {
+			return b;
+		} else if(is(b, 0)) {
+			return a;
+		}
+		return binary(ADD, a, b);
+	}
+
+	/**
+	 * Subtracts two expressions, leaving out a zero.
+	 *
+	 * @param a the first expression
+	 * @param b the second expression
+	 * @return the result
+	 */
+	private static Expression sub(Expression a, Expression b) {
+		if(is(b, 0)) {
+			return a;
+		} else if(is(a, 0)) {
+			return neg(b);
+		}
+		return binary(SUB, a, b);
+	}
+
+	/**
+	 * Multiplies two expressions, leaving out a one and folding a zero.
+	 *
+	 * @param a the first expression
+	 * @param b the second expression
+	 * @return the result
+	 */
+	private static Expression mul(Expression a, Expression b) {
+		if(is(a, 0) || is(b, 0)) {
+			return constant(0);
+		} else if(is(a, 1)) {
+			return b;
+		} else if(is(b, 1)) {
+			return a;
+		}
+		return binary(MUL, a, b);
+	}
+
+	/**
+	 * Divides two expressions, leaving out a one in the denominator.
+	 *
+	 * @param a the first expression
+	 * @param b the second expression
+	 * @return the result
+	 */
+	private static Expression div(Expression a, Expression b) {
+		if(is(b, 1)) {
+			return a;
+		}
+		return binary(DIV, a, b);
+	}
+
+	/**
+	 * Raises an expression to a power, leaving out powers of one and zero.
+	 *
+	 * @param a the first expression
+	 * @param b the second expression
+	 * @return the result
+	 */
+	private static Expression pow(Expression a, Expression b) {
+		if(is(b, 1)) {
+			return a;
+		} else if(is(b, 0)) {
+			return constant(1);
+		}
+		return binary(POW, a, b);
+	}
+
+	/**
+	 * Negates an expression, folding constants and double negatives.
+	 *
+	 * @param a the expression
+	 * @return the result
+	 */
+	private static Expression neg(Expression a) {
+		if(a.op==CONST) {
+			return constant(-a.value);
+		} else if(a.op==NEG) {
+			return a.left;
+		}
+		return new Expression(NEG, 0, a, null);
+	}
+
+	/**
+	 * Creates a function node, which is folded into a constant if its argument is a constant.
+	 *
+	 * @param op the function
+	 * @param a the argument
+	 * @return the node
+	 */
+	private static Expression unary(int op, Expression a) {
+		Expression e = new Expression(op, 0, a, null);
+		if(a.op==CONST) {
+			return constant(e.compile(new double[0]).applyAsDouble(0));
+		}
+		return e;
+	}
+
+	/**
+	 * The Parser class reads a formula one character at a time with one method for each level of
+	 * the order of operations.
+	 */
+	private static class Parser {
+
+		private String text;
+		private int pos;
+
+		private Parser(String text) {
+			this.text = text;
+		}
+
+		/**
+		 * Parses terms added or subtracted together.
+		 */
+		private Expression sum() {
+			Expression e = product();
+			while(true) {
+				if(eat('+')) {
+					e = add(e, product());
+				} else if(eat('-')) {
+					e = sub(e, product());
+				} else {
+					return e;
+				}
+			}
+		}
+
+		/**
+		 * Parses factors multiplied or divided together.
+		 */
+		private Expression product() {
+			Expression e = sign();
+			while(true) {
+				if(eat('*')) {
+					e = mul(e, sign());
+				} else if(eat('/')) {
+					e = div(e, sign());
+				} else {
+					return e;
+				}
+			}
+		}
+
+		/**
+		 * Parses a factor with a plus or minus sign in front of it.
+		 */
+		private Expression sign() {
+			if(eat('-')) {
+				return neg(sign());
+			} else if(eat('+')) {
+				return sign();
+			}
+			return power();
+		}
+
+		/**
+		 * Parses a power, which is done from right to left.
+		 */
+		private Expression power() {
+			Expression e = atom();
+			if(eat('^')) {
+				return pow(e, sign());
+			}
+			return e;
+		}
+
+		/**
+		 * Parses a number, a name, a function call, or a formula in parentheses.
+		 */
+		private Expression atom() {
+			skip();
+			if(eat('(')) {
+				Expression e = sum();
+				expect(')');
+				return e;
+			}
+
+			int begin = pos;
+			if(pos<text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos)=='.')) {
+				while(pos<text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos)=='.')) {
+					pos++;
+				}
+				if(pos+1<text.length() && (text.charAt(pos)=='e' || text.charAt(pos)=='E') &&
+						(Character.isDigit(text.charAt(pos+1)) ||
+						(pos+2<text.length() && "+-".indexOf(text.charAt(pos+1))>=0 && Character.isDigit(text.charAt(pos+2))))) {
+					pos += 2;
+					while(pos<text.length() && Character.isDigit(text.charAt(pos))) {
+						pos++;
+					}
+				} //Scientific notation like 1e-5
+				return constant(Double.parseDouble(text.substring(begin, pos)));
+			}
+
+			while(pos<text.length() && Character.isLetterOrDigit(text.charAt(pos))) {
+				pos++;
+			}
+			String name = text.substring(begin, pos).toLowerCase();
+			if(name.equals("x")) {
+				return new Expression(X, 0, null, null);
+			} else if(name.equals("e")) {
+				return constant(Math.E);
+			} else if(name.equals("pi")) {
+				return constant(Math.PI);
+			} else if(name.matches("p[0-9]+")) {
+				return new Expression(PARAM, Integer.parseInt(name.substring(1)), null, null);
+			}
+
+			for(int op=SIN; op<NAMES.length; op++) {
+				if(name.equals(NAMES[op])) {
+					expect('(');
+					Expression e = sum();
+					expect(')');
+					return unary(op, e);
+				}
+			}
+			throw new IllegalArgumentException((name.isEmpty() ? "Missing value" : "Unknown name " + name)
+					+ " at " + begin + " in " + text);
+		}
+
+		/**
+		 * Skips any spaces.
+		 */
+		private void skip() {
+			while(pos<text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		/**
+		 * Moves past a character if it is next.
+		 *
+		 * @param c the character
+		 * @return true if the character was next
+		 */
+		private boolean eat(char c) {
+			skip();
+			if(pos<text.length() && text.charAt(pos)==c) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Moves past a character that has to be next.
+		 *
+		 * @param c the character
+		 * @throws IllegalArgumentException if the character is not next
+		 */
+		private void expect(char c) {
+			if(!eat(c)) {
+				throw new IllegalArgumentException("Expected '" + c + "' at " + pos + " in " + text);
+			}
+		}
+
+	}
+
+}
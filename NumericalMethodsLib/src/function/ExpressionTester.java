@@ -0,0 +1,130 @@
+package function;
+
+import java.util.function.DoubleUnaryOperator;
+
+import derivatives.Derivative;
+import extrema.Min;
+import zeros.NewtonsMethod;
+
+/**
+ * This class tests the Expression class by comparing compiled formulas and their exact
+ * derivatives with the hardcoded gaussian and sinc functions of the Function and Derivative
+ * classes. It also times the compiled formulas against the same formulas written in Java, and
+ * checks the derivatives from Duals against the exact derivatives. The results are printed out
+ * for evaluation.
+ *
+ * @author Matthew Jin
+ * @version 7/24/2018
+ */
+public class ExpressionTester {
+
+	/**
+	 * The main method compares the formulas "exp(-x^2)" and "sinc(x)" with the hardcoded
+	 * gaussian and sinc functions and their derivatives, checks a few formulas against Java, and
+	 * prints the time of each way of evaluating the gaussian.
+	 */
+	public static void main(String[] args) {
+		compare("gaussian", "exp(-x^2)");
+		compare("sinc", "sinc(x)");
+
+		check("x*exp(-x^2)", x -> x*Math.exp(-x*x));
+		check("2^-x + 3*x^3 - 1e-2/x", x -> Math.pow(2, -x) + 3*x*x*x - 0.01/x);
+		check("sqrt(abs(x))*cos(pi*x)", x -> Math.sqrt(Math.abs(x))*Math.cos(Math.PI*x));
+		check("log(1+x^2)", x -> Math.log(1+x*x));
+
+		Expression e = Expression.parse("x*exp(-x^2)");
+		System.out.println("d/dx " + e + " = " + e.derivative());
+		System.out.println("second derivative error: " +
+				maxError(e.derivative().derivative().compile(), x -> (4*x*x*x-6*x)*Math.exp(-x*x)));
+
+		compareDual("gaussian");
+		compareDual("sinc");
+		compareDual("x*exp(-x^2)");
+		compareDual("sin(x)^3/(2+cos(x)) + sqrt(1+x^2)");
+
+		System.out.println("Newton's method zero of x^3-2*x-5: " + new NewtonsMethod("x^3-2*x-5").findZero(2, 100));
+		System.out.println("min of x^4-3*x^2+x: " + new Min("x^4-3*x^2+x").findExtrema(-1, 0.01, 100));
+
+		Function hand = new Function(-10, 10, 0.001, "gaussian");
+		Function compiled = new Function(-10, 10, 0.001, "exp(-x^2)");
+		DoubleUnaryOperator java = x -> Math.exp(-x*x);
+		for(int i=0; i<5; i++) {
+			System.out.println("hardcoded: " + time(hand::calcY) + " s, compiled: " +
+					time(compiled::calcY) + " s, java: " + time(java) + " s");
+		}
+	}
+
+	/**
+	 * Prints the largest difference between a hardcoded function and a formula, and between
+	 * their derivatives.
+	 *
+	 * @param name the name of the hardcoded function
+	 * @param formula the same function as a formula
+	 */
+	public static void compare(String name, String formula) {
+		Derivative hand = new Derivative(-10, 10, 0.01, name);
+		Derivative compiled = new Derivative(-10, 10, 0.01, formula);
+		System.out.println(formula + ": function error " + maxError(compiled::calcY, hand::calcY) +
+				", derivative error " + maxError(compiled::calcYDeriv, hand::calcYDeriv));
+	}
+
+	/**
+	 * Prints the largest difference between the first derivative from Duals and the exact
+	 * derivative, and between the second derivative from Duals and the derivative of the exact
+	 * derivative, which is found with a three point stencil.
+	 *
+	 * @param name the name of the hardcoded function or a formula
+	 */
+	public static void compareDual(String name) {
+		Derivative d = new Derivative(-10, 10, 0.01, name);
+		double h = 1e-5;
+		System.out.println(name + ": dual derivative error " + maxError(x -> d.calcDual(x).deriv, d::calcYDeriv) +
+				", second derivative error " + maxError(x -> d.calcDual(x).deriv2,
+				x -> (d.calcYDeriv(x+h)-d.calcYDeriv(x-h))/(2*h)));
+	}
+
+	/**
+	 * Prints the largest difference between a formula and the same function written in Java.
+	 *
+	 * @param formula the formula
+	 * @param exp the function written in Java
+	 */
+	public static void check(String formula, DoubleUnaryOperator exp) {
+		System.out.println(formula + ": error " + maxError(Expression.parse(formula).compile(), exp));
+	}
+
+	/**
+	 * Calculates the largest relative difference between two functions from x=-10 to x=10.
+	 *
+	 * @param obs the observed function
+	 * @param exp the expected function
+	 * @return the largest relative difference
+	 */
+	public static double maxError(DoubleUnaryOperator obs, DoubleUnaryOperator exp) {
+		double max = 0;
+		for(double x=-10; x<=10; x+=0.01) {
+			double y = exp.applyAsDouble(x);
+			max = Math.max(max, Math.abs(obs.applyAsDouble(x)-y)/Math.max(1, Math.abs(y)));
+		}
+		return max;
+	}
+
+	/**
+	 * Times ten million evaluations of a function.
+	 *
+	 * @param f the function
+	 * @return the time in seconds
+	 */
+	public static double time(DoubleUnaryOperator f) {
+		long start = System.nanoTime();
+		double sum = 0;
+		for(int i=0; i<10000000; i++) {
+			sum += f.applyAsDouble(i*1e-6);
+		}
+		if(sum==42) {
+			System.out.println();
+		} //Uses the sum so the loop is not removed
+		return (System.nanoTime()-start)/1e9;
+	}
+
+}
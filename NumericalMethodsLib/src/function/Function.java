@@ -1,6 +1,11 @@
 package function;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
 
 /**
  * This class calculates the coordinate values for the gaussian, sinc, and polynomial 
@@ -9,21 +14,46 @@ import java.util.ArrayList;
  * and are stored in instance variables. The instance variable str defines the function 
  * (gaussian, sinc, or polynomial) that is going to be calculated.
  * 
+ * The str can also be a formula of x, like "x*exp(-x^2)", which is parsed by the Expression 
+ * class. The function is chosen once in the constructor, so calcY does not compare Strings. 
+ * The calcDual method gives the y value and the first two derivatives in one evaluation with 
+ * Duals. The gaussian and sinc functions have a Dual version with the same formula. calcOther 
+ * is meant to be edited by hand, so it does not have a second copy written with Duals, and its 
+ * derivatives come from calcOtherDual instead.
+ * 
+ * Large numbers of x values can be evaluated at once with the calcY methods that take arrays or 
+ * DoubleBuffers. These split the values into blocks that are evaluated in parallel on the 
+ * common fork-join pool, and the gaussian and sinc functions are written out inside the loop 
+ * so that there is no call for each x value. The results are the same as calling calcY on 
+ * each x value.
+ * 
+ * Solvers that calculate the same points many times can turn on a cache of y values with 
+ * setCache, which puts an EvaluationCache in front of calcY and a DualCache in front of calcDual. 
+ * The batch methods do not use the caches because they are not thread safe.
+ * 
  * @author Matthew Jin
  * @version 9/5/17
  */
 public class Function {
 
+	private static final int OTHER = 0, SINC = 1, GAUSSIAN = 2;
+	private static final int BLOCK = 1<<14;
+
 	protected double start;
 	protected double end;
 	protected double inc;
 	protected String str;
+	protected Expression expression;
+	protected DoubleUnaryOperator f;
+	protected UnaryOperator<Dual> fdual;
+	protected DualCache dualCache;
+	private int kind = OTHER;
 	
 	/**
 	 * Constructor for the Function class. It initializes the starting value, 
 	 * ending value, increment value, and str.
 	 * 
-	 * @precondition str is either "gaussian" or "sinc" or "polynomial"
+	 * @precondition str is either "gaussian" or "sinc" or "polynomial" or a formula of x
 	 * 
 	 * @param start the value of the leftmost x coordinate
 	 * @param end the value of the rightmost x coordinate
@@ -35,6 +65,33 @@ public class Function {
 		this.end = end;
 		this.inc = inc;
 		this.str = str;
+
+		if(str.equalsIgnoreCase("sinc")) {
+			f = this::calcSinc;
+			fdual = this::calcSinc;
+			kind = SINC;
+		} else if(str.equalsIgnoreCase("gaussian")) {
+			f = this::calcGaussian;
+			fdual = this::calcGaussian;
+			kind = GAUSSIAN;
+		} else if(isOther(str)) {
+			f = this::calcOther;
+			fdual = x -> calcOtherDual(x.value);
+		} else {
+			expression = Expression.parse(str);
+			f = expression.compile();
+			fdual = expression.compileDual();
+		}
+	}
+	
+	/**
+	 * Checks if the name of a function means the hardcoded calcOther function.
+	 * 
+	 * @param str the name of the function
+	 * @return true if str is empty, "other", or "polynomial"
+	 */
+	protected static boolean isOther(String str) {
+		return str.isEmpty() || str.equalsIgnoreCase("other") || str.equalsIgnoreCase("polynomial");
 	}
 	
 	/**
@@ -45,19 +102,17 @@ public class Function {
 	 * @return an ArrayList of Points containing the x and y coordinates of the function
 	 */
 	public ArrayList<Vector> calcFunc() {
-		ArrayList<Vector> func = new ArrayList<Vector>();
-		
-		for(double i=start; i<=end; i+=inc) {
-			if(str.equalsIgnoreCase("sinc")) {
-				func.add(new Vector(i, calcSinc(i)));
-			} else if(str.equalsIgnoreCase("gaussian")) {
-				func.add(new Vector(i, calcGaussian(i)));				
-			} else {
-				func.add(new Vector(i, calcOther(i)));
-			}
-		}
-		
-		return func;
+		return sample().toVectors();
+	}
+	
+	/**
+	 * Calculates the y values of the function on a uniform grid over the x domain 
+	 * (start <= x <= end, ∆x = inc) and stores them in a SampledFunction.
+	 * 
+	 * @return a SampledFunction containing the y values of the function
+	 */
+	public SampledFunction sample() {
+		return SampledFunction.uniform(start, end, inc).fill(f);
 	}
 	
 	/**
@@ -71,6 +126,16 @@ public class Function {
 		return Math.pow(Math.E, -Math.pow(x, 2));
 	}
 	
+	/**
+	 * Calculates the y value and the first two derivatives of the Gaussian function.
+	 * 
+	 * @param x the Dual of the x value
+	 * @return the Dual of the y value
+	 */
+	public Dual calcGaussian(Dual x) {
+		return x.mult(x).neg().exp();
+	}
+	
 	/**
 	 * Calculates the y value of the Sinc function by plugging the x value into a 
 	 * hardcoded math function.
@@ -85,6 +150,16 @@ public class Function {
 		return 1;
 	}
 	
+	/**
+	 * Calculates the y value and the first two derivatives of the Sinc function.
+	 * 
+	 * @param x the Dual of the x value
+	 * @return the Dual of the y value
+	 */
+	public Dual calcSinc(Dual x) {
+		return x.sinc();
+	}
+	
 	/**
 	 * Calculates the y value of a polynomial function by plugging the x value 
 	 * into a hardcoded math function
@@ -102,6 +177,18 @@ public class Function {
 //		return x*Math.pow(Math.E, -x);
 	}
 	
+	/**
+	 * Calculates the y value of the polynomial function with calcY, for calcDual. A Function 
+	 * does not know the derivatives of calcOther, so they are NaN. Derivative and its subclasses 
+	 * override this with their own derivatives of calcOther.
+	 * 
+	 * @param x the x value
+	 * @return a Dual containing the y value and NaN derivatives
+	 */
+	protected Dual calcOtherDual(double x) {
+		return new Dual(calcY(x), Double.NaN, Double.NaN);
+	}
+	
 	/**
 	 * Calculates the midpoint of two x values
 	 * 
@@ -123,20 +210,214 @@ public class Function {
 	public double calcSlope(Vector p1, Vector p2) { return (p2.y-p1.y)/(p2.x-p1.x); }
 	
 	/**
-	 * Calculates the y value of a function given a x value by calling the Function class's 
-	 * calcSinc(), calcGaussian(), and calcOther() methods.
+	 * Calculates the y value of a function given a x value by calling the function that was 
+	 * chosen in the constructor: calcSinc(), calcGaussian(), calcOther(), or the compiled formula.
 	 * 
 	 * @param x the x value
 	 * @return the y value corresponding to the x value in the function
 	 */
 	public double calcY(double x) {
-		if(str.equalsIgnoreCase("sinc")) {
-			return calcSinc(x);
-		} else if(str.equalsIgnoreCase("gaussian")) {
-			return calcGaussian(x);				
+		return f.applyAsDouble(x);
+	}
+	
+	/**
+	 * Calculates the y value and the first two derivatives of the function given a x value in 
+	 * one evaluation, with the Dual version of the function that was chosen in the constructor.
+	 * 
+	 * @param x the x value
+	 * @return a Dual containing the y value, the first derivative, and the second derivative
+	 */
+	public Dual calcDual(double x) {
+		if(dualCache!=null) {
+			return dualCache.apply(x);
+		}
+		return fdual.apply(Dual.variable(x));
+	}
+	
+	/**
+	 * Turns on caches of the y values calculated by calcY and the Duals calculated by calcDual, 
+	 * or turns them off. Each cache can hold capacity points. Setting a new capacity starts new, 
+	 * empty caches.
+	 * 
+	 * @param capacity the most points each cache remembers, or 0 to turn the caches off
+	 */
+	public void setCache(int capacity) {
+		f = capacity>0 ? new EvaluationCache(uncached(f), capacity) : uncached(f);
+		dualCache = capacity>0 ? new DualCache(x -> fdual.apply(Dual.variable(x)), capacity) : null;
+	}
+	
+	/**
+	 * Gets the cache of the y values calculated by calcY, which has the hit and miss counts.
+	 * 
+	 * @return the cache, or null if there is no cache
+	 */
+	public EvaluationCache getCache() {
+		return f instanceof EvaluationCache ? (EvaluationCache) f : null;
+	}
+	
+	/**
+	 * Gets the cache of the Duals calculated by calcDual, which has the hit and miss counts.
+	 * 
+	 * @return the cache, or null if there is no cache
+	 */
+	public DualCache getDualCache() {
+		return dualCache;
+	}
+	
+	/**
+	 * Gets the function inside a cache, so that it can be called from more than one thread.
+	 * 
+	 * @param g a function that may be an EvaluationCache
+	 * @return the function without the cache
+	 */
+	protected static DoubleUnaryOperator uncached(DoubleUnaryOperator g) {
+		return g instanceof EvaluationCache ? ((EvaluationCache) g).getFunction() : g;
+	}
+	
+	/**
+	 * Calculates the y values of the function for an array of x values. Arrays with more than 
+	 * a few thousand values are split into blocks that are calculated in parallel.
+	 * 
+	 * @precondition out is at least as long as xs
+	 * 
+	 * @param xs the x values
+	 * @param out the array the y values are stored in
+	 */
+	public void calcY(double[] xs, double[] out) {
+		calcY(xs, 0, out, 0, xs.length);
+	}
+	
+	/**
+	 * Calculates the y values of the function for the x values remaining in a buffer, and puts 
+	 * them into another buffer. The positions of both buffers are moved past the values, like 
+	 * the bulk get and put methods. Buffers that are backed by arrays are calculated like arrays. 
+	 * Direct and memory mapped buffers are copied in blocks, which are calculated in parallel.
+	 * 
+	 * @precondition out has at least as many values remaining as xs
+	 * 
+	 * @param xs the buffer of x values
+	 * @param out the buffer the y values are put into
+	 */
+	public void calcY(DoubleBuffer xs, DoubleBuffer out) {
+		int n = xs.remaining();
+		if(out.remaining()<n) {
+			throw new IllegalArgumentException("The output buffer has " + out.remaining() + 
+					" values remaining for " + n + " x values");
+		}
+		
+		if(xs.hasArray() && out.hasArray() && !out.isReadOnly()) {
+			calcY(xs.array(), xs.arrayOffset()+xs.position(), out.array(), out.arrayOffset()+out.position(), n);
+		} else {
+			ForkJoinPool.commonPool().invoke(new BufferTask(xs, xs.position(), out, out.position(), n));
+		}
+		xs.position(xs.position()+n);
+		out.position(out.position()+n);
+	}
+	
+	/**
+	 * Calculates the y values of n x values from an array, in parallel if there are enough.
+	 * 
+	 * @param xs the x values
+	 * @param xoff the index of the first x value
+	 * @param out the array the y values are stored in
+	 * @param ooff the index the first y value is stored at
+	 * @param n the number of values
+	 */
+	private void calcY(double[] xs, int xoff, double[] out, int ooff, int n) {
+		if(n<=BLOCK) {
+			calcBlock(xs, xoff, out, ooff, n);
+		} else {
+			ForkJoinPool.commonPool().invoke(new ArrayTask(xs, xoff, out, ooff, n));
+		}
+	}
+	
+	/**
+	 * Calculates the y values of one block of x values. The gaussian and sinc functions use 
+	 * the same formulas as calcGaussian and calcSinc written out in the loop; any other 
+	 * function is called once for each x value.
+	 * 
+	 * @param xs the x values
+	 * @param xoff the index of the first x value
+	 * @param out the array the y values are stored in
+	 * @param ooff the index the first y value is stored at
+	 * @param n the number of values
+	 */
+	private void calcBlock(double[] xs, int xoff, double[] out, int ooff, int n) {
+		if(kind==GAUSSIAN) {
+			for(int i=0; i<n; i++) {
+				double x = xs[xoff+i];
+				out[ooff+i] = Math.pow(Math.E, -(x*x));
+			}
+		} else if(kind==SINC) {
+			for(int i=0; i<n; i++) {
+				double x = xs[xoff+i];
+				out[ooff+i] = x!=0 ? Math.sin(x)/x : 1;
+			}
 		} else {
-			return calcOther(x);
+			DoubleUnaryOperator g = uncached(f);
+			for(int i=0; i<n; i++) {
+				out[ooff+i] = g.applyAsDouble(xs[xoff+i]);
+			}
+		}
+	}
+	
+	/**
+	 * The ArrayTask class splits a range of an array in half until the pieces are one block long, 
+	 * and calculates the blocks in parallel.
+	 */
+	private class ArrayTask extends RecursiveAction {
+		
+		private double[] xs, out;
+		private int xoff, ooff, n;
+		
+		private ArrayTask(double[] xs, int xoff, double[] out, int ooff, int n) {
+			this.xs = xs; this.xoff = xoff;
+			this.out = out; this.ooff = ooff;
+			this.n = n;
 		}
+		
+		protected void compute() {
+			if(n<=BLOCK) {
+				calcBlock(xs, xoff, out, ooff, n);
+			} else {
+				int half = n/2;
+				invokeAll(new ArrayTask(xs, xoff, out, ooff, half), 
+						new ArrayTask(xs, xoff+half, out, ooff+half, n-half));
+			}
+		}
+		
+	}
+	
+	/**
+	 * The BufferTask class splits a range of a buffer in half until the pieces are one block long. 
+	 * Each block is copied into an array with the absolute bulk get method, calculated, and 
+	 * copied back with the absolute bulk put method, which do not change the positions of the 
+	 * buffers, so the blocks can be done in parallel.
+	 */
+	private class BufferTask extends RecursiveAction {
+		
+		private DoubleBuffer xs, out;
+		private int xoff, ooff, n;
+		
+		private BufferTask(DoubleBuffer xs, int xoff, DoubleBuffer out, int ooff, int n) {
+			this.xs = xs; this.xoff = xoff;
+			this.out = out; this.ooff = ooff;
+			this.n = n;
+		}
+		
+		protected void compute() {
+			if(n<=BLOCK) {
+				double[] block = new double[n];
+				xs.get(xoff, block);
+				calcBlock(block, 0, block, 0, n);
+				out.put(ooff, block);
+			} else {
+				int half = n/2;
+				invokeAll(new BufferTask(xs, xoff, out, ooff, half), 
+						new BufferTask(xs, xoff+half, out, ooff+half, n-half));
+			}
+		}
+		
 	}
 	
 }
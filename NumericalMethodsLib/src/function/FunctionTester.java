@@ -0,0 +1,213 @@
+package function;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+
+import extrema.Min;
+import zeros.Bisection;
+import zeros.NewtonsMethod;
+
+/**
+ * This class tests the batch calcY methods of the Function class by checking that they give
+ * exactly the same y values as calling calcY on each x value, for arrays, buffers backed by
+ * arrays, and direct buffers. It also times the batch methods against the loop over calcY. The
+ * results are printed out for evaluation.
+ *
+ * It also checks that the EvaluationCache gives the same y values as the function it caches,
+ * even after points are removed, and prints how many calculations the caches save for the
+ * Bisection, NewtonsMethod, and Min classes. NewtonsMethod and Min are run with and without the
+ * caches to check that the caches do not change their results.
+ *
+ * @author Matthew Jin
+ * @version 8/14/2018
+ */
+public class FunctionTester {
+
+	/**
+	 * The main method checks the gaussian, sinc, and a formula with small and large inputs, and
+	 * prints the time of each way of evaluating ten million x values. Then it checks caches of
+	 * different sizes and runs Bisection, NewtonsMethod, and Min with caches.
+	 */
+	public static void main(String[] args) {
+		String[] names = {"gaussian", "sinc", "x*exp(-x^2)"};
+		for(String name : names) {
+			Function f = new Function(-10, 10, 0.001, name);
+			for(int n : new int[] {0, 1, 1000, 100003}) {
+				System.out.println(name + ", " + n + " values: array " + compareArray(f, n) +
+						", heap buffer " + compareBuffer(f, n, false) +
+						", direct buffer " + compareBuffer(f, n, true));
+			}
+		}
+
+		for(String name : names) {
+			Function f = new Function(-10, 10, 0.001, name);
+			for(int i=0; i<3; i++) {
+				System.out.println(name + ": loop " + timeLoop(f) + " s, batch " + timeBatch(f) + " s");
+			}
+		}
+
+		for(int capacity : new int[] {1, 7, 100, 5000}) {
+			System.out.println("capacity " + capacity + ": " + compareCache(capacity) + " wrong");
+		}
+
+		Bisection b = new Bisection("x^3-2*x-5");
+		System.out.println("Bisection zero: " + b.findZero(0, 1, 1000));
+		b.setCache(256);
+		System.out.println("Bisection zero with cache: " + b.findZero(0, 1, 1000) + ", calcY " +
+				b.getCache() + ", calcYDeriv " + b.getDerivCache());
+
+		NewtonsMethod nm = new NewtonsMethod("x^3-2*x-5");
+		ArrayList<Double> zero = nm.findZero(1, 1000);
+		nm.setCache(64);
+		System.out.println("Newton zero: " + zero + ", same with cache: " + 
+				(zero.equals(nm.findZero(1, 1000)) && zero.equals(nm.findZero(1, 1000))) + 
+				", calcDual " + nm.getDualCache());
+
+		for(String name : new String[] {"x^4-3*x^2+x", "other"}) {
+			Min m = new Min(name);
+			ArrayList<Double> min = m.findExtrema(-2, 0.1, 100);
+			m.setCache(64);
+			System.out.println("Min of " + name + ": " + min + ", same with cache: " + 
+					(min.equals(m.findExtrema(-2, 0.1, 100)) && min.equals(m.findExtrema(-2, 0.1, 100))) + 
+					", calcDual " + m.getDualCache() + ", calcY " + m.getCache());
+		}
+	}
+
+	/**
+	 * Calls a cache with random x values that repeat, so that the cache has hits and has to remove
+	 * points, and counts the y values that are not exactly equal to the function's. Also checks
+	 * that the cache is never over capacity and that the hits and misses add up to the calls.
+	 *
+	 * @param capacity the capacity of the cache
+	 * @return the number of wrong y values, or -1 if the size or the counts are wrong
+	 */
+	public static int compareCache(int capacity) {
+		Function f = new Function(-10, 10, 0.001, "sinc");
+		f.setCache(capacity);
+		EvaluationCache cache = f.getCache();
+		Random random = new Random(24);
+		int wrong = 0, calls = 200000;
+		for(int i=0; i<calls; i++) {
+			double x = (random.nextInt(2*capacity+10)-capacity)*0.37;
+			if(Double.doubleToLongBits(f.calcY(x))!=Double.doubleToLongBits(f.calcSinc(x))) {
+				wrong++;
+			}
+			if(cache.size()>capacity) {
+				return -1;
+			}
+		}
+		if(cache.getHits()+cache.getMisses()!=calls) {
+			return -1;
+		}
+		System.out.print(cache + ", ");
+		return wrong;
+	}
+
+	/**
+	 * Creates n x values spread from -10 to 10, including x=0.
+	 *
+	 * @param n the number of x values
+	 * @return the x values
+	 */
+	public static double[] grid(int n) {
+		double[] xs = new double[n];
+		for(int i=0; i<n; i++) {
+			xs[i] = -10 + 20.0*i/n;
+		}
+		if(n>0) {
+			xs[n/2] = 0;
+		}
+		return xs;
+	}
+
+	/**
+	 * Counts the y values from the array calcY that are not exactly equal to calcY of each x value.
+	 *
+	 * @param f the function
+	 * @param n the number of x values
+	 * @return the number of different y values
+	 */
+	public static int compareArray(Function f, int n) {
+		double[] xs = grid(n), out = new double[n];
+		f.calcY(xs, out);
+		return count(f, xs, out);
+	}
+
+	/**
+	 * Counts the y values from the buffer calcY that are not exactly equal to calcY of each x
+	 * value, and checks that the positions of the buffers are moved past the values. The buffers
+	 * start at position 3 so the offsets are tested.
+	 *
+	 * @param f the function
+	 * @param n the number of x values
+	 * @param direct true to use direct buffers, false for buffers backed by arrays
+	 * @return the number of different y values, or -1 if the positions are wrong
+	 */
+	public static int compareBuffer(Function f, int n, boolean direct) {
+		double[] xs = grid(n);
+		DoubleBuffer in = direct ? ByteBuffer.allocateDirect(8*(n+3)).asDoubleBuffer() : DoubleBuffer.allocate(n+3);
+		DoubleBuffer out = direct ? ByteBuffer.allocateDirect(8*(n+3)).asDoubleBuffer() : DoubleBuffer.allocate(n+3);
+		in.position(3);
+		in.put(xs);
+		in.position(3);
+		out.position(3);
+
+		f.calcY(in, out);
+		if(in.position()!=n+3 || out.position()!=n+3) {
+			return -1;
+		}
+
+		double[] ys = new double[n];
+		out.get(3, ys);
+		return count(f, xs, ys);
+	}
+
+	/**
+	 * Counts the y values that are not exactly equal to calcY of their x values.
+	 *
+	 * @param f the function
+	 * @param xs the x values
+	 * @param ys the y values
+	 * @return the number of different y values
+	 */
+	public static int count(Function f, double[] xs, double[] ys) {
+		int wrong = 0;
+		for(int i=0; i<xs.length; i++) {
+			if(Double.doubleToLongBits(ys[i])!=Double.doubleToLongBits(f.calcY(xs[i]))) {
+				wrong++;
+			}
+		}
+		return wrong;
+	}
+
+	/**
+	 * Times ten million calls to calcY in a loop.
+	 *
+	 * @param f the function
+	 * @return the time in seconds
+	 */
+	public static double timeLoop(Function f) {
+		double[] xs = grid(10000000), out = new double[xs.length];
+		long start = System.nanoTime();
+		for(int i=0; i<xs.length; i++) {
+			out[i] = f.calcY(xs[i]);
+		}
+		return (System.nanoTime()-start)/1e9;
+	}
+
+	/**
+	 * Times one call to the array calcY with ten million x values.
+	 *
+	 * @param f the function
+	 * @return the time in seconds
+	 */
+	public static double timeBatch(Function f) {
+		double[] xs = grid(10000000), out = new double[xs.length];
+		long start = System.nanoTime();
+		f.calcY(xs, out);
+		return (System.nanoTime()-start)/1e9;
+	}
+
+}
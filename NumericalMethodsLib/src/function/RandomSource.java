@@ -0,0 +1,110 @@
+package function;
+
+import java.util.SplittableRandom;
+
+/**
+ * The RandomSource class generates random numbers from a seed, so that a run can be repeated
+ * exactly by using the same seed. It is backed by a SplittableRandom, so it does not share a
+ * generator with other threads like Math.random does, and each thread should use its own
+ * RandomSource.
+ *
+ * To generate random values in parallel, split the work into blocks of a fixed size and give
+ * each block the RandomSource from forBlock. The numbers for a block only depend on the seed and
+ * the index of the block, so the results are the same no matter how many threads are used or
+ * which thread runs which block.
+ *
+ * @author Matthew Jin
+ * @version 6/26/2018
+ */
+public class RandomSource
+{
+
+	private SplittableRandom random;
+
+	/**
+	 * Constructor for the RandomSource class which uses a seed.
+	 *
+	 * @param seed the seed
+	 */
+	public RandomSource(long seed)
+	{
+		random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Constructor for the RandomSource class which uses a different seed every time.
+	 */
+	public RandomSource()
+	{
+		random = new SplittableRandom();
+	}
+
+	/**
+	 * Constructor for the RandomSource class which uses an existing generator.
+	 *
+	 * @param random the generator
+	 */
+	private RandomSource(SplittableRandom random)
+	{
+		this.random = random;
+	}
+
+	/**
+	 * Creates the RandomSource for one block of a parallel calculation. The seed and the index
+	 * of the block are mixed together, so that nearby blocks do not get overlapping sequences.
+	 *
+	 * @param seed the seed of the whole calculation
+	 * @param block the index of the block
+	 * @return the RandomSource for the block
+	 */
+	public static RandomSource forBlock(long seed, long block)
+	{
+		return new RandomSource(mix(seed ^ mix(block+1)));
+	}
+
+	/**
+	 * Gets a random double between 0 (inclusive) and 1 (exclusive)
+	 *
+	 * @return the random number
+	 */
+	public double nextDouble()
+	{
+		return random.nextDouble();
+	}
+
+	/**
+	 * Gets a random long
+	 *
+	 * @return the random number
+	 */
+	public long nextLong()
+	{
+		return random.nextLong();
+	}
+
+	/**
+	 * Creates a new RandomSource with its own sequence, which can be given to another thread.
+	 * This RandomSource moves forward, so the result depends on how many times it was split.
+	 *
+	 * @return the new RandomSource
+	 */
+	public RandomSource split()
+	{
+		return new RandomSource(random.split());
+	}
+
+	/**
+	 * Mixes the bits of a long with the finalizer of the MurmurHash3 hash function, so that
+	 * close inputs give very different outputs.
+	 *
+	 * @param z the value
+	 * @return the mixed value
+	 */
+	private static long mix(long z)
+	{
+		z = (z ^ (z>>>33))*0xFF51AFD7ED558CCDL;
+		z = (z ^ (z>>>33))*0xC4CEB9FE1A85EC53L;
+		return z ^ (z>>>33);
+	}
+
+}
@@ -0,0 +1,187 @@
+package function;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The SampledFunction class stores the y values of a function at a list of x values in a double
+ * array, instead of an ArrayList of Vectors. A Vector takes about 40 bytes for each point plus
+ * the reference in the list, while a uniform grid only stores the 8 bytes of the y value.
+ *
+ * The x values are either a uniform grid, where the x value of sample i is start+i*inc, or an
+ * explicit array of x values. The uniform x values are calculated from the index, so they do not
+ * drift like adding inc over and over does. Loops over the samples only read the y array, so the
+ * JIT compiler can turn them into SIMD instructions.
+ *
+ * @author Matthew Jin
+ * @version 8/7/2018
+ */
+public class SampledFunction {
+
+	private final double start;
+	private final double inc;
+	private final double[] x;
+	private final double[] y;
+
+	/**
+	 * Constructor for a SampledFunction with a uniform grid of x values. The y values start as
+	 * zero.
+	 *
+	 * @param start the x value of the first sample
+	 * @param inc the difference between each x value
+	 * @param size the number of samples
+	 */
+	public SampledFunction(double start, double inc, int size) {
+		this.start = start;
+		this.inc = inc;
+		this.x = null;
+		this.y = new double[size];
+	}
+
+	/**
+	 * Constructor for a SampledFunction with an explicit list of x values. The arrays are used
+	 * directly, not copied.
+	 *
+	 * @precondition x and y have the same length
+	 *
+	 * @param x the x values
+	 * @param y the y values
+	 */
+	public SampledFunction(double[] x, double[] y) {
+		this.start = x.length>0 ? x[0] : 0;
+		this.inc = 0;
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Constructor for a SampledFunction with a uniform grid and existing y values.
+	 *
+	 * @param start the x value of the first sample
+	 * @param inc the difference between each x value
+	 * @param y the y values, which are used directly
+	 */
+	private SampledFunction(double start, double inc, double[] y) {
+		this.start = start;
+		this.inc = inc;
+		this.x = null;
+		this.y = y;
+	}
+
+	/**
+	 * Creates a uniform grid from start to end, including end if it is on the grid. This has the
+	 * same x values as the loop for(double x=start; x<=end; x+=inc), without the rounding errors
+	 * that build up from adding inc.
+	 *
+	 * @param start the value of the leftmost x coordinate
+	 * @param end the value of the rightmost x coordinate
+	 * @param inc the difference between each x coordinate
+	 * @return the grid, with all of the y values equal to zero
+	 */
+	public static SampledFunction uniform(double start, double end, double inc) {
+		int size = (int) Math.floor((end-start)/inc + 1e-9) + 1;
+		return new SampledFunction(start, inc, Math.max(0, size));
+	}
+
+	/**
+	 * Gets the number of samples
+	 *
+	 * @return the number of samples
+	 */
+	public int size() { return y.length; }
+
+	/**
+	 * Checks if the x values are a uniform grid
+	 *
+	 * @return true if the x value of sample i is start+i*inc
+	 */
+	public boolean isUniform() { return x==null; }
+
+	/**
+	 * Gets the difference between each x value of a uniform grid
+	 *
+	 * @return the increment, or 0 for an explicit list of x values
+	 */
+	public double getInc() { return inc; }
+
+	/**
+	 * Gets the x value of a sample
+	 *
+	 * @param i the index of the sample
+	 * @return the x value
+	 */
+	public double getX(int i) { return x==null ? start+i*inc : x[i]; }
+
+	/**
+	 * Gets the y value of a sample
+	 *
+	 * @param i the index of the sample
+	 * @return the y value
+	 */
+	public double getY(int i) { return y[i]; }
+
+	/**
+	 * Gets the array of y values. Changing the array changes this SampledFunction.
+	 *
+	 * @return the y values
+	 */
+	public double[] getY() { return y; }
+
+	/**
+	 * Sets the y value of every sample to a function of its x value.
+	 *
+	 * @param f the function
+	 * @return this SampledFunction
+	 */
+	public SampledFunction fill(DoubleUnaryOperator f) {
+		for(int i=0; i<y.length; i++) {
+			y[i] = f.applyAsDouble(getX(i));
+		}
+		return this;
+	}
+
+	/**
+	 * Creates a new SampledFunction with the same x values and a function applied to each y value.
+	 *
+	 * @param f the function applied to the y values
+	 * @return the new SampledFunction
+	 */
+	public SampledFunction map(DoubleUnaryOperator f) {
+		double[] mapped = new double[y.length];
+		for(int i=0; i<y.length; i++) {
+			mapped[i] = f.applyAsDouble(y[i]);
+		}
+		return x==null ? new SampledFunction(start, inc, mapped) : new SampledFunction(x, mapped);
+	}
+
+	/**
+	 * Copies the samples from index from up to but not including index to into a new
+	 * SampledFunction. A uniform grid stays uniform.
+	 *
+	 * @param from the index of the first sample
+	 * @param to one more than the index of the last sample
+	 * @return the new SampledFunction
+	 */
+	public SampledFunction slice(int from, int to) {
+		double[] part = Arrays.copyOfRange(y, from, to);
+		if(x==null) {
+			return new SampledFunction(start+from*inc, inc, part);
+		}
+		return new SampledFunction(Arrays.copyOfRange(x, from, to), part);
+	}
+
+	/**
+	 * Copies the samples into an ArrayList of Vectors, for the methods that still use lists.
+	 *
+	 * @return an ArrayList of Vectors containing the x and y values
+	 */
+	public ArrayList<Vector> toVectors() {
+		ArrayList<Vector> list = new ArrayList<Vector>(y.length);
+		for(int i=0; i<y.length; i++) {
+			list.add(new Vector(getX(i), y[i]));
+		}
+		return list;
+	}
+
+}
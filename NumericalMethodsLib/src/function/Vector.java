@@ -94,6 +94,21 @@ public class Vector
 		z = Math.random()*max + min;
 	}
 	
+	/**
+	 * Sets the x, y, and z values to random values in the same way as the other random method, 
+	 * using a RandomSource instead of Math.random so that the values can be repeated.
+	 * 
+	 * @param min the minimum of the x, y, and z values
+	 * @param max the maximum of the x, y, and z values
+	 * @param random the source of the random numbers
+	 */
+	public void random(double min, double max, RandomSource random)
+	{
+		x = random.nextDouble()*max + min;
+		y = random.nextDouble()*max + min;
+		z = random.nextDouble()*max + min;
+	}
+	
 	/**
 	 * Calculates the magnitude of a vector by taking the square root of the sum of the squares 
 	 * of each component.
@@ -1,6 +1,7 @@
 package leastsquares;
 
 import java.util.ArrayList;
+import java.util.function.DoubleUnaryOperator;
 
 import function.Function;
 import function.Vector;
@@ -11,6 +12,11 @@ import function.Vector;
  * function. LeastSquares extends the Function class because the fit function is used to 
  * manipulate the parameters of a function to match a data set. 
  * 
+ * The fit function can be hardcoded in calcY, or it can be a formula of x and the parameters 
+ * p0, p1, p2, and so on, like "p0^2*exp(-(x-p1)^2/p2^2)+p3^2". The formula is compiled once 
+ * with an array of parameter values, and the values are copied into the array before the 
+ * formula is evaluated over the data set.
+ * 
  * @author Matthew Jin
  * @version 10/31/17
  */
@@ -18,6 +24,8 @@ public class LeastSquares extends Function {
 
 	private ArrayList<Vector> points;
 	private int numparams;
+	private double[] values;
+	private DoubleUnaryOperator model;
 
 	private static double MIN = Math.pow(10, -10);
 
@@ -37,6 +45,28 @@ public class LeastSquares extends Function {
 		this.points = points;
 	}
 
+	/**
+	 * Constructor for the LeastSquares class which fits a formula. The number of parameters is 
+	 * the number of parameters used in the formula.
+	 * 
+	 * @param inc the increment used to calculate the derivative of the error with respect to a 
+	 * parameter
+	 * @param points the number of data points
+	 * @param str the formula of x and the parameters p0, p1, p2, and so on
+	 * @throws IllegalArgumentException if str is the name of a hardcoded function instead of a 
+	 * formula
+	 */
+	public LeastSquares(double inc, ArrayList<Vector> points, String str) {
+		super(0, 0, inc, str);
+		if(expression==null) {
+			throw new IllegalArgumentException("\"" + str + "\" is not a formula with parameters");
+		}
+		this.numparams = expression.getParameters();
+		this.points = points;
+		values = new double[numparams];
+		model = expression.compile(values);
+	}
+
 	/**
 	 * Calculates the parameters for a function that would fit the input data set. The method used 
 	 * to calculate the parameters is the steepest descent method. The function first initializes 
@@ -94,12 +124,32 @@ public class LeastSquares extends Function {
 	 */
 	public double calcError(ArrayList<Double> params) {
 		double error = 0;
+		if(model!=null) {
+			setValues(params);
+			for(int i=0; i<points.size(); i++) {
+				double d = points.get(i).y-model.applyAsDouble(points.get(i).x);
+				error += d*d;
+			}
+			return error/2;
+		} //Copies the parameters once for the whole data set
+
 		for(int i=0; i<points.size(); i++) {
 			double x = points.get(i).x, y = points.get(i).y;
 			error += Math.pow(y-calcY(x, params), 2);
 		}
 		return error/2;
 	}
+
+	/**
+	 * Copies the parameters into the array that the compiled formula reads.
+	 * 
+	 * @param params an ArrayList of parameters
+	 */
+	private void setValues(ArrayList<Double> params) {
+		for(int i=0; i<numparams; i++) {
+			values[i] = params.get(i);
+		}
+	}
 	
 	/**
 	 * Calculates the derivative of the error function with respect to a parameter using the five 
@@ -146,13 +196,19 @@ public class LeastSquares extends Function {
 	}
 
 	/**
-	 * Calculates the y value of the fit function given a set of parameters and an x value. 
+	 * Calculates the y value of the fit function given a set of parameters and an x value. If 
+	 * the function is a formula, the compiled formula is used; otherwise the hardcoded function is 
+	 * used.
 	 * 
 	 * @param x the x value of the function
 	 * @param params the list of parameters for the function
 	 * @return the y value of the function given the x value and the parameters
 	 */
 	public double calcY(double x, ArrayList<Double> params) {
+		if(model!=null) {
+			setValues(params);
+			return model.applyAsDouble(x);
+		}
 //		double y = 0;
 //		for(int i=0; i<params.size(); i++) {
 //			y += params.get(i)*Math.pow(x, i);
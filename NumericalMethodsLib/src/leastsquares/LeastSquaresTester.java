@@ -26,7 +26,8 @@ public class LeastSquaresTester {
 	 * the first two doubles are the maximum number of iterations and the initial value of the 
 	 * parameters respectively. In order to test the LeastSquares class, it will call the fit 
 	 * function over a set of data and print out the parameters for the function. It will also 
-	 * print out the error of the fit to the given data set.
+	 * print out the error of the fit to the given data set, and then fit the same function written 
+	 * as a formula.
 	 */
 	public static void main(String[] args) throws IOException {
 
@@ -52,6 +53,12 @@ public class LeastSquaresTester {
 		System.out.println("PARAMETERS: " + params);
 		System.out.println("ERROR: " + ls.calcError(params));
 
+		LeastSquares formula = new LeastSquares(0.01, points, "p0^2*exp(-(x-p1)^2/p2^2)+p3^2");
+		params = formula.fit(maxiters, initparam);
+
+		System.out.println("FORMULA PARAMETERS: " + params);
+		System.out.println("FORMULA ERROR: " + formula.calcError(params));
+
 //		for(int i=1; i<=41; i++) {
 //			System.out.println(i + "\t" + ls.calcY(i, params));
 //		}
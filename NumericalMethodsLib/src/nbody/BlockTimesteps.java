@@ -0,0 +1,335 @@
+package nbody;
+
+/**
+ * The BlockTimesteps class moves the bodies with individual time steps, so that bodies in a close
+ * encounter can take small steps while the rest of the bodies take large steps. Each body's time
+ * step is the global time step divided by a power of two, chosen from its acceleration a and its
+ * jerk j (the rate of change of the acceleration) as the largest block step that is at most
+ * eta*|a|/|j|, where eta is the accuracy parameter. Because the steps are powers of two, the bodies
+ * are grouped into blocks that are all updated at the same time.
+ *
+ * The bodies are moved with the fourth order Hermite predictor-corrector method. At every block
+ * time, the positions and velocities of all the bodies are predicted with a Taylor series using
+ * their acceleration and jerk. Then the acceleration and jerk of only the bodies in the block are
+ * calculated from the predicted values of every other body, and their positions and velocities
+ * are corrected. A body on a long, slow orbit is only calculated a few times per global step, and
+ * a tight binary is calculated many times.
+ *
+ * The Hermite method needs the jerk as well as the acceleration, so this integrator calculates
+ * the direct sum itself and does not use the force engine that is passed to step. It keeps arrays
+ * for every body, so it only works on a BodySystem. All of the
+ * bodies are at the same time again at the end of every call to step, so the times of the bodies
+ * are counted in ticks from the start of the current global step and never grow past 2^levels.
+ * The accelerations and jerks are recalculated whenever the integrator is given a different
+ * system, the number of bodies changes, or the system was modified by a collision or by another
+ * class.
+ *
+ * See J. Makino and S. Aarseth, "On a Hermite integrator with Ahmad-Cohen scheme for
+ * gravitational many-body problems" (1992) for more information.
+ *
+ * @author Matthew Jin
+ * @version 5/8/2018
+ */
+public class BlockTimesteps implements Integrator
+{
+
+    private double eta;
+    private int levels;
+
+    private BodySystem last;
+    private long modifications;
+    private long ticks;
+    private long[] t0 = new long[0], dtb = new long[0];
+    private double[] jx, jy, jz;
+    private double[] xp, yp, zp, vxp, vyp, vzp;
+    private double ax, ay, az, fx, fy, fz;
+
+    private long bodySteps, blockSteps, sharedSteps, interactions;
+    private long smallest;
+
+    /**
+     * Constructor for the BlockTimesteps class which sets the accuracy parameter and the number of
+     * levels.
+     *
+     * @param eta the accuracy parameter, usually around 0.01 to 0.03
+     * @param levels the number of times the global time step can be halved
+     */
+    public BlockTimesteps(double eta, int levels)
+    {
+        this.eta = eta;
+        this.levels = Math.max(0, Math.min(levels, 40));
+    }
+
+    /**
+     * Moves the system forward by one global time step. The bodies are moved in blocks until all
+     * of them have reached the end of the global step.
+     *
+     * @param columns the system of bodies, which has to be a BodySystem
+     * @param engine not used, because the Hermite method needs the jerk from its own direct sum
+     * @param dt the global time step in seconds
+     * @throws UnsupportedOperationException if the system is not a BodySystem
+     */
+    public void step(BodyColumns columns, ForceEngine engine, double dt)
+    {
+        if(!(columns instanceof BodySystem))
+        {
+            throw new UnsupportedOperationException("The block time steps only work on a BodySystem");
+        } //The predicted positions and the jerks are kept in arrays for every body
+        BodySystem s = (BodySystem) columns;
+        int n = s.size();
+        long max = 1L<<levels;
+        double tick = dt/max;
+
+        if(s!=last || t0.length!=n || s.getModifications()!=modifications)
+        {
+            start(s, tick);
+        }
+        ticks = 0;
+
+        smallest = max;
+        for(int i=0; i<n; i++)
+        {
+            smallest = Math.min(smallest, dtb[i]);
+        }
+
+        long end = ticks+max;
+        while(ticks<end)
+        {
+            long next = Long.MAX_VALUE;
+            for(int i=0; i<n; i++)
+            {
+                next = Math.min(next, t0[i]+dtb[i]);
+            } //Finds the time of the next block
+
+            predict(s, next, tick);
+
+            for(int i=0; i<n; i++)
+            {
+                if(t0[i]+dtb[i]==next)
+                {
+                    correct(s, i, dtb[i]*tick);
+                    t0[i] = next;
+                    dtb[i] = nextStep(s, i, dtb[i], next, tick);
+                    bodySteps++;
+                }
+            } //Moves the bodies in the block
+
+            ticks = next;
+            blockSteps++;
+        }
+
+        for(int i=0; i<n; i++)
+        {
+            t0[i] = 0;
+        } //Every body is at the end of the global step, which is the start of the next one
+        sharedSteps += (long) n*(max/smallest);
+    }
+
+    /**
+     * Gets the number of force calculations per global step. The real number changes from step to
+     * step, so this always returns one; see getBlockSteps and getInteractions for the real
+     * numbers.
+     *
+     * @return the number of force calculations per step
+     */
+    public int getForcePasses()
+    {
+        return 1;
+    }
+
+    /**
+     * Gets the number of times a single body has been moved
+     *
+     * @return the number of body steps
+     */
+    public long getBodySteps()
+    {
+        return bodySteps;
+    }
+
+    /**
+     * Gets the number of blocks that have been moved
+     *
+     * @return the number of block steps
+     */
+    public long getBlockSteps()
+    {
+        return blockSteps;
+    }
+
+    /**
+     * Gets the number of body steps that would have been needed if every body used the smallest
+     * time step that was used during each global step
+     *
+     * @return the number of body steps with a shared time step
+     */
+    public long getSharedSteps()
+    {
+        return sharedSteps;
+    }
+
+    /**
+     * Gets the number of pair interactions that have been calculated
+     *
+     * @return the number of interactions
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+    /**
+     * Gets a line with the step and force statistics
+     *
+     * @return the statistics
+     */
+    public String getStatistics()
+    {
+        return "body steps " + bodySteps + ", block steps " + blockSteps + ", shared time step body steps "
+                + sharedSteps + ", pair interactions " + interactions;
+    }
+
+    /**
+     * Calculates the acceleration and jerk of every body and chooses their first time steps.
+     *
+     * @param s the system of bodies
+     * @param tick the length of the smallest possible time step in seconds
+     */
+    private void start(BodySystem s, double tick)
+    {
+        int n = s.size();
+        last = s;
+        modifications = s.getModifications();
+        ticks = 0;
+        t0 = new long[n]; dtb = new long[n];
+        jx = new double[n]; jy = new double[n]; jz = new double[n];
+        xp = new double[n]; yp = new double[n]; zp = new double[n];
+        vxp = new double[n]; vyp = new double[n]; vzp = new double[n];
+
+        System.arraycopy(s.x, 0, xp, 0, n); System.arraycopy(s.y, 0, yp, 0, n); System.arraycopy(s.z, 0, zp, 0, n);
+        System.arraycopy(s.vx, 0, vxp, 0, n); System.arraycopy(s.vy, 0, vyp, 0, n); System.arraycopy(s.vz, 0, vzp, 0, n);
+
+        long max = 1L<<levels;
+        smallest = max;
+        for(int i=0; i<n; i++)
+        {
+            force(s, i);
+            s.ax[i] = ax; s.ay[i] = ay; s.az[i] = az;
+            jx[i] = fx; jy[i] = fy; jz[i] = fz;
+            dtb[i] = max;
+            dtb[i] = nextStep(s, i, max, 0, tick);
+        }
+    }
+
+    /**
+     * Predicts the position and velocity of every body at a time with a Taylor series.
+     *
+     * @param s the system of bodies
+     * @param time the time in ticks
+     * @param tick the length of one tick in seconds
+     */
+    private void predict(BodySystem s, long time, double tick)
+    {
+        for(int i=0; i<s.size(); i++)
+        {
+            double t = (time-t0[i])*tick, t2 = t*t/2, t3 = t*t2/3;
+            xp[i] = s.x[i] + s.vx[i]*t + s.ax[i]*t2 + jx[i]*t3;
+            yp[i] = s.y[i] + s.vy[i]*t + s.ay[i]*t2 + jy[i]*t3;
+            zp[i] = s.z[i] + s.vz[i]*t + s.az[i]*t2 + jz[i]*t3;
+            vxp[i] = s.vx[i] + s.ax[i]*t + jx[i]*t2;
+            vyp[i] = s.vy[i] + s.ay[i]*t + jy[i]*t2;
+            vzp[i] = s.vz[i] + s.az[i]*t + jz[i]*t2;
+        }
+    }
+
+    /**
+     * Calculates the new acceleration and jerk of a body from the predicted values, and corrects
+     * its position and velocity with the Hermite corrector.
+     *
+     * @param s the system of bodies
+     * @param i the index of the body
+     * @param dt the time step of the body in seconds
+     */
+    private void correct(BodySystem s, int i, double dt)
+    {
+        force(s, i);
+
+        double dt2 = dt*dt/12;
+        double vx1 = s.vx[i] + (s.ax[i]+ax)*dt/2 + (jx[i]-fx)*dt2;
+        double vy1 = s.vy[i] + (s.ay[i]+ay)*dt/2 + (jy[i]-fy)*dt2;
+        double vz1 = s.vz[i] + (s.az[i]+az)*dt/2 + (jz[i]-fz)*dt2;
+
+        s.x[i] += (s.vx[i]+vx1)*dt/2 + (s.ax[i]-ax)*dt2;
+        s.y[i] += (s.vy[i]+vy1)*dt/2 + (s.ay[i]-ay)*dt2;
+        s.z[i] += (s.vz[i]+vz1)*dt/2 + (s.az[i]-az)*dt2;
+        s.vx[i] = vx1; s.vy[i] = vy1; s.vz[i] = vz1;
+
+        s.ax[i] = ax; s.ay[i] = ay; s.az[i] = az;
+        jx[i] = fx; jy[i] = fy; jz[i] = fz;
+    }
+
+    /**
+     * Calculates the acceleration and jerk of a body from the predicted positions and velocities
+     * of every other body. The results are left in ax, ay, az and fx, fy, fz.
+     *
+     * @param s the system of bodies
+     * @param i the index of the body
+     */
+    private void force(BodySystem s, int i)
+    {
+        int n = s.size();
+        double xi = xp[i], yi = yp[i], zi = zp[i];
+        double vxi = vxp[i], vyi = vyp[i], vzi = vzp[i];
+        ax = 0; ay = 0; az = 0; fx = 0; fy = 0; fz = 0;
+
+        for(int k=0; k<n; k++)
+        {
+            if(k==i || s.m[k]==0)
+            {
+                continue;
+            }
+            double dx = xp[k]-xi, dy = yp[k]-yi, dz = zp[k]-zi;
+            double dvx = vxp[k]-vxi, dvy = vyp[k]-vyi, dvz = vzp[k]-vzi;
+            double r2 = dx*dx+dy*dy+dz*dz;
+            double inv3 = NBody.G*s.m[k]/(r2*Math.sqrt(r2));
+            double rv = 3*(dx*dvx+dy*dvy+dz*dvz)/r2;
+
+            ax += dx*inv3; ay += dy*inv3; az += dz*inv3;
+            fx += (dvx-rv*dx)*inv3; fy += (dvy-rv*dy)*inv3; fz += (dvz-rv*dz)*inv3;
+        }
+        interactions += n-1;
+    }
+
+    /**
+     * Chooses the next time step of a body. The step is halved until it is at most
+     * eta*|a|/|j|. It is only doubled if twice the step is small enough and the body's time is a
+     * multiple of twice the step, so that the body stays lined up with the other blocks.
+     *
+     * @param s the system of bodies
+     * @param i the index of the body
+     * @param dt the current time step in ticks
+     * @param time the current time in ticks
+     * @param tick the length of one tick in seconds
+     * @return the next time step in ticks
+     */
+    private long nextStep(BodySystem s, int i, long dt, long time, double tick)
+    {
+        double a = Math.sqrt(s.ax[i]*s.ax[i]+s.ay[i]*s.ay[i]+s.az[i]*s.az[i]);
+        double j = Math.sqrt(jx[i]*jx[i]+jy[i]*jy[i]+jz[i]*jz[i]);
+        double ideal = j>0 ? eta*a/j : Double.MAX_VALUE;
+        long max = 1L<<levels;
+
+        while(dt>1 && dt*tick>ideal)
+        {
+            dt >>= 1;
+        }
+        if(dt<max && 2*dt*tick<=ideal && time%(2*dt)==0)
+        {
+            dt <<= 1;
+        }
+
+        smallest = Math.min(smallest, dt);
+        return dt;
+    }
+
+}
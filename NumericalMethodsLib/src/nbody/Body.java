@@ -1,5 +1,6 @@
 package nbody;
 
+import function.RandomSource;
 import function.Vector;
 
 /**
@@ -119,4 +120,24 @@ public class Body
         mass = Math.random()*maxm+minm;
     }
     
+    /**
+     * Sets a random position, velocity, and mass for this body in the same way as the other 
+     * random method, using a RandomSource so that the values can be repeated.
+     * 
+     * @param minp the minimum position
+     * @param maxp the maximum position
+     * @param minv the minimum velocity
+     * @param maxv the maximum velocity
+     * @param minm the minimum mass
+     * @param maxm the maximum mass
+     * @param random the source of the random numbers
+     */
+    public void random(double minp, double maxp, double minv, double maxv, double minm, double maxm, 
+            RandomSource random)
+    {
+        pos.random(minp, maxp, random);
+        vel.random(minv, maxv, random);
+        mass = random.nextDouble()*maxm+minm;
+    }
+    
 }
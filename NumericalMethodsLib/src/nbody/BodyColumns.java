@@ -0,0 +1,108 @@
+package nbody;
+
+/**
+ * The BodyColumns interface is the view of a system of bodies that the force engines and the
+ * integrators can work with without knowing where the bodies are stored. The values are kept in
+ * columns, one for each of x, y, z, vx, vy, vz, m, ax, ay, and az, and the bodies are numbered
+ * with longs, so that a system can hold more bodies than fit in an array.
+ *
+ * The values are copied in and out of a column one tile at a time. A tile starts at a multiple of
+ * TILE and holds at most TILE bodies, so a store that splits its columns into chunks never has to
+ * split a tile. The BodySystem class implements this interface with its arrays, and the
+ * OffHeapSystem class implements it with buffers outside of the Java heap.
+ *
+ * @author Matthew Jin
+ * @version 6/12/2018
+ */
+public interface BodyColumns
+{
+
+    int X = 0, Y = 1, Z = 2, VX = 3, VY = 4, VZ = 5, M = 6, AX = 7, AY = 8, AZ = 9;
+    int TILE = 1024;
+
+    /**
+     * Gets the number of bodies
+     *
+     * @return the number of bodies
+     */
+    long count();
+
+    /**
+     * Gets one value of a body.
+     *
+     * @param column the column, from X to AZ
+     * @param i the index of the body
+     * @return the value
+     */
+    double get(int column, long i);
+
+    /**
+     * Sets one value of a body.
+     *
+     * @param column the column, from X to AZ
+     * @param i the index of the body
+     * @param value the new value
+     */
+    void put(int column, long i, double value);
+
+    /**
+     * Copies the values of a tile of bodies out of a column.
+     *
+     * @precondition start is a multiple of TILE and length is at most TILE
+     *
+     * @param column the column, from X to AZ
+     * @param start the index of the first body
+     * @param dst the array the values are copied to
+     * @param length the number of bodies
+     */
+    void read(int column, long start, double[] dst, int length);
+
+    /**
+     * Copies the values of a tile of bodies into a column.
+     *
+     * @precondition start is a multiple of TILE and length is at most TILE
+     *
+     * @param column the column, from X to AZ
+     * @param start the index of the first body
+     * @param src the array the values are copied from
+     * @param length the number of bodies
+     */
+    void write(int column, long start, double[] src, int length);
+
+    /**
+     * Updates the velocity of every body with its acceleration over a time interval.
+     *
+     * @param dt the time interval in seconds
+     */
+    void kick(double dt);
+
+    /**
+     * Updates the position of every body with its velocity over a time interval.
+     *
+     * @param dt the time interval in seconds
+     */
+    void drift(double dt);
+
+    /**
+     * Records the total energy right after a force pass, if the store keeps the potentials. The
+     * default does nothing. See BodySystem.recordEnergy.
+     *
+     * @param h the time in seconds to kick the velocities by to match the positions
+     */
+    default void recordEnergy(double h)
+    {
+    }
+
+    /**
+     * Gets the number of times the bodies were changed outside of a normal step, so that an
+     * integrator knows when the accelerations it kept are out of date. The default is 0, for a
+     * store whose bodies only change in steps.
+     *
+     * @return the number of changes
+     */
+    default long getModifications()
+    {
+        return 0;
+    }
+
+}
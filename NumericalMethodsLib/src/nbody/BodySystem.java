@@ -0,0 +1,434 @@
+package nbody;
+
+import java.util.ArrayList;
+
+import function.Vector;
+
+/**
+ * The BodySystem class stores the positions, velocities, masses, and accelerations of a number of
+ * bodies in arrays of doubles, with one array for each component. The values of body i are stored
+ * at index i of every array. The arrays are updated in place every step, so the simulation does
+ * not create any new objects while it runs. The units are the same as the Body class: meters,
+ * meters per second, kilograms, and meters per second squared.
+ *
+ * A BodySystem can be created from an ArrayList of Bodies or Stars, and it can be turned back into
+ * an ArrayList of Bodies, so the input files can still be read into Body objects first. It
+ * implements BodyColumns, so the force engines and integrators that work on columns can also use
+ * it; the column of a value is just its array.
+ *
+ * Every body has an id, which starts as its index in the system. When bodies that were absorbed in
+ * a collision are removed by the compact method, the other bodies move down to fill the gaps but
+ * keep their ids, so a body can still be followed from one snapshot to the next.
+ *
+ * The gravitational potential at every body can also be stored, but only after trackPotentials
+ * is called, so that the memory and the extra work are only used when they are needed. The direct
+ * sum engines fill in the potentials during the same loop as the accelerations. The potentials
+ * only belong to the positions of that force pass, so the system remembers whether the bodies
+ * have been drifted or modified since then. Right after a force pass, an integrator can record the
+ * total energy with recordEnergy, using the velocities at the same time as the positions, so the
+ * energy is found with one loop over the bodies instead of a loop over every pair.
+ *
+ * The system counts the changes that are not part of a normal step, such as merging or removing
+ * bodies. Integrators that keep the accelerations from one step to the next compare the count to
+ * find out if the accelerations are out of date. Code that changes the positions or masses
+ * directly should call modified afterwards.
+ *
+ * @author Matthew Jin
+ * @version 3/20/2018
+ */
+public class BodySystem implements BodyColumns
+{
+
+    public final double[] x, y, z;
+    public final double[] vx, vy, vz;
+    public final double[] m;
+    public final double[] ax, ay, az;
+    public final int[] id;
+
+    private final double[][] columns;
+    private int n;
+    private double[] pot;
+    private long potentialPasses;
+    private boolean potentialsCurrent;
+    private double energySample = Double.NaN;
+    private long energySamples;
+    private long modifications;
+
+    /**
+     * Constructor for the BodySystem class which creates space for n bodies. All of the values
+     * start at zero.
+     *
+     * @param n the number of bodies
+     */
+    public BodySystem(int n)
+    {
+        this.n = n;
+        x = new double[n]; y = new double[n]; z = new double[n];
+        vx = new double[n]; vy = new double[n]; vz = new double[n];
+        m = new double[n];
+        ax = new double[n]; ay = new double[n]; az = new double[n];
+        columns = new double[][] {x, y, z, vx, vy, vz, m, ax, ay, az};
+        id = new int[n];
+        for(int i=0; i<n; i++)
+        {
+            id[i] = i;
+        }
+    }
+
+    /**
+     * Constructor for the BodySystem class which copies the positions, velocities, and masses
+     * from an ArrayList of Bodies.
+     *
+     * @param bodies the ArrayList of Bodies
+     */
+    public BodySystem(ArrayList<Body> bodies)
+    {
+        this(bodies.size());
+        for(int i=0; i<n; i++)
+        {
+            Body b = bodies.get(i);
+            x[i] = b.getPos().x; y[i] = b.getPos().y; z[i] = b.getPos().z;
+            vx[i] = b.getVel().x; vy[i] = b.getVel().y; vz[i] = b.getVel().z;
+            m[i] = b.getMass();
+        }
+    }
+
+    /**
+     * Gets the number of bodies
+     *
+     * @return the number of bodies
+     */
+    public int size()
+    {
+        return n;
+    }
+
+    /**
+     * Gets the number of bodies as a long, for the BodyColumns interface
+     *
+     * @return the number of bodies
+     */
+    public long count()
+    {
+        return n;
+    }
+
+    /**
+     * Gets one value of a body from its array.
+     *
+     * @param column the column, from X to AZ
+     * @param i the index of the body
+     * @return the value
+     */
+    public double get(int column, long i)
+    {
+        return columns[column][(int) i];
+    }
+
+    /**
+     * Sets one value of a body in its array. Like any other change to the arrays, changing the
+     * positions or masses this way should be followed by a call to modified.
+     *
+     * @param column the column, from X to AZ
+     * @param i the index of the body
+     * @param value the new value
+     */
+    public void put(int column, long i, double value)
+    {
+        columns[column][(int) i] = value;
+    }
+
+    /**
+     * Copies the values of a tile of bodies out of an array.
+     *
+     * @param column the column, from X to AZ
+     * @param start the index of the first body
+     * @param dst the array the values are copied to
+     * @param length the number of bodies
+     */
+    public void read(int column, long start, double[] dst, int length)
+    {
+        System.arraycopy(columns[column], (int) start, dst, 0, length);
+    }
+
+    /**
+     * Copies the values of a tile of bodies into an array.
+     *
+     * @param column the column, from X to AZ
+     * @param start the index of the first body
+     * @param src the array the values are copied from
+     * @param length the number of bodies
+     */
+    public void write(int column, long start, double[] src, int length)
+    {
+        System.arraycopy(src, 0, columns[column], (int) start, length);
+    }
+
+    /**
+     * Removes every body with zero mass, which are the bodies that were absorbed in collisions.
+     * The other bodies are moved down in the same order and keep their ids, accelerations, and
+     * all of their other values. The arrays are not resized, so only the first size() values are
+     * used afterwards.
+     *
+     * @return the number of bodies that were removed
+     */
+    public int compact()
+    {
+        int live = 0;
+        for(int i=0; i<n; i++)
+        {
+            if(m[i]==0)
+            {
+                continue;
+            }
+            if(live!=i)
+            {
+                x[live] = x[i]; y[live] = y[i]; z[live] = z[i];
+                vx[live] = vx[i]; vy[live] = vy[i]; vz[live] = vz[i];
+                ax[live] = ax[i]; ay[live] = ay[i]; az[live] = az[i];
+                m[live] = m[i];
+                id[live] = id[i];
+                if(pot!=null)
+                {
+                    pot[live] = pot[i];
+                }
+            }
+            live++;
+        }
+
+        int removed = n-live;
+        n = live;
+        if(removed>0)
+        {
+            modified();
+        }
+        return removed;
+    }
+
+    /**
+     * Records that the bodies were changed outside of a normal step, so that the accelerations
+     * kept by an integrator are calculated again.
+     */
+    public void modified()
+    {
+        modifications++;
+        potentialsCurrent = false;
+    }
+
+    /**
+     * Gets the number of times the bodies were changed outside of a normal step
+     *
+     * @return the number of changes
+     */
+    public long getModifications()
+    {
+        return modifications;
+    }
+
+    /**
+     * Turns on the potentials, so that the force engines that support them store the
+     * gravitational potential at every body during each force pass.
+     */
+    public void trackPotentials()
+    {
+        if(pot==null)
+        {
+            pot = new double[x.length];
+        }
+    }
+
+    /**
+     * Gets the gravitational potential at every body from the last force pass that calculated
+     * them, in joules per kilogram
+     *
+     * @return the array of potentials, or null if trackPotentials has not been called
+     */
+    public double[] getPotentials()
+    {
+        return pot;
+    }
+
+    /**
+     * Records that a force engine has filled in the potentials of every body.
+     */
+    public void potentialsUpdated()
+    {
+        potentialPasses++;
+        potentialsCurrent = true;
+    }
+
+    /**
+     * Checks whether the potentials are from the current positions, which is when no drift or
+     * other change has happened since the last force pass that filled them in
+     *
+     * @return true if the potentials match the current positions
+     */
+    public boolean hasCurrentPotentials()
+    {
+        return potentialsCurrent;
+    }
+
+    /**
+     * Records the total energy right after a force pass that filled in the potentials. The
+     * kinetic energy uses the velocities at the same time as the positions, which are the current
+     * velocities plus h times the accelerations, so an integrator whose velocities are half a kick
+     * away from the positions passes the time of that half kick. Nothing is recorded if the
+     * potentials are not from the current positions. This is one loop over the bodies.
+     *
+     * @param h the time in seconds to kick the velocities by to match the positions
+     */
+    public void recordEnergy(double h)
+    {
+        if(pot==null || !potentialsCurrent)
+        {
+            return;
+        }
+        double e = 0;
+        for(int i=0; i<n; i++)
+        {
+            double ux = vx[i]+ax[i]*h, uy = vy[i]+ay[i]*h, uz = vz[i]+az[i]*h;
+            e += m[i]*((ux*ux+uy*uy+uz*uz)+pot[i])/2;
+        }
+        energySample = e;
+        energySamples++;
+    }
+
+    /**
+     * Gets the total energy from the last call to recordEnergy that recorded it
+     *
+     * @return the energy in joules, or NaN if none has been recorded
+     */
+    public double getEnergySample()
+    {
+        return energySample;
+    }
+
+    /**
+     * Gets the number of times recordEnergy has recorded the energy, so that a caller can tell
+     * whether a new energy was recorded during a step
+     *
+     * @return the number of energies recorded
+     */
+    public long getEnergySamples()
+    {
+        return energySamples;
+    }
+
+    /**
+     * Gets the number of force passes that have filled in the potentials, so that a caller can
+     * tell whether the force engine supports them
+     *
+     * @return the number of force passes
+     */
+    public long getPotentialPasses()
+    {
+        return potentialPasses;
+    }
+
+    /**
+     * Calculates the potential energy from the potentials of the last force pass, which is half
+     * of the sum of the mass times the potential of every body. This does not loop over the pairs.
+     *
+     * @return the potential energy in joules
+     */
+    public double potentialEnergy()
+    {
+        double w = 0;
+        for(int i=0; i<n; i++)
+        {
+            w += m[i]*pot[i];
+        }
+        return w/2;
+    }
+
+    /**
+     * Updates the velocity of every body with its acceleration over a time interval.
+     *
+     * @param dt the time interval in seconds
+     */
+    public void kick(double dt)
+    {
+        for(int i=0; i<n; i++)
+        {
+            vx[i] += ax[i]*dt;
+            vy[i] += ay[i]*dt;
+            vz[i] += az[i]*dt;
+        }
+    }
+
+    /**
+     * Updates the position of every body with its velocity over a time interval.
+     *
+     * @param dt the time interval in seconds
+     */
+    public void drift(double dt)
+    {
+        potentialsCurrent = false;
+        for(int i=0; i<n; i++)
+        {
+            x[i] += vx[i]*dt;
+            y[i] += vy[i]*dt;
+            z[i] += vz[i]*dt;
+        }
+    }
+
+    /**
+     * Calculates the total energy of the system, which is the kinetic energy of every body plus
+     * the potential energy of every pair of bodies. This loops over every pair of bodies.
+     *
+     * @return the total energy in joules
+     */
+    public double energy()
+    {
+        double e = 0;
+        for(int j=0; j<n; j++)
+        {
+            e += m[j]*(vx[j]*vx[j]+vy[j]*vy[j]+vz[j]*vz[j])/2;
+            for(int i=j+1; i<n; i++)
+            {
+                double dx = x[i]-x[j], dy = y[i]-y[j], dz = z[i]-z[j];
+                e -= NBody.G*m[i]*m[j]/Math.sqrt(dx*dx+dy*dy+dz*dz);
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Gets the position of a body as a new vector
+     *
+     * @param i the index of the body
+     * @return the position vector in meters
+     */
+    public Vector getPos(int i)
+    {
+        return new Vector(x[i], y[i], z[i]);
+    }
+
+    /**
+     * Gets the velocity of a body as a new vector
+     *
+     * @param i the index of the body
+     * @return the velocity vector in meters per second
+     */
+    public Vector getVel(int i)
+    {
+        return new Vector(vx[i], vy[i], vz[i]);
+    }
+
+    /**
+     * Creates an ArrayList of Bodies with the same positions, velocities, and masses as this
+     * system.
+     *
+     * @return an ArrayList of new Bodies
+     */
+    public ArrayList<Body> toBodies()
+    {
+        ArrayList<Body> bodies = new ArrayList<Body>();
+        for(int i=0; i<n; i++)
+        {
+            bodies.add(new Body(getPos(i), getVel(i), m[i]));
+        }
+        return bodies;
+    }
+
+}
@@ -0,0 +1,405 @@
+package nbody;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The Checkpoint class holds the full state of a simulation so that it can be saved to a file and
+ * resumed later. The state is the BodySystem, the current time, the time step, the maximum time,
+ * the print interval, and the time since the positions were last printed. It also holds the sizes
+ * of the output file and the collision log when the checkpoint was taken, so that a restart can
+ * cut off anything that was written after it and continue the files exactly, and the starting
+ * values of the diagnostics and the starting energy of the telemetry, so that the drifts are still
+ * measured from the start of the run.
+ *
+ * The file starts with the int MAGIC and the int VERSION, followed by the number of bodies as an
+ * int, the time, time step, print counter, maximum time, and print interval as doubles, the
+ * sizes of the output file and the collision log as longs, and the nine starting values of the
+ * diagnostics as doubles, which are NaN if there are none. The starting energy alone can also be
+ * NaN if no energy was known yet. Then comes the starting energy of the telemetry as a double,
+ * which is NaN if there is none. After that come the x, y, z, vx, vy, vz, and m arrays of the
+ * system, one array after another, and then the ids of the bodies as ints.
+ * All of the values are little endian. Version 1 files do not have the telemetry. Version 1 and 2
+ * files do not have the size of the collision log or the ids, and the bodies are given the ids 0
+ * to n-1 when they are read. Files before version 4 do not have the diagnostics.
+ *
+ * The whole checkpoint is kept in one buffer, which can hold at most MAX_BODIES bodies.
+ *
+ * A checkpoint is written to a temporary file first, which is then moved over the old checkpoint
+ * in one step, so a crash while writing never leaves a broken checkpoint behind.
+ *
+ * @author Matthew Jin
+ * @version 4/24/2018
+ */
+public class Checkpoint
+{
+
+    public final static int MAGIC = 0x4E42434B;
+    public final static int VERSION = 4;
+    public final static int MAX_BODIES = (Integer.MAX_VALUE-148)/60;
+
+    private final static int BASELINE = 9;
+
+    private BodySystem s;
+    private double t, dt, count, maxtime, printtime;
+    private long outputBytes = -1, logBytes = -1;
+    private double[] baseline;
+    private double energy = Double.NaN;
+
+    /**
+     * Constructor for the Checkpoint class which sets the state of the simulation. The system is
+     * not copied.
+     *
+     * @param s the system of bodies
+     * @param t the current time in seconds
+     * @param dt the time step in seconds
+     * @param count the time since the positions were last printed
+     * @param maxtime the maximum time to run
+     * @param printtime the time interval between printing the positions
+     */
+    public Checkpoint(BodySystem s, double t, double dt, double count, double maxtime, double printtime)
+    {
+        this.s = s;
+        this.t = t;
+        this.dt = dt;
+        this.count = count;
+        this.maxtime = maxtime;
+        this.printtime = printtime;
+    }
+
+    /**
+     * Constructor for the Checkpoint class which also sets the sizes of the output file and the
+     * collision log.
+     *
+     * @param s the system of bodies
+     * @param t the current time in seconds
+     * @param dt the time step in seconds
+     * @param count the time since the positions were last printed
+     * @param maxtime the maximum time to run
+     * @param printtime the time interval between printing the positions
+     * @param outputBytes the size of the output file in bytes, or -1 if it is not known
+     * @param logBytes the size of the collision log in bytes, or -1 if there is no log
+     */
+    public Checkpoint(BodySystem s, double t, double dt, double count, double maxtime, double printtime, 
+            long outputBytes, long logBytes)
+    {
+        this(s, t, dt, count, maxtime, printtime);
+        this.outputBytes = outputBytes;
+        this.logBytes = logBytes;
+    }
+
+    /**
+     * Gets the system of bodies
+     *
+     * @return the system of bodies
+     */
+    public BodySystem getSystem()
+    {
+        return s;
+    }
+
+    /**
+     * Gets the current time
+     *
+     * @return the time in seconds
+     */
+    public double getTime()
+    {
+        return t;
+    }
+
+    /**
+     * Gets the time step
+     *
+     * @return the time step in seconds
+     */
+    public double getDt()
+    {
+        return dt;
+    }
+
+    /**
+     * Gets the time since the positions were last printed
+     *
+     * @return the print counter in seconds
+     */
+    public double getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Gets the maximum time to run
+     *
+     * @return the maximum time in seconds
+     */
+    public double getMaxTime()
+    {
+        return maxtime;
+    }
+
+    /**
+     * Gets the time interval between printing the positions
+     *
+     * @return the print interval in seconds
+     */
+    public double getPrintTime()
+    {
+        return printtime;
+    }
+
+    /**
+     * Gets the size of the output file when the checkpoint was taken
+     *
+     * @return the size in bytes, or -1 if it is not known
+     */
+    public long getOutputBytes()
+    {
+        return outputBytes;
+    }
+
+    /**
+     * Gets the size of the collision log when the checkpoint was taken
+     *
+     * @return the size in bytes, or -1 if it is not known
+     */
+    public long getLogBytes()
+    {
+        return logBytes;
+    }
+
+    /**
+     * Gets the starting values of the diagnostics when the checkpoint was taken
+     *
+     * @return the nine starting values in the order of Diagnostics.getBaseline, or null if there
+     * are none
+     */
+    public double[] getBaseline()
+    {
+        return baseline;
+    }
+
+    /**
+     * Sets the starting values of the diagnostics that are saved with the checkpoint
+     *
+     * @param baseline the nine starting values in the order of Diagnostics.getBaseline, or null
+     * if there are none
+     */
+    public void setBaseline(double[] baseline)
+    {
+        this.baseline = baseline;
+    }
+
+    /**
+     * Gets the starting energy of the telemetry when the checkpoint was taken
+     *
+     * @return the energy in joules, or NaN if there is none
+     */
+    public double getTelemetryEnergy()
+    {
+        return energy;
+    }
+
+    /**
+     * Sets the starting energy of the telemetry that is saved with the checkpoint
+     *
+     * @param energy the energy in joules, or NaN if there is none
+     */
+    public void setTelemetryEnergy(double energy)
+    {
+        this.energy = energy;
+    }
+
+    /**
+     * Gets the number of bytes before the arrays in a checkpoint file
+     *
+     * @param version the version of the file
+     * @return the size of the header in bytes
+     */
+    private static int header(int version)
+    {
+        if(version<3)
+        {
+            return version<2 ? 60 : 68;
+        }
+        return version<4 ? 76 : 76+8*BASELINE;
+    }
+
+    /**
+     * Copies the state into a buffer in the checkpoint file format. The buffer is reused if it is
+     * large enough; otherwise a new buffer is created.
+     *
+     * @param buffer the buffer to reuse, or null
+     * @return the buffer holding the checkpoint, ready to be written
+     */
+    public ByteBuffer toBuffer(ByteBuffer buffer) throws IOException
+    {
+        int n = s.size();
+        long size = header(VERSION) + 60L*n;
+        if(n>MAX_BODIES)
+        {
+            throw new IOException("A checkpoint can hold at most " + MAX_BODIES + " bodies, not " + n);
+        }
+        if(buffer==null || buffer.capacity()<size)
+        {
+            buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(n);
+        buffer.putDouble(t);
+        buffer.putDouble(dt);
+        buffer.putDouble(count);
+        buffer.putDouble(maxtime);
+        buffer.putDouble(printtime);
+        buffer.putLong(outputBytes);
+        buffer.putLong(logBytes);
+        for(int k=0; k<BASELINE; k++)
+        {
+            buffer.putDouble(baseline!=null ? baseline[k] : Double.NaN);
+        }
+        buffer.putDouble(energy);
+
+        DoubleBuffer doubles = buffer.asDoubleBuffer();
+        double[][] columns = {s.x, s.y, s.z, s.vx, s.vy, s.vz, s.m};
+        for(int k=0; k<columns.length; k++)
+        {
+            doubles.put(columns[k], 0, n);
+        } //Bulk copies each array instead of putting one double at a time
+        buffer.position(header(VERSION) + 56*n);
+        buffer.asIntBuffer().put(s.id, 0, n);
+
+        buffer.position((int) size);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes a buffer made by toBuffer to a file. The buffer is written to a temporary file next
+     * to the checkpoint, which is then moved over the old checkpoint.
+     *
+     * @param buffer the buffer holding the checkpoint
+     * @param path the path of the checkpoint file
+     */
+    public static void write(ByteBuffer buffer, String path) throws IOException
+    {
+        Path file = Paths.get(path);
+        Path temp = Paths.get(path + ".tmp");
+
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while(buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes the checkpoint to a file.
+     *
+     * @param path the path of the checkpoint file
+     */
+    public void write(String path) throws IOException
+    {
+        write(toBuffer(null), path);
+    }
+
+    /**
+     * Reads a checkpoint from a file.
+     *
+     * @param path the path of the checkpoint file
+     * @return the checkpoint
+     */
+    public static Checkpoint read(String path) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(path))).order(ByteOrder.LITTLE_ENDIAN);
+        try
+        {
+            return read(buffer, path);
+        } catch(BufferUnderflowException e) {
+            throw new IOException(path + " is incomplete", e);
+        } //The file ended inside the header
+    }
+
+    /**
+     * Reads a checkpoint from the bytes of a file.
+     *
+     * @param buffer the bytes of the file in little endian order
+     * @param path the path of the checkpoint file, for the error messages
+     * @return the checkpoint
+     */
+    private static Checkpoint read(ByteBuffer buffer, String path) throws IOException
+    {
+
+        if(buffer.remaining()<header(1) || buffer.getInt()!=MAGIC)
+        {
+            throw new IOException(path + " is not a checkpoint file");
+        }
+        int version = buffer.getInt();
+        if(version<1 || version>VERSION)
+        {
+            throw new IOException("Unsupported checkpoint version " + version);
+        }
+
+        int n = buffer.getInt();
+        double t = buffer.getDouble(), dt = buffer.getDouble(), count = buffer.getDouble();
+        double maxtime = buffer.getDouble(), printtime = buffer.getDouble();
+        long outputBytes = buffer.getLong();
+        long logBytes = version>2 ? buffer.getLong() : -1;
+        double[] baseline = null;
+        if(version>3)
+        {
+            baseline = new double[BASELINE];
+            for(int k=0; k<BASELINE; k++)
+            {
+                baseline[k] = buffer.getDouble();
+            }
+            if(Double.isNaN(baseline[1]))
+            {
+                baseline = null;
+            }
+        }
+        double energy = version>1 ? buffer.getDouble() : Double.NaN;
+
+        int size = version<3 ? 56 : 60;
+        if(n<0 || buffer.remaining()<(long) size*n)
+        {
+            throw new IOException(path + " is incomplete");
+        }
+
+        BodySystem s = new BodySystem(n);
+        DoubleBuffer doubles = buffer.asDoubleBuffer();
+        double[][] columns = {s.x, s.y, s.z, s.vx, s.vy, s.vz, s.m};
+        for(int k=0; k<columns.length; k++)
+        {
+            doubles.get(columns[k], 0, n);
+        }
+        if(version>2)
+        {
+            buffer.position(header(version) + 56*n);
+            buffer.asIntBuffer().get(s.id, 0, n);
+        }
+
+        Checkpoint state = new Checkpoint(s, t, dt, count, maxtime, printtime, outputBytes, logBytes);
+        state.setBaseline(baseline);
+        state.setTelemetryEnergy(energy);
+        return state;
+    }
+
+}
@@ -0,0 +1,123 @@
+package nbody;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The CheckpointWriter class saves a checkpoint of a running simulation every few minutes. The
+ * state is copied into a buffer on the simulation thread, which only takes about as long as one
+ * pass over the arrays. The buffer is then written to the file on a separate thread so that the
+ * simulation does not have to wait for the disk.
+ *
+ * If the last checkpoint is still being written when the next one is due, the next one is skipped
+ * and tried again on the following step.
+ *
+ * @author Matthew Jin
+ * @version 4/24/2018
+ */
+public class CheckpointWriter
+{
+
+    private String path;
+    private long interval;
+    private long last;
+
+    private ExecutorService writer;
+    private Future<?> pending;
+    private ByteBuffer buffer;
+
+    /**
+     * Constructor for the CheckpointWriter class which sets the path of the checkpoint file and
+     * the time between checkpoints.
+     *
+     * @param path the path of the checkpoint file
+     * @param seconds the real time between checkpoints in seconds
+     */
+    public CheckpointWriter(String path, double seconds)
+    {
+        this.path = path;
+        interval = (long) (seconds*1e9);
+        last = System.nanoTime();
+
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the path of the checkpoint file
+     *
+     * @return the path
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Checks if enough time has passed since the last checkpoint and the last checkpoint has
+     * finished being written. Nothing is created, so this can be called every step.
+     *
+     * @return true if a checkpoint should be saved; otherwise, false
+     */
+    public boolean isDue()
+    {
+        return System.nanoTime()-last>=interval && (pending==null || pending.isDone());
+    }
+
+    /**
+     * Copies a checkpoint into the buffer and starts writing it on the writing thread. The
+     * system in the checkpoint can be changed as soon as this returns.
+     *
+     * @param state the checkpoint
+     */
+    public void save(Checkpoint state) throws IOException
+    {
+        finish();
+
+        buffer = state.toBuffer(buffer);
+        final ByteBuffer data = buffer;
+        pending = writer.submit(() -> {
+            Checkpoint.write(data, path);
+            return null;
+        });
+        last = System.nanoTime();
+    }
+
+    /**
+     * Waits for the last checkpoint to be written and stops the writing thread.
+     */
+    public void close() throws IOException
+    {
+        finish();
+        writer.shutdown();
+    }
+
+    /**
+     * Waits for the last checkpoint to be written, and throws the error from writing it if there
+     * was one.
+     */
+    private void finish() throws IOException
+    {
+        if(pending==null)
+        {
+            return;
+        }
+        try
+        {
+            pending.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException e) {
+            throw new IOException("Could not write checkpoint " + path, e.getCause());
+        }
+        pending = null;
+    }
+
+}
@@ -0,0 +1,334 @@
+package nbody;
+
+import java.util.Arrays;
+
+/**
+ * The CollisionDetector class finds the bodies in a BodySystem that have collided and combines
+ * them. Two bodies collide if the distance between them is less than or equal to the collision
+ * radius. The collisions are inelastic: the body whose neighbors are being checked takes the
+ * combined mass, the velocity from conservation of momentum, and the position of the center of
+ * mass, and the mass of the other body is set to zero. With a radius of zero, only bodies with
+ * equal positions collide, which is the same check that NBody.update uses.
+ *
+ * Instead of checking every pair of bodies, space is split into a grid of cubes with the same
+ * side length as the collision radius. Each body is placed into a hash table using the cube that
+ * it is in, so only bodies in the same cube or in one of the 26 cubes around it need to be
+ * checked. This takes about the same amount of time per body no matter how many bodies there are,
+ * as long as the bodies are not all packed into a few cubes.
+ *
+ * When two bodies are combined, the body that is kept moves to the center of mass, so it is moved
+ * to the list of its new cube if it left its old one, and the cubes around it are checked again.
+ * Bodies that were checked earlier are included, because the kept body may have moved close to
+ * them, so no pair of bodies is left within the collision radius.
+ *
+ * The ids of the bodies that were combined by the last call to collide are kept, so that they
+ * can be written to a collision log.
+ *
+ * @author Matthew Jin
+ * @version 4/10/2018
+ */
+public class CollisionDetector
+{
+
+    private static final int EMPTY = -1; //A slot in the hash table with no cube
+    private static final int VACANT = -2; //A slot for a cube whose bodies all moved away
+
+    private double radius;
+
+    private long[] cellx = new long[0], celly = new long[0], cellz = new long[0];
+    private int[] next = new int[0];
+
+    private long[] keyx = new long[0], keyy = new long[0], keyz = new long[0];
+    private int[] head = new int[0];
+    private int mask;
+
+    private int merges;
+    private int[] kept = new int[0], absorbed = new int[0];
+
+    /**
+     * Constructor for the CollisionDetector class which sets the collision radius.
+     *
+     * @param radius the collision radius in meters
+     */
+    public CollisionDetector(double radius)
+    {
+        this.radius = radius;
+    }
+
+    /**
+     * Gets the collision radius
+     *
+     * @return the collision radius in meters
+     */
+    public double getRadius()
+    {
+        return radius;
+    }
+
+    /**
+     * Finds and combines all of the bodies in the system that have collided.
+     *
+     * @param s the system of bodies
+     * @return the number of collisions
+     */
+    public int collide(BodySystem s)
+    {
+        int n = s.size();
+        double cell = radius>0 ? radius : 1;
+        int reach = radius>0 ? 1 : 0;
+
+        build(s, cell);
+
+        merges = 0;
+        int collisions = 0;
+        double r2 = radius*radius;
+        for(int j=0; j<n; j++)
+        {
+            boolean moved = s.m[j]!=0;
+            while(moved)
+            {
+                moved = false;
+                search:
+                for(int dx=-reach; dx<=reach; dx++)
+                {
+                    for(int dy=-reach; dy<=reach; dy++)
+                    {
+                        for(int dz=-reach; dz<=reach; dz++)
+                        {
+                            int slot = find(cellx[j]+dx, celly[j]+dy, cellz[j]+dz);
+                            for(int i=slot>=0 ? head[slot] : -1; i>=0; i=next[i])
+                            {
+                                if(i!=j && s.m[i]!=0 && distance2(s, i, j)<=r2)
+                                {
+                                    merge(s, j, i);
+                                    collisions++;
+                                    relocate(s, j, cell);
+                                    moved = true;
+                                    break search;
+                                }
+                            }
+                        }
+                    }
+                } //Checks the cube that body j is in and the cubes around it
+            } //Starts over after every merge, because body j moved
+        }
+
+        return collisions;
+    }
+
+    /**
+     * Gets the number of collisions from the last call to collide
+     *
+     * @return the number of collisions
+     */
+    public int getMerges()
+    {
+        return merges;
+    }
+
+    /**
+     * Gets the id of the body that was kept in one of the collisions from the last call to
+     * collide
+     *
+     * @param k the index of the collision
+     * @return the id of the body that took the combined mass
+     */
+    public int getKept(int k)
+    {
+        return kept[k];
+    }
+
+    /**
+     * Gets the id of the body that was absorbed in one of the collisions from the last call to
+     * collide
+     *
+     * @param k the index of the collision
+     * @return the id of the body whose mass was set to zero
+     */
+    public int getAbsorbed(int k)
+    {
+        return absorbed[k];
+    }
+
+    /**
+     * Places every body with mass into the hash table using the cube that it is in.
+     *
+     * @param s the system of bodies
+     * @param cell the side length of the cubes
+     */
+    private void build(BodySystem s, double cell)
+    {
+        int n = s.size();
+        if(cellx.length<n)
+        {
+            cellx = new long[n]; celly = new long[n]; cellz = new long[n];
+            next = new int[n];
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(4, 2*n-1))<<1; //Room for a new cube for every merge
+        if(head.length!=capacity)
+        {
+            keyx = new long[capacity]; keyy = new long[capacity]; keyz = new long[capacity];
+            head = new int[capacity];
+            mask = capacity-1;
+        }
+        Arrays.fill(head, EMPTY);
+
+        for(int i=0; i<n; i++)
+        {
+            if(s.m[i]==0)
+            {
+                continue;
+            }
+            cellx[i] = (long) Math.floor(s.x[i]/cell);
+            celly[i] = (long) Math.floor(s.y[i]/cell);
+            cellz[i] = (long) Math.floor(s.z[i]/cell);
+            insert(i);
+        }
+    }
+
+    /**
+     * Adds a body to the front of the list of the cube in cellx, celly, and cellz, adding the cube
+     * to the hash table if it is not there yet.
+     *
+     * @param i the index of the body
+     */
+    private void insert(int i)
+    {
+        int slot = hash(cellx[i], celly[i], cellz[i]);
+        while(head[slot]!=EMPTY && !(keyx[slot]==cellx[i] && keyy[slot]==celly[i] && keyz[slot]==cellz[i]))
+        {
+            slot = (slot+1)&mask;
+        } //Open addressing: moves to the next slot until it finds the cube or an empty slot
+        if(head[slot]==EMPTY)
+        {
+            keyx[slot] = cellx[i]; keyy[slot] = celly[i]; keyz[slot] = cellz[i];
+        }
+        next[i] = head[slot];
+        head[slot] = i;
+    }
+
+    /**
+     * Finds the cube of a body again after it moved, and moves the body to the list of its new
+     * cube if the cube changed. A cube whose list becomes empty keeps its slot, so the other cubes
+     * can still be found by open addressing.
+     *
+     * @param s the system of bodies
+     * @param j the index of the body
+     * @param cell the side length of the cubes
+     */
+    private void relocate(BodySystem s, int j, double cell)
+    {
+        long cx = (long) Math.floor(s.x[j]/cell);
+        long cy = (long) Math.floor(s.y[j]/cell);
+        long cz = (long) Math.floor(s.z[j]/cell);
+        if(cx==cellx[j] && cy==celly[j] && cz==cellz[j])
+        {
+            return;
+        }
+
+        int slot = find(cellx[j], celly[j], cellz[j]);
+        if(head[slot]==j)
+        {
+            head[slot] = next[j]<0 ? VACANT : next[j];
+        } else
+        {
+            int k = head[slot];
+            while(next[k]!=j)
+            {
+                k = next[k];
+            }
+            next[k] = next[j];
+        } //Removes body j from the list of its old cube
+
+        cellx[j] = cx; celly[j] = cy; cellz[j] = cz;
+        insert(j);
+    }
+
+    /**
+     * Finds the slot in the hash table for a cube.
+     *
+     * @param cx the x index of the cube
+     * @param cy the y index of the cube
+     * @param cz the z index of the cube
+     * @return the slot of the cube, or -1 if the cube is not in the hash table
+     */
+    private int find(long cx, long cy, long cz)
+    {
+        int slot = hash(cx, cy, cz);
+        while(head[slot]!=EMPTY)
+        {
+            if(keyx[slot]==cx && keyy[slot]==cy && keyz[slot]==cz)
+            {
+                return slot;
+            }
+            slot = (slot+1)&mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Calculates the starting slot in the hash table for a cube.
+     *
+     * @param cx the x index of the cube
+     * @param cy the y index of the cube
+     * @param cz the z index of the cube
+     * @return the starting slot
+     */
+    private int hash(long cx, long cy, long cz)
+    {
+        long h = cx*0x9E3779B97F4A7C15L + cy*0xC2B2AE3D27D4EB4FL + cz*0x165667B19E3779F9L;
+        h ^= h>>>29;
+        return (int) h & mask;
+    }
+
+    /**
+     * Calculates the square of the distance between two bodies.
+     *
+     * @param s the system of bodies
+     * @param i the index of the first body
+     * @param j the index of the second body
+     * @return the square of the distance in meters squared
+     */
+    private double distance2(BodySystem s, int i, int j)
+    {
+        double dx = s.x[i]-s.x[j], dy = s.y[i]-s.y[j], dz = s.z[i]-s.z[j];
+        return dx*dx+dy*dy+dz*dz;
+    }
+
+    /**
+     * Combines body i into body j using conservation of momentum. Body j is moved to the center
+     * of mass of the two bodies and the mass of body i is set to zero. The ids of the two bodies
+     * are recorded.
+     *
+     * @param s the system of bodies
+     * @param j the index of the body that is kept
+     * @param i the index of the body that is absorbed
+     */
+    private void merge(BodySystem s, int j, int i)
+    {
+        double jmass = s.m[j], imass = s.m[i], total = jmass+imass;
+
+        s.vx[j] = (s.vx[j]*jmass + s.vx[i]*imass)/total;
+        s.vy[j] = (s.vy[j]*jmass + s.vy[i]*imass)/total;
+        s.vz[j] = (s.vz[j]*jmass + s.vz[i]*imass)/total;
+
+        s.x[j] = (s.x[j]*jmass + s.x[i]*imass)/total;
+        s.y[j] = (s.y[j]*jmass + s.y[i]*imass)/total;
+        s.z[j] = (s.z[j]*jmass + s.z[i]*imass)/total;
+
+        s.m[j] = total;
+        s.m[i] = 0;
+        s.modified();
+
+        if(merges==kept.length)
+        {
+            kept = Arrays.copyOf(kept, Math.max(16, 2*merges));
+            absorbed = Arrays.copyOf(absorbed, kept.length);
+        }
+        kept[merges] = s.id[j];
+        absorbed[merges] = s.id[i];
+        merges++;
+    }
+
+}
@@ -0,0 +1,77 @@
+package nbody;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The CountingOutputStream class passes everything written to it on to another stream and counts
+ * the bytes. It is put in front of a buffered stream, so the count includes the bytes that are
+ * still in the buffer, and the size of a file can be followed without flushing it.
+ *
+ * @author Matthew Jin
+ * @version 5/15/2018
+ */
+public class CountingOutputStream extends FilterOutputStream
+{
+
+    private long count;
+
+    /**
+     * Constructor for the CountingOutputStream class which sets the stream and the starting count.
+     *
+     * @param out the stream the bytes are written to
+     * @param count the number of bytes to start counting from, such as the size of a file that is
+     * being added to
+     */
+    public CountingOutputStream(OutputStream out, long count)
+    {
+        super(out);
+        this.count = count;
+    }
+
+    /**
+     * Writes one byte.
+     *
+     * @param b the byte
+     */
+    public void write(int b) throws IOException
+    {
+        out.write(b);
+        count++;
+    }
+
+    /**
+     * Writes part of an array of bytes.
+     *
+     * @param b the bytes
+     * @param off the index of the first byte
+     * @param len the number of bytes
+     */
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        out.write(b, off, len);
+        count += len;
+    }
+
+    /**
+     * Gets the number of bytes written, plus the starting count
+     *
+     * @return the number of bytes
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Sets the count, for example after the file was cut back to a shorter size
+     *
+     * @param count the new count
+     */
+    public void setCount(long count)
+    {
+        this.count = count;
+    }
+
+}
@@ -0,0 +1,314 @@
+package nbody;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * The Diagnostics class follows the quantities that the simulation should conserve: the total
+ * energy, the total momentum, and the total angular momentum. Watching how much they drift shows
+ * whether a time step or an approximate force engine is accurate enough for a run.
+ *
+ * Calculating the potential energy directly loops over every pair of bodies, which takes as long
+ * as a force pass. Instead, the system is told to track potentials, and the direct sum engines and
+ * the octree add up the potential at every body in the same loop as the accelerations. Right after
+ * the force pass, the integrator records the energy with BodySystem.recordEnergy, using velocities
+ * at the same time as the positions, so the energy takes one loop over the bodies and is not
+ * biased by potentials from other positions than the velocities.
+ *
+ * With the velocity Verlet integrator the energy recorded at the end of the last step is already
+ * at the time of update. The Euler, leapfrog, and Yoshida integrators only record it during the
+ * next step, at the time of update for Euler, half a step later for leapfrog, and a small part of
+ * a step later for Yoshida. In that case update only measures the momenta, and the line is written
+ * and checked by finish after the next step. The particle mesh and the block time steps do not fill
+ * in the potentials, so the energy is NaN unless the pair loop of BodySystem.energy is turned on
+ * with setPairLoop, which takes as long as a force pass every time the positions are printed.
+ *
+ * Every time update is called, one line is written with the time in seconds, the total energy in
+ * joules, the relative energy drift, the size of the total momentum in kg m/s, its drift, the
+ * size of the total angular momentum in kg m^2/s, and its drift. The drifts are measured from the
+ * first call to update. The energy drift is relative to the first energy; the momentum drift is
+ * relative to the sum of m|v| over the bodies, and the angular momentum drift is relative to the
+ * sum of m|r||v|, since the totals themselves are often close to zero.
+ *
+ * If a tolerance is set and a drift goes above it, update returns false so that the simulation
+ * can stop early instead of running for hours with wrong results.
+ *
+ * The energy drift is measured from the first energy that is known. The starting values that the
+ * drifts are measured from can be saved with getBaseline and set again with setBaseline, so that
+ * a run resumed from a checkpoint keeps measuring the drifts from the start of the original run.
+ *
+ * @author Matthew Jin
+ * @version 7/10/2018
+ */
+public class Diagnostics
+{
+
+    private double energyTolerance, momentumTolerance;
+    private PrintStream out;
+    private boolean close;
+
+    private boolean pairLoop;
+    private boolean started, pending;
+    private long samples;
+    private double energy0 = Double.NaN;
+    private double px0, py0, pz0, pscale;
+    private double lx0, ly0, lz0, lscale;
+    private double energyDrift, momentumDrift, angularDrift;
+    private double energy, time = Double.NaN;
+    private double t, px, py, pz, lx, ly, lz;
+
+    /**
+     * Constructor for the Diagnostics class which sets the tolerances and the output file.
+     *
+     * @param energyTolerance the largest relative energy drift before the run is stopped, or 0
+     * to never stop
+     * @param momentumTolerance the largest relative drift of the momentum or the angular momentum
+     * before the run is stopped, or 0 to never stop
+     * @param path the path of the file the diagnostics are written to, or null to print them
+     */
+    public Diagnostics(double energyTolerance, double momentumTolerance, String path) throws IOException
+    {
+        this.energyTolerance = energyTolerance;
+        this.momentumTolerance = momentumTolerance;
+        if(path!=null)
+        {
+            out = new PrintStream(new BufferedOutputStream(new FileOutputStream(path)));
+            close = true;
+        } else {
+            out = System.out;
+        }
+    }
+
+    /**
+     * Constructor for the Diagnostics class which sets the tolerances and a stream that is already
+     * open. The stream is flushed but not closed by the close method.
+     *
+     * @param energyTolerance the largest relative energy drift before the run is stopped, or 0
+     * to never stop
+     * @param momentumTolerance the largest relative drift of the momentum or the angular momentum
+     * before the run is stopped, or 0 to never stop
+     * @param out the stream the diagnostics are written to
+     */
+    public Diagnostics(double energyTolerance, double momentumTolerance, PrintStream out)
+    {
+        this.energyTolerance = energyTolerance;
+        this.momentumTolerance = momentumTolerance;
+        this.out = out;
+    }
+
+    /**
+     * Turns on calculating the energy with the loop over every pair of bodies in BodySystem.energy
+     * when the force engine does not fill in the potentials. This takes as long as a force pass
+     * every time update is called.
+     *
+     * @param pairLoop true to use the pair loop when there are no potentials
+     */
+    public void setPairLoop(boolean pairLoop)
+    {
+        this.pairLoop = pairLoop;
+    }
+
+    /**
+     * Calculates the conserved quantities, writes them, and checks them against the tolerances.
+     * If the energy at this time is not known yet, the momenta are kept and the line is written
+     * by finish after the next step instead.
+     *
+     * @param s the system of bodies
+     * @param t the current time
+     * @return true if the drifts are within the tolerances; false if the run should stop
+     */
+    public boolean update(BodySystem s, double t)
+    {
+        int n = s.size();
+        double[] m = s.m, x = s.x, y = s.y, z = s.z, vx = s.vx, vy = s.vy, vz = s.vz;
+
+        double k = 0, px = 0, py = 0, pz = 0, lx = 0, ly = 0, lz = 0, psum = 0, lsum = 0;
+        for(int i=0; i<n; i++)
+        {
+            double v2 = vx[i]*vx[i]+vy[i]*vy[i]+vz[i]*vz[i];
+            k += m[i]*v2/2;
+            px += m[i]*vx[i]; py += m[i]*vy[i]; pz += m[i]*vz[i];
+            lx += m[i]*(y[i]*vz[i]-z[i]*vy[i]);
+            ly += m[i]*(z[i]*vx[i]-x[i]*vz[i]);
+            lz += m[i]*(x[i]*vy[i]-y[i]*vx[i]);
+            double speed = Math.sqrt(v2);
+            psum += m[i]*speed;
+            lsum += m[i]*speed*Math.sqrt(x[i]*x[i]+y[i]*y[i]+z[i]*z[i]);
+        }
+
+        this.t = t;
+        this.px = px; this.py = py; this.pz = pz;
+        this.lx = lx; this.ly = ly; this.lz = lz;
+        if(!started)
+        {
+            px0 = px; py0 = py; pz0 = pz; pscale = psum;
+            lx0 = lx; ly0 = ly; lz0 = lz; lscale = lsum;
+            started = true;
+        }
+
+        if(s.getPotentials()!=null && s.hasCurrentPotentials())
+        {
+            return write(k+s.potentialEnergy());
+        } else if(pairLoop) {
+            return write(s.energy());
+        } //Otherwise waits for the integrator to record the energy in the next step
+        pending = true;
+        samples = s.getEnergySamples();
+        return true;
+    }
+
+    /**
+     * Writes the line of the last call to update if it was waiting for the energy, using the
+     * energy recorded by the integrator since then, and checks it against the tolerances. This
+     * is called after every step and does nothing if no line is waiting.
+     *
+     * @param s the system of bodies
+     * @return true if the drifts are within the tolerances; false if the run should stop
+     */
+    public boolean finish(BodySystem s)
+    {
+        if(!pending)
+        {
+            return true;
+        }
+        return write(s.getEnergySamples()!=samples ? s.getEnergySample() : Double.NaN);
+    }
+
+    /**
+     * Writes the line for the momenta from the last call to update and an energy, and checks the
+     * drifts against the tolerances.
+     *
+     * @param e the total energy in joules, or NaN if it is not known
+     * @return true if the drifts are within the tolerances; false if the run should stop
+     */
+    private boolean write(double e)
+    {
+        pending = false;
+        energy = e;
+        time = t;
+        if(Double.isNaN(energy0))
+        {
+            energy0 = e;
+        } //The energy drift starts from the first energy that is known
+
+        energyDrift = energy0!=0 ? Math.abs((energy-energy0)/energy0) : 0;
+        momentumDrift = pscale>0 ? length(px-px0, py-py0, pz-pz0)/pscale : 0;
+        angularDrift = lscale>0 ? length(lx-lx0, ly-ly0, lz-lz0)/lscale : 0;
+
+        out.println(t + " " + energy + " " + energyDrift + " " + length(px, py, pz) + " "
+                + momentumDrift + " " + length(lx, ly, lz) + " " + angularDrift);
+
+        return !(energyTolerance>0 && energyDrift>energyTolerance)
+                && !(momentumTolerance>0 && Math.max(momentumDrift, angularDrift)>momentumTolerance);
+    }
+
+    /**
+     * Gets the starting values that the drifts are measured from: the energy, the x, y, and z
+     * momentum, the momentum scale, the x, y, and z angular momentum, and the angular momentum
+     * scale.
+     *
+     * @return the nine starting values, where the energy is NaN if it is not known yet, or null if
+     * update has not been called yet
+     */
+    public double[] getBaseline()
+    {
+        if(!started)
+        {
+            return null;
+        }
+        return new double[] {energy0, px0, py0, pz0, pscale, lx0, ly0, lz0, lscale};
+    }
+
+    /**
+     * Sets the starting values that the drifts are measured from, such as the values from a
+     * checkpoint, instead of taking them from the first call to update.
+     *
+     * @param baseline the nine starting values in the order of getBaseline
+     */
+    public void setBaseline(double[] baseline)
+    {
+        energy0 = baseline[0];
+        px0 = baseline[1]; py0 = baseline[2]; pz0 = baseline[3]; pscale = baseline[4];
+        lx0 = baseline[5]; ly0 = baseline[6]; lz0 = baseline[7]; lscale = baseline[8];
+        started = true;
+    }
+
+    /**
+     * Gets the total energy from the last line that was written
+     *
+     * @return the energy in joules, or NaN if it was not known
+     */
+    public double getEnergy()
+    {
+        return energy;
+    }
+
+    /**
+     * Gets the time of the last line that was written
+     *
+     * @return the time in seconds, or NaN if no line has been written
+     */
+    public double getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Gets the relative energy drift from the last call to update
+     *
+     * @return the energy drift
+     */
+    public double getEnergyDrift()
+    {
+        return energyDrift;
+    }
+
+    /**
+     * Gets the relative momentum drift from the last call to update
+     *
+     * @return the momentum drift
+     */
+    public double getMomentumDrift()
+    {
+        return momentumDrift;
+    }
+
+    /**
+     * Gets the relative angular momentum drift from the last call to update
+     *
+     * @return the angular momentum drift
+     */
+    public double getAngularMomentumDrift()
+    {
+        return angularDrift;
+    }
+
+    /**
+     * Closes the output file, if the diagnostics are written to one.
+     */
+    public void close()
+    {
+        if(close)
+        {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Calculates the length of a vector.
+     *
+     * @param x the x component
+     * @param y the y component
+     * @param z the z component
+     * @return the length
+     */
+    private static double length(double x, double y, double z)
+    {
+        return Math.sqrt(x*x+y*y+z*z);
+    }
+
+}
@@ -0,0 +1,220 @@
+package nbody;
+
+/**
+ * The DirectSum class calculates the accelerations of the bodies by adding up the force from
+ * every other body. This uses the same equations as NBody.update, but it reads the positions
+ * directly from the arrays in the BodySystem and does not create any Vector objects. The results
+ * are the same as NBody.update to within rounding error.
+ *
+ * A softening length e can be set, which changes the distance r between two bodies to
+ * sqrt(r*r+e*e). This keeps the force from becoming very large when two bodies pass close to each
+ * other. The default softening length is zero, which gives the same force as NBody.update.
+ *
+ * Systems that are not a BodySystem, such as an OffHeapSystem, are read through the BodyColumns
+ * interface. Each tile of targets is summed over one tile of sources at a time like the
+ * TiledDirectSum class, with the sources copied out of the columns one tile at a time so the inner
+ * loop only reads arrays. Each body is summed over the other bodies in the same order as for a
+ * BodySystem, so the accelerations are exactly the same.
+ *
+ * @author Matthew Jin
+ * @version 3/20/2018
+ */
+public class DirectSum implements ForceEngine
+{
+
+    private double softening;
+    private long interactions;
+
+    private double[] tx, ty, tz, ax, ay, az, sx, sy, sz, sm;
+
+    /**
+     * Constructor for the DirectSum class with no softening.
+     */
+    public DirectSum()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructor for the DirectSum class which sets the softening length.
+     *
+     * @param softening the softening length in meters
+     */
+    public DirectSum(double softening)
+    {
+        this.softening = softening;
+    }
+
+    /**
+     * Creates a direct sum that uses the SIMD instructions of the processor if the Java Vector
+     * API is available, which needs "--add-modules jdk.incubator.vector". Otherwise it creates a
+     * normal DirectSum. See the VectorDirectSum class for more information.
+     *
+     * @param softening the softening length in meters
+     * @return a VectorDirectSum, or a DirectSum if the Vector API is not available
+     */
+    public static ForceEngine vectorized(double softening)
+    {
+        try
+        {
+            return (ForceEngine) Class.forName("nbody.VectorDirectSum")
+                    .getConstructor(double.class).newInstance(softening);
+        } catch(ReflectiveOperationException | LinkageError e) {
+            return new DirectSum(softening);
+        }
+    }
+
+    /**
+     * Calculates the acceleration of every body by looping over every other body.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodySystem s)
+    {
+        int n = s.size();
+        accelerations(s, 0, n, softening*softening);
+        if(s.getPotentials()!=null)
+        {
+            s.potentialsUpdated();
+        }
+        interactions = (long) n*(n-1);
+    }
+
+    /**
+     * Calculates the acceleration of every body in a system that is stored in columns. A
+     * BodySystem is summed directly from its arrays.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodyColumns s)
+    {
+        if(s instanceof BodySystem)
+        {
+            accelerations((BodySystem) s);
+            return;
+        }
+        if(tx==null)
+        {
+            int t = BodyColumns.TILE;
+            tx = new double[t]; ty = new double[t]; tz = new double[t];
+            ax = new double[t]; ay = new double[t]; az = new double[t];
+            sx = new double[t]; sy = new double[t]; sz = new double[t]; sm = new double[t];
+        } //The tiles are only made the first time a system of columns is used
+
+        long n = s.count();
+        double e2 = softening*softening;
+        for(long jt=0; jt<n; jt+=BodyColumns.TILE)
+        {
+            int count = (int) Math.min(BodyColumns.TILE, n-jt);
+            tile(s, jt, count, e2);
+            s.write(BodyColumns.AX, jt, ax, count);
+            s.write(BodyColumns.AY, jt, ay, count);
+            s.write(BodyColumns.AZ, jt, az, count);
+        }
+        interactions = n*(n-1);
+    }
+
+    /**
+     * Calculates the accelerations of a tile of bodies into the ax, ay, and az tiles by summing
+     * over one tile of sources at a time.
+     *
+     * @param s the system of bodies
+     * @param jt the index of the first body in the tile
+     * @param count the number of bodies in the tile
+     * @param e2 the square of the softening length
+     */
+    private void tile(BodyColumns s, long jt, int count, double e2)
+    {
+        long n = s.count();
+        s.read(BodyColumns.X, jt, tx, count);
+        s.read(BodyColumns.Y, jt, ty, count);
+        s.read(BodyColumns.Z, jt, tz, count);
+        for(int j=0; j<count; j++)
+        {
+            ax[j] = 0; ay[j] = 0; az[j] = 0;
+        }
+
+        for(long it=0; it<n; it+=BodyColumns.TILE)
+        {
+            int sources = (int) Math.min(BodyColumns.TILE, n-it);
+            s.read(BodyColumns.X, it, sx, sources);
+            s.read(BodyColumns.Y, it, sy, sources);
+            s.read(BodyColumns.Z, it, sz, sources);
+            s.read(BodyColumns.M, it, sm, sources);
+
+            for(int j=0; j<count; j++)
+            {
+                double xj = tx[j], yj = ty[j], zj = tz[j];
+                double sumx = ax[j], sumy = ay[j], sumz = az[j];
+                long self = jt+j-it;
+                for(int i=0; i<sources; i++)
+                {
+                    if(i!=self)
+                    {
+                        double dx = sx[i]-xj, dy = sy[i]-yj, dz = sz[i]-zj;
+                        double d2 = dx*dx+dy*dy+dz*dz+e2;
+                        double scalar = NBody.G*sm[i]/(d2*Math.sqrt(d2));
+                        sumx += dx*scalar; sumy += dy*scalar; sumz += dz*scalar;
+                    }
+                }
+                ax[j] = sumx; ay[j] = sumy; az[j] = sumz;
+            }
+        }
+    }
+
+    /**
+     * Calculates the accelerations of the bodies from index lo up to but not including index hi
+     * by looping over every other body. The sum for each body is always done in the same order,
+     * so splitting the bodies into ranges gives exactly the same results. If the system is
+     * tracking potentials, the potential at each body is added up in the same loop.
+     *
+     * @param s the system of bodies
+     * @param lo the index of the first body
+     * @param hi one more than the index of the last body
+     * @param e2 the square of the softening length
+     */
+    static void accelerations(BodySystem s, int lo, int hi, double e2)
+    {
+        int n = s.size();
+        double[] x = s.x, y = s.y, z = s.z, m = s.m;
+        double[] pot = s.getPotentials();
+        boolean potentials = pot!=null;
+
+        for(int j=lo; j<hi; j++)
+        {
+            double xj = x[j], yj = y[j], zj = z[j];
+            double sumx = 0, sumy = 0, sumz = 0, sump = 0;
+            for(int i=0; i<n; i++)
+            {
+                if(i!=j)
+                {
+                    double dx = x[i]-xj, dy = y[i]-yj, dz = z[i]-zj;
+                    double d2 = dx*dx+dy*dy+dz*dz+e2;
+                    double scalar = NBody.G*m[i]/(d2*Math.sqrt(d2));
+                    sumx += dx*scalar; sumy += dy*scalar; sumz += dz*scalar;
+                    if(potentials)
+                    {
+                        sump -= scalar*d2;
+                    } //G*m/r is the scalar times r squared
+                }
+            }
+            s.ax[j] = sumx; s.ay[j] = sumy; s.az[j] = sumz;
+            if(potentials)
+            {
+                pot[j] = sump;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of pair interactions that were calculated by the last call to
+     * accelerations
+     *
+     * @return the number of interactions
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+}
@@ -0,0 +1,184 @@
+package nbody;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The Ensemble class runs many independent simulations at the same time in one program, such as
+ * a parameter study over random clusters, instead of starting the program once for every input
+ * file. The simulations are listed in a manifest file, with one simulation on each line: the path
+ * of the input file, followed by the path of the output file. If the output path is left out, the
+ * output is written next to the input file with ".out" added to its name. Blank lines and lines
+ * starting with # are skipped.
+ *
+ * Each input file has the same format as NBody's input.txt, including the optional settings. The
+ * simulations are run on a fixed number of threads, and the rest wait in a queue. When every
+ * simulation has finished, a summary with the wall time of each simulation and whether it
+ * finished or failed is written to the summary file.
+ *
+ * Each simulation prints its messages, like the telemetry lines, the block time step statistics,
+ * and the diagnostics without their own file, to a log next to its output file with ".log"
+ * added to its name, so the messages of different simulations are not mixed together.
+ *
+ * The simulations share the processors, so a parallel force engine in the input files should use
+ * fewer threads. Its threads are stopped when its simulation ends. Any other files named in the
+ * settings, like the checkpoint file or the collision log, should be different for every input
+ * file.
+ *
+ * @author Matthew Jin
+ * @version 7/3/2018
+ */
+public class Ensemble
+{
+
+    private String[] inputs;
+    private String[] outputs;
+    private double[] seconds;
+    private String[] results;
+
+    /**
+     * Constructor for the Ensemble class which reads the manifest file.
+     *
+     * @param manifest the path of the manifest file
+     */
+    public Ensemble(String manifest) throws IOException
+    {
+        ArrayList<String> in = new ArrayList<String>(), out = new ArrayList<String>();
+        try(BufferedReader br = new BufferedReader(new FileReader(manifest)))
+        {
+            String line;
+            while((line = br.readLine()) != null)
+            {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#"))
+                {
+                    continue;
+                }
+                String[] args = line.split("\\s+");
+                in.add(args[0]);
+                out.add(args.length>1 ? args[1] : args[0] + ".out");
+            }
+        }
+
+        inputs = in.toArray(new String[0]);
+        outputs = out.toArray(new String[0]);
+        seconds = new double[inputs.length];
+        results = new String[inputs.length];
+    }
+
+    /**
+     * Gets the number of simulations in the manifest
+     *
+     * @return the number of simulations
+     */
+    public int size()
+    {
+        return inputs.length;
+    }
+
+    /**
+     * Runs every simulation and waits for all of them to finish. A simulation that fails does not
+     * stop the others; its error is kept for the summary.
+     *
+     * @param threads the number of simulations to run at the same time, or 0 to use one thread
+     * for each processor
+     * @return the wall time of the whole ensemble in seconds
+     */
+    public double run(int threads) throws InterruptedException
+    {
+        threads = threads>0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+        for(int k=0; k<inputs.length; k++)
+        {
+            final int run = k;
+            futures.add(pool.submit(new Runnable()
+            {
+                public void run()
+                {
+                    runOne(run);
+                }
+            }));
+        }
+
+        for(int k=0; k<futures.size(); k++)
+        {
+            try
+            {
+                futures.get(k).get();
+            } catch(ExecutionException e) {
+                results[k] = "failed: " + e.getCause();
+            }
+        }
+        pool.shutdown();
+
+        return (System.nanoTime()-start)/1e9;
+    }
+
+    /**
+     * Runs one simulation and records its wall time and result. The messages of the simulation
+     * are printed to its own log.
+     *
+     * @param k the index of the simulation
+     */
+    private void runOne(int k)
+    {
+        long start = System.nanoTime();
+        try(PrintStream console = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(outputs[k] + ".log"))))
+        {
+            NBody.runInput(inputs[k], outputs[k], false, null, null, console);
+            results[k] = "finished";
+        } catch(IOException | RuntimeException e) {
+            results[k] = "failed: " + e;
+        }
+        seconds[k] = (System.nanoTime()-start)/1e9;
+    }
+
+    /**
+     * Prints the summary, with one line for every simulation with its input file, output file,
+     * wall time in seconds, and result, followed by the total wall time.
+     *
+     * @param out the stream the summary is printed to
+     * @param total the wall time of the whole ensemble in seconds
+     */
+    public void printSummary(PrintStream out, double total)
+    {
+        double sum = 0;
+        for(int k=0; k<inputs.length; k++)
+        {
+            out.println(inputs[k] + "\t" + outputs[k] + "\t" + seconds[k] + "\t" + results[k]);
+            sum += seconds[k];
+        }
+        out.println("total\t" + inputs.length + " runs\t" + total + "\t(sum of runs " + sum + ")");
+    }
+
+    /**
+     * The main method runs the simulations in a manifest file. The first argument is the manifest
+     * file, the optional second argument is the number of simulations to run at the same time,
+     * and the optional third argument is the summary file, which defaults to the manifest file with
+     * ".summary" added to its name.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        Ensemble ensemble = new Ensemble(args[0]);
+        double total = ensemble.run(args.length>1 ? Integer.parseInt(args[1]) : 0);
+
+        PrintStream out = new PrintStream(args.length>2 ? args[2] : args[0] + ".summary");
+        ensemble.printSummary(out, total);
+        out.close();
+        ensemble.printSummary(System.out, total);
+    }
+
+}
@@ -0,0 +1,329 @@
+package nbody;
+
+/**
+ * The FFT class calculates the discrete Fourier transform of complex data using the radix-2 fast
+ * Fourier transform. The real and imaginary parts are stored in separate arrays of doubles. The
+ * size of the transform has to be a power of two. The cosines and sines used by the transform are
+ * calculated once in the constructor.
+ *
+ * The forward transform uses exp(-2 pi i jk/n), and the inverse transform uses exp(2 pi i jk/n)
+ * and divides by n, so doing a forward transform and then an inverse transform gives back the
+ * original data.
+ *
+ * The three dimensional transform works on an n by n by n grid where the value at (i, j, k) is
+ * stored at index (i*n+j)*n+k. It does a one dimensional transform along every line of the grid
+ * in each of the three directions.
+ *
+ * Real data can be transformed with about half of the work using the real transforms. The
+ * transform of real data has X[n-k] equal to the complex conjugate of X[k], so only the values
+ * for k from 0 to n/2 are kept. A line of n real values is packed into n/2 complex values, with
+ * the even points as the real parts and the odd points as the imaginary parts, which is
+ * transformed with a transform of size n/2 and then separated into the transform of the whole
+ * line. The three dimensional real transform does this along the last direction, which leaves an
+ * n by n by (n/2+1) grid of complex values stored at index (i*n+j)*(n/2+1)+k, and then does
+ * complex transforms along the other two directions.
+ *
+ * @author Matthew Jin
+ * @version 5/1/2018
+ */
+public class FFT
+{
+
+    private int n;
+    private int bits;
+    private double[] cos, sin;
+    private int[] reverse;
+    private double[] linere, lineim;
+    private FFT packed;
+
+    /**
+     * Constructor for the FFT class which sets the size of the transform.
+     *
+     * @precondition n is a power of two
+     *
+     * @param n the number of points in the transform
+     */
+    public FFT(int n)
+    {
+        if(n<1 || (n&(n-1))!=0)
+        {
+            throw new IllegalArgumentException("The size of the FFT has to be a power of two: " + n);
+        }
+        this.n = n;
+        bits = Integer.numberOfTrailingZeros(n);
+
+        cos = new double[n/2];
+        sin = new double[n/2];
+        for(int k=0; k<n/2; k++)
+        {
+            cos[k] = Math.cos(2*Math.PI*k/n);
+            sin[k] = Math.sin(2*Math.PI*k/n);
+        }
+
+        reverse = new int[n];
+        for(int k=0; k<n; k++)
+        {
+            reverse[k] = bits==0 ? 0 : Integer.reverse(k)>>>(32-bits);
+        }
+
+        linere = new double[n];
+        lineim = new double[n];
+    }
+
+    /**
+     * Gets the number of points in the transform
+     *
+     * @return the size of the transform
+     */
+    public int size()
+    {
+        return n;
+    }
+
+    /**
+     * Transforms n points in place.
+     *
+     * @param re the real parts
+     * @param im the imaginary parts
+     * @param inverse true for the inverse transform; false for the forward transform
+     */
+    public void transform(double[] re, double[] im, boolean inverse)
+    {
+        for(int k=0; k<n; k++)
+        {
+            int r = reverse[k];
+            if(r>k)
+            {
+                double t = re[k]; re[k] = re[r]; re[r] = t;
+                t = im[k]; im[k] = im[r]; im[r] = t;
+            }
+        } //Puts the points in bit reversed order
+
+        double sign = inverse ? 1 : -1;
+        for(int len=2; len<=n; len<<=1)
+        {
+            int half = len>>1, step = n/len;
+            for(int start=0; start<n; start+=len)
+            {
+                for(int k=0; k<half; k++)
+                {
+                    double wr = cos[k*step], wi = sign*sin[k*step];
+                    int a = start+k, b = a+half;
+                    double tr = re[b]*wr - im[b]*wi;
+                    double ti = re[b]*wi + im[b]*wr;
+                    re[b] = re[a]-tr; im[b] = im[a]-ti;
+                    re[a] += tr; im[a] += ti;
+                }
+            }
+        } //Combines transforms of length len/2 into transforms of length len
+
+        if(inverse)
+        {
+            double scale = 1.0/n;
+            for(int k=0; k<n; k++)
+            {
+                re[k] *= scale;
+                im[k] *= scale;
+            }
+        }
+    }
+
+    /**
+     * Transforms a line of n real points. The values for k from 0 to n/2 are stored in re and im
+     * starting at an offset.
+     *
+     * @precondition n is at least 2
+     *
+     * @param x the real points
+     * @param xoff the index of the first point in x
+     * @param re the array the real parts are stored in
+     * @param im the array the imaginary parts are stored in
+     * @param off the index the first value is stored at in re and im
+     */
+    public void realTransform(double[] x, int xoff, double[] re, double[] im, int off)
+    {
+        int m = n/2;
+        FFT half = half();
+        for(int k=0; k<m; k++)
+        {
+            half.linere[k] = x[xoff+2*k];
+            half.lineim[k] = x[xoff+2*k+1];
+        }
+        half.transform(half.linere, half.lineim, false);
+
+        for(int k=0; k<=m; k++)
+        {
+            double zr = half.linere[k%m], zi = half.lineim[k%m];
+            double cr = half.linere[(m-k)%m], ci = -half.lineim[(m-k)%m];
+            double er = (zr+cr)/2, ei = (zi+ci)/2;
+            double or = (zi-ci)/2, oi = -(zr-cr)/2; //(z - conj(z[m-k]))/(2i)
+            double wr = k<m ? cos[k] : -1, wi = k<m ? -sin[k] : 0;
+            re[off+k] = er + wr*or - wi*oi;
+            im[off+k] = ei + wr*oi + wi*or;
+        } //Separates the transforms of the even and odd points and combines them
+    }
+
+    /**
+     * Does the inverse of realTransform, turning the values for k from 0 to n/2 back into a line
+     * of n real points.
+     *
+     * @param re the real parts
+     * @param im the imaginary parts
+     * @param off the index of the first value in re and im
+     * @param x the array the real points are stored in
+     * @param xoff the index the first point is stored at in x
+     */
+    public void realInverse(double[] re, double[] im, int off, double[] x, int xoff)
+    {
+        int m = n/2;
+        FFT half = half();
+        for(int k=0; k<m; k++)
+        {
+            double ar = re[off+k], ai = im[off+k];
+            double br = re[off+m-k], bi = -im[off+m-k];
+            double er = (ar+br)/2, ei = (ai+bi)/2;
+            double dr = (ar-br)/2, di = (ai-bi)/2;
+            double wr = cos[k], wi = sin[k]; //The conjugate of exp(-2 pi i k/n)
+            double or = dr*wr - di*wi, oi = dr*wi + di*wr;
+            half.linere[k] = er - oi;
+            half.lineim[k] = ei + or;
+        } //Rebuilds the transform of the packed points from the even and odd parts
+        half.transform(half.linere, half.lineim, true);
+
+        for(int k=0; k<m; k++)
+        {
+            x[xoff+2*k] = half.linere[k];
+            x[xoff+2*k+1] = half.lineim[k];
+        }
+    }
+
+    /**
+     * Gets the transform of size n/2 used by the real transforms, creating it the first time.
+     *
+     * @return the transform of half the size
+     */
+    private FFT half()
+    {
+        if(packed==null)
+        {
+            packed = new FFT(n/2);
+        }
+        return packed;
+    }
+
+    /**
+     * Transforms an n by n by n grid of real values. The result is an n by n by (n/2+1) grid of
+     * complex values.
+     *
+     * @param x the real values, with n*n*n values
+     * @param re the array the real parts are stored in, with n*n*(n/2+1) values
+     * @param im the array the imaginary parts are stored in, with n*n*(n/2+1) values
+     */
+    public void realTransform3D(double[] x, double[] re, double[] im)
+    {
+        int h = n/2+1;
+        for(int line=0; line<n*n; line++)
+        {
+            realTransform(x, line*n, re, im, line*h);
+        }
+        transformColumns(re, im, false);
+    }
+
+    /**
+     * Does the inverse of realTransform3D, turning an n by n by (n/2+1) grid of complex values
+     * back into an n by n by n grid of real values. The complex values are changed.
+     *
+     * @param re the real parts, with n*n*(n/2+1) values
+     * @param im the imaginary parts, with n*n*(n/2+1) values
+     * @param x the array the real values are stored in, with n*n*n values
+     */
+    public void realInverse3D(double[] re, double[] im, double[] x)
+    {
+        int h = n/2+1;
+        transformColumns(re, im, true);
+        for(int line=0; line<n*n; line++)
+        {
+            realInverse(re, im, line*h, x, line*n);
+        }
+    }
+
+    /**
+     * Transforms an n by n by (n/2+1) grid of complex values in place along the first two
+     * directions.
+     *
+     * @param re the real parts
+     * @param im the imaginary parts
+     * @param inverse true for the inverse transform; false for the forward transform
+     */
+    private void transformColumns(double[] re, double[] im, boolean inverse)
+    {
+        int h = n/2+1;
+        int[] strides = {n*h, h};
+        for(int d=0; d<2; d++)
+        {
+            int stride = strides[d];
+            for(int a=0; a<n; a++)
+            {
+                for(int k=0; k<h; k++)
+                {
+                    int base = d==0 ? a*h+k : a*n*h+k;
+                    for(int j=0; j<n; j++)
+                    {
+                        linere[j] = re[base+j*stride];
+                        lineim[j] = im[base+j*stride];
+                    }
+                    transform(linere, lineim, inverse);
+                    for(int j=0; j<n; j++)
+                    {
+                        re[base+j*stride] = linere[j];
+                        im[base+j*stride] = lineim[j];
+                    }
+                }
+            }
+        } //Copies each line into a buffer, transforms it, and copies it back
+    }
+
+    /**
+     * Transforms an n by n by n grid in place.
+     *
+     * @param re the real parts, with n*n*n values
+     * @param im the imaginary parts, with n*n*n values
+     * @param inverse true for the inverse transform; false for the forward transform
+     */
+    public void transform3D(double[] re, double[] im, boolean inverse)
+    {
+        int[] strides = {n*n, n, 1};
+        for(int d=0; d<3; d++)
+        {
+            int stride = strides[d];
+            for(int a=0; a<n; a++)
+            {
+                for(int b=0; b<n; b++)
+                {
+                    int base;
+                    if(d==0)
+                    {
+                        base = a*n+b;
+                    } else if(d==1) {
+                        base = a*n*n+b;
+                    } else {
+                        base = (a*n+b)*n;
+                    }
+
+                    for(int k=0; k<n; k++)
+                    {
+                        linere[k] = re[base+k*stride];
+                        lineim[k] = im[base+k*stride];
+                    }
+                    transform(linere, lineim, inverse);
+                    for(int k=0; k<n; k++)
+                    {
+                        re[base+k*stride] = linere[k];
+                        im[base+k*stride] = lineim[k];
+                    }
+                }
+            }
+        } //Copies each line into a buffer, transforms it, and copies it back
+    }
+
+}
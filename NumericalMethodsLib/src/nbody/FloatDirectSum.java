@@ -0,0 +1,154 @@
+package nbody;
+
+/**
+ * The FloatDirectSum class calculates the same direct sum as the DirectSum class, but does the
+ * work inside the pair loop with floats instead of doubles. It is meant for runs that are only
+ * used for pictures or movies, where the positions only need to be accurate to a few digits. As
+ * floats, the positions and masses take half as much memory, so twice as many bodies fit in the
+ * processor's cache.
+ *
+ * Floats only have about seven digits, and their largest value is about 3.4e38, which is too
+ * small for the cube of a distance in meters. Before every force pass, the center of mass is
+ * found with doubles, and the positions are stored in float arrays relative to the center of
+ * mass and divided by a power of two close to the size of the system, so that they are all
+ * between -1 and 1. Dividing by a power of two does not add any rounding. The masses are stored
+ * as G*m divided by the same length squared, so that the length cancels out of the accelerations.
+ * The distances and the force of each pair are then
+ * calculated with floats, but the forces on each body are added up with doubles, so that the
+ * rounding errors of the pairs do not build up over thousands of bodies. The relative error of
+ * the accelerations is a few parts in a million instead of about 1e-15.
+ *
+ * Like DirectSum, it adds up the potential at each body if the system is tracking potentials.
+ *
+ * @author Matthew Jin
+ * @version 7/17/2018
+ */
+public class FloatDirectSum implements ForceEngine
+{
+
+    private double softening;
+    private long interactions;
+
+    private float[] x = new float[0], y = new float[0], z = new float[0], gm = new float[0];
+
+    /**
+     * Constructor for the FloatDirectSum class with no softening.
+     */
+    public FloatDirectSum()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructor for the FloatDirectSum class which sets the softening length.
+     *
+     * @param softening the softening length in meters
+     */
+    public FloatDirectSum(double softening)
+    {
+        this.softening = softening;
+    }
+
+    /**
+     * Calculates the acceleration of every body by copying the positions into the float arrays
+     * and looping over every other body.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodySystem s)
+    {
+        int n = s.size();
+        if(x.length<n)
+        {
+            x = new float[n]; y = new float[n]; z = new float[n]; gm = new float[n];
+        }
+
+        double inverse = convert(s);
+        float e2 = (float) (softening*softening*inverse*inverse);
+        double[] pot = s.getPotentials();
+        boolean potentials = pot!=null;
+
+        for(int j=0; j<n; j++)
+        {
+            float xj = x[j], yj = y[j], zj = z[j];
+            double sumx = 0, sumy = 0, sumz = 0, sump = 0;
+            for(int i=0; i<n; i++)
+            {
+                if(i!=j)
+                {
+                    float dx = x[i]-xj, dy = y[i]-yj, dz = z[i]-zj;
+                    float d2 = dx*dx+dy*dy+dz*dz+e2;
+                    float scalar = gm[i]/(d2*(float) Math.sqrt(d2));
+                    sumx += dx*scalar; sumy += dy*scalar; sumz += dz*scalar;
+                    if(potentials)
+                    {
+                        sump -= scalar*d2;
+                    }
+                }
+            }
+            s.ax[j] = sumx; s.ay[j] = sumy; s.az[j] = sumz;
+            if(potentials)
+            {
+                pot[j] = sump/inverse;
+            }
+        } //The scale cancels out of the accelerations, but not out of the potentials
+
+        if(potentials)
+        {
+            s.potentialsUpdated();
+        }
+        interactions = (long) n*(n-1);
+    }
+
+    /**
+     * Gets the number of pair interactions that were calculated by the last call to
+     * accelerations
+     *
+     * @return the number of interactions
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+    /**
+     * Copies the positions relative to the center of mass into the float arrays, divided by a
+     * power of two that is at least the largest distance from the center of mass, and copies G
+     * times the masses divided by the square of the same power of two.
+     *
+     * @param s the system of bodies
+     * @return one over the power of two, in 1/meters
+     */
+    private double convert(BodySystem s)
+    {
+        int n = s.size();
+        double mass = 0, cx = 0, cy = 0, cz = 0;
+        for(int i=0; i<n; i++)
+        {
+            mass += s.m[i];
+            cx += s.m[i]*s.x[i]; cy += s.m[i]*s.y[i]; cz += s.m[i]*s.z[i];
+        }
+        if(mass>0)
+        {
+            cx /= mass; cy /= mass; cz /= mass;
+        }
+
+        double r = 0;
+        for(int i=0; i<n; i++)
+        {
+            r = Math.max(r, Math.max(Math.abs(s.x[i]-cx), Math.max(Math.abs(s.y[i]-cy), Math.abs(s.z[i]-cz))));
+        }
+        double scale = r>0 ? Math.scalb(1.0, Math.getExponent(r)+1) : 1;
+        double inverse = 1/scale;
+
+        for(int i=0; i<n; i++)
+        {
+            x[i] = (float) ((s.x[i]-cx)*inverse);
+            y[i] = (float) ((s.y[i]-cy)*inverse);
+            z[i] = (float) ((s.z[i]-cz)*inverse);
+            gm[i] = (float) (NBody.G*s.m[i]*inverse*inverse);
+        }
+        return inverse;
+    }
+
+}
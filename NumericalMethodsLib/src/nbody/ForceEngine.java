@@ -0,0 +1,52 @@
+package nbody;
+
+/**
+ * The ForceEngine interface is used by the different ways of calculating the gravitational
+ * accelerations of the bodies in a BodySystem. An engine reads the positions and masses of the
+ * bodies and stores the accelerations in the ax, ay, and az arrays of the system.
+ *
+ * The integrators call the engine with the BodyColumns interface, so that they can also move a
+ * system that is not stored in arrays, such as an OffHeapSystem. By default a BodySystem is passed
+ * on to the engine's BodySystem method and any other system is not supported. Engines that can
+ * read the columns a tile at a time, such as DirectSum and ParticleMesh, override that method.
+ *
+ * @author Matthew Jin
+ * @version 3/20/2018
+ */
+public interface ForceEngine
+{
+
+    /**
+     * Calculates the acceleration of every body in the system and stores it in the system's
+     * acceleration arrays.
+     *
+     * @param s the system of bodies
+     */
+    void accelerations(BodySystem s);
+
+    /**
+     * Calculates the acceleration of every body in a system that is stored in columns and stores
+     * it in the ax, ay, and az columns.
+     *
+     * @param s the system of bodies
+     * @throws UnsupportedOperationException if the engine needs a BodySystem and s is not one
+     */
+    default void accelerations(BodyColumns s)
+    {
+        if(!(s instanceof BodySystem))
+        {
+            throw new UnsupportedOperationException(getClass().getSimpleName() 
+                    + " only works on a BodySystem");
+        }
+        accelerations((BodySystem) s);
+    }
+
+    /**
+     * Gets the number of pair interactions that were calculated by the last call to
+     * accelerations
+     *
+     * @return the number of interactions
+     */
+    long getInteractions();
+
+}
@@ -0,0 +1,868 @@
+package nbody;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import function.RandomSource;
+
+/**
+ * The InitialConditions class reads and writes the starting positions, velocities, and masses of
+ * a large number of bodies much faster than the "man" input file, which needs three lines and
+ * several substrings for every body. Both formats are read straight into a BodySystem, without
+ * creating any Body objects. The units are the same as the input file and the Star class:
+ * parsecs, kilometers per second, and solar masses.
+ *
+ * The readBinaryOffHeap, readCSVOffHeap, and randomOffHeap methods put the bodies straight into
+ * an OffHeapSystem in direct memory or mapped from a new file instead, so a system that does not
+ * fit in the Java heap never has to be in a BodySystem. The loaders write to either kind of system
+ * through the BodyColumns interface.
+ *
+ * The binary format starts with the int MAGIC, the int VERSION, the number of bodies as an int,
+ * and 4 bytes of padding, followed by the x, y, z, vx, vy, vz, and m columns, one after another.
+ * All of the values are little endian. Each column is read into a BodySystem with one bulk copy,
+ * and into an OffHeapSystem one tile at a time.
+ *
+ * The CSV format has one body on each line, with the values x,y,z,vx,vy,vz,m separated by commas.
+ * Lines that do not start with a number, like a header line or a blank line, are skipped. The
+ * file is mapped into memory and split into a few chunks for each thread at the line breaks. The
+ * lines in each chunk are counted in parallel, which gives the index of the first body in every
+ * chunk, and then the chunks are parsed in parallel straight into the arrays.
+ * Numbers with at most 15 digits and a small exponent are parsed exactly without creating a
+ * String; other numbers are passed to Double.parseDouble. A line that starts with NaN or Infinity
+ * is treated as a body, and a body with fewer than 7 values, a value that is not a number, or a
+ * NaN or infinite value makes readCSV throw an IOException with the line number.
+ *
+ * The random method generates random bodies in parallel from a seed. The bodies are split into
+ * blocks of a fixed size, and each block uses its own RandomSource from the seed and the index of
+ * the block, so the bodies are the same for any number of threads. Each body uses the same
+ * formula as Star.random.
+ *
+ * The main method converts an input file in the format of NBody's input.txt into either format.
+ *
+ * @author Matthew Jin
+ * @version 6/19/2018
+ */
+public class InitialConditions
+{
+
+    public final static int MAGIC = 0x4E424943;
+    public final static int VERSION = 1;
+
+    private final static int HEADER = 16;
+    private final static int BLOCK = 4096;
+
+    private final static double PARSEC_TO_METER = 3.086e+16;
+    private final static double KMPS_TO_MPS = 1000;
+    private final static double SOLARMASS_TO_KG = 1.98855e+30;
+
+    private final static double[] POWERS = new double[23];
+    static
+    {
+        POWERS[0] = 1;
+        for(int k=1; k<POWERS.length; k++)
+        {
+            POWERS[k] = POWERS[k-1]*10;
+        } //Every power of ten up to 10^22 is exact as a double
+    }
+
+    /**
+     * Reads a binary initial condition file.
+     *
+     * @param path the path of the file
+     * @return the system of bodies in meters, meters per second, and kilograms
+     */
+    public static BodySystem readBinary(String path) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+        {
+            int n = readHeader(channel, path);
+            BodySystem s = new BodySystem(n);
+            double[][] columns = {s.x, s.y, s.z, s.vx, s.vy, s.vz, s.m};
+            for(int k=0; k<columns.length; k++)
+            {
+                channel.map(FileChannel.MapMode.READ_ONLY, HEADER+8L*n*k, 8L*n)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(columns[k], 0, n);
+            }
+            toSI(s);
+            return s;
+        }
+    }
+
+    /**
+     * Reads a binary initial condition file straight into an OffHeapSystem. Each column is mapped
+     * one chunk of the OffHeapSystem at a time and copied one tile at a time.
+     *
+     * @param path the path of the file
+     * @param mapped the path of the new file the system is mapped from, or null to use direct
+     * memory
+     * @return the system of bodies in meters, meters per second, and kilograms
+     */
+    public static OffHeapSystem readBinaryOffHeap(String path, String mapped) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+        {
+            int n = readHeader(channel, path);
+            OffHeapSystem s = mapped!=null ? OffHeapSystem.create(mapped, n) : new OffHeapSystem(n);
+            double[] tile = new double[BodyColumns.TILE];
+            for(int k=0; k<=BodyColumns.M; k++)
+            {
+                for(long chunk=0; chunk<n; chunk+=OffHeapSystem.CHUNK)
+                {
+                    int size = (int) Math.min(OffHeapSystem.CHUNK, n-chunk);
+                    DoubleBuffer column = channel.map(FileChannel.MapMode.READ_ONLY, 
+                            HEADER+8L*(n*k+chunk), 8L*size).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                    for(int start=0; start<size; start+=BodyColumns.TILE)
+                    {
+                        int length = Math.min(BodyColumns.TILE, size-start);
+                        column.get(start, tile, 0, length);
+                        s.write(k, chunk+start, tile, length);
+                    }
+                } //A mapping can hold at most 2^31 bytes, so a long column is mapped in pieces
+            }
+            toSI(s);
+            return s;
+        }
+    }
+
+    /**
+     * Reads and checks the header of a binary initial condition file.
+     *
+     * @param channel the channel of the file
+     * @param path the path of the file, for the error messages
+     * @return the number of bodies
+     */
+    private static int readHeader(FileChannel channel, String path) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+
+        if(header.remaining()<HEADER || header.getInt()!=MAGIC)
+        {
+            throw new IOException(path + " is not an initial condition file");
+        }
+        int version = header.getInt();
+        if(version!=VERSION)
+        {
+            throw new IOException("Unsupported initial condition version " + version);
+        }
+        int n = header.getInt();
+        if(n<0 || channel.size()<HEADER+56L*n)
+        {
+            throw new IOException(path + " is incomplete");
+        }
+        return n;
+    }
+
+    /**
+     * Writes a system of bodies to a binary initial condition file.
+     *
+     * @param s the system of bodies in meters, meters per second, and kilograms
+     * @param path the path of the file
+     */
+    public static void writeBinary(BodySystem s, String path) throws IOException
+    {
+        int n = s.size();
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).flip();
+            channel.write(header, 0);
+
+            double[][] columns = {s.x, s.y, s.z, s.vx, s.vy, s.vz, s.m};
+            double[] scales = {PARSEC_TO_METER, PARSEC_TO_METER, PARSEC_TO_METER,
+                    KMPS_TO_MPS, KMPS_TO_MPS, KMPS_TO_MPS, SOLARMASS_TO_KG};
+            for(int k=0; k<columns.length; k++)
+            {
+                DoubleBuffer column = channel.map(FileChannel.MapMode.READ_WRITE, HEADER+8L*n*k, 8L*n)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                for(int i=0; i<n; i++)
+                {
+                    column.put(i, columns[k][i]/scales[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a system of bodies to a CSV initial condition file.
+     *
+     * @param s the system of bodies in meters, meters per second, and kilograms
+     * @param path the path of the file
+     */
+    public static void writeCSV(BodySystem s, String path) throws IOException
+    {
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(path), 1<<16));
+        out.println("x,y,z,vx,vy,vz,m");
+        for(int i=0; i<s.size(); i++)
+        {
+            out.println(s.x[i]/PARSEC_TO_METER + "," + s.y[i]/PARSEC_TO_METER + ","
+                    + s.z[i]/PARSEC_TO_METER + "," + s.vx[i]/KMPS_TO_MPS + ","
+                    + s.vy[i]/KMPS_TO_MPS + "," + s.vz[i]/KMPS_TO_MPS + "," + s.m[i]/SOLARMASS_TO_KG);
+        }
+        out.close();
+    }
+
+    /**
+     * Reads a CSV initial condition file, parsing the file in parallel.
+     *
+     * @param path the path of the file
+     * @param threads the number of threads, or 0 to use one thread for each processor
+     * @return the system of bodies in meters, meters per second, and kilograms
+     */
+    public static BodySystem readCSV(String path, int threads) throws IOException
+    {
+        return (BodySystem) readCSV(path, threads, false, null);
+    }
+
+    /**
+     * Reads a CSV initial condition file straight into an OffHeapSystem, parsing the file in
+     * parallel.
+     *
+     * @param path the path of the file
+     * @param threads the number of threads, or 0 to use one thread for each processor
+     * @param mapped the path of the new file the system is mapped from, or null to use direct
+     * memory
+     * @return the system of bodies in meters, meters per second, and kilograms
+     */
+    public static OffHeapSystem readCSVOffHeap(String path, int threads, String mapped) throws IOException
+    {
+        return (OffHeapSystem) readCSV(path, threads, true, mapped);
+    }
+
+    /**
+     * Reads a CSV initial condition file into a BodySystem or an OffHeapSystem, parsing the file
+     * in parallel.
+     *
+     * @param path the path of the file
+     * @param threads the number of threads, or 0 to use one thread for each processor
+     * @param offHeap true to read the bodies into an OffHeapSystem
+     * @param mapped the path of the new file the OffHeapSystem is mapped from, or null to use
+     * direct memory
+     * @return the system of bodies in meters, meters per second, and kilograms
+     */
+    private static BodyColumns readCSV(String path, int threads, boolean offHeap, String mapped) 
+            throws IOException
+    {
+        threads = threads>0 ? threads : Runtime.getRuntime().availableProcessors();
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            int chunks = (int) Math.max(1, Math.min(4L*threads, size/(1<<16)));
+            chunks = (int) Math.max(chunks, size/(1<<30)+1); //Each chunk is mapped separately
+
+            long[] starts = new long[chunks+1];
+            starts[chunks] = size;
+            ByteBuffer one = ByteBuffer.allocate(1);
+            for(int c=1; c<chunks; c++)
+            {
+                long p = Math.max(starts[c-1], size*c/chunks);
+                while(p<size)
+                {
+                    one.clear();
+                    channel.read(one, p++);
+                    if(one.get(0)=='\n')
+                    {
+                        break;
+                    }
+                }
+                starts[c] = p;
+            } //Moves the start of every chunk to just after a line break
+
+            MappedByteBuffer[] maps = new MappedByteBuffer[chunks];
+            for(int c=0; c<chunks; c++)
+            {
+                maps[c] = channel.map(FileChannel.MapMode.READ_ONLY, starts[c], starts[c+1]-starts[c]);
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try
+            {
+                long[] counts = new long[chunks+1];
+                pool.invoke(new Chunks(maps, counts, null, null, null, 0, chunks));
+
+                for(int c=0; c<chunks; c++)
+                {
+                    counts[c+1] += counts[c];
+                } //Turns the counts into the index of the first body in each chunk
+                long n = counts[chunks];
+                for(int c=chunks; c>0; c--)
+                {
+                    counts[c] = counts[c-1];
+                }
+                counts[0] = 0;
+
+                BodyColumns s;
+                if(offHeap)
+                {
+                    s = mapped!=null ? OffHeapSystem.create(mapped, n) : new OffHeapSystem(n);
+                } else if(n>Integer.MAX_VALUE) {
+                    throw new IOException(path + " has " + n + " bodies, which do not fit in a BodySystem");
+                } else {
+                    s = new BodySystem((int) n);
+                }
+                String[] errors = new String[chunks];
+                int[] positions = new int[chunks];
+                pool.invoke(new Chunks(maps, counts, s, errors, positions, 0, chunks));
+
+                for(int c=0; c<chunks; c++)
+                {
+                    if(errors[c]!=null)
+                    {
+                        long line = 1 + lineBreaks(maps[c], positions[c]);
+                        for(int k=0; k<c; k++)
+                        {
+                            line += lineBreaks(maps[k], maps[k].limit());
+                        }
+                        throw new IOException(path + ", line " + line + ": " + errors[c]);
+                    }
+                } //Reports the first bad line in the file
+                toSI(s);
+                return s;
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Generates random bodies in parallel. The ranges are in parsecs, kilometers per second, and
+     * solar masses, and are used in the same way as Star.random.
+     *
+     * @param n the number of bodies
+     * @param minp the minimum position
+     * @param maxp the maximum position
+     * @param minv the minimum velocity
+     * @param maxv the maximum velocity
+     * @param minm the minimum mass
+     * @param maxm the maximum mass
+     * @param seed the seed
+     * @param threads the number of threads, or 0 to use one thread for each processor
+     * @return the system of bodies in meters, meters per second, and kilograms
+     */
+    public static BodySystem random(int n, double minp, double maxp, double minv, double maxv,
+            double minm, double maxm, long seed, int threads)
+    {
+        BodySystem s = new BodySystem(n);
+        random(s, minp, maxp, minv, maxv, minm, maxm, seed, threads);
+        return s;
+    }
+
+    /**
+     * Generates random bodies in parallel straight into an OffHeapSystem. The bodies are the same
+     * as the bodies from the random method with the same seed.
+     *
+     * @param n the number of bodies
+     * @param minp the minimum position
+     * @param maxp the maximum position
+     * @param minv the minimum velocity
+     * @param maxv the maximum velocity
+     * @param minm the minimum mass
+     * @param maxm the maximum mass
+     * @param seed the seed
+     * @param threads the number of threads, or 0 to use one thread for each processor
+     * @param mapped the path of the new file the system is mapped from, or null to use direct
+     * memory
+     * @return the system of bodies in meters, meters per second, and kilograms
+     */
+    public static OffHeapSystem randomOffHeap(long n, double minp, double maxp, double minv, double maxv,
+            double minm, double maxm, long seed, int threads, String mapped) throws IOException
+    {
+        OffHeapSystem s = mapped!=null ? OffHeapSystem.create(mapped, n) : new OffHeapSystem(n);
+        random(s, minp, maxp, minv, maxv, minm, maxm, seed, threads);
+        return s;
+    }
+
+    /**
+     * Fills a system with random bodies in parallel.
+     *
+     * @param s the system of bodies
+     * @param minp the minimum position
+     * @param maxp the maximum position
+     * @param minv the minimum velocity
+     * @param maxv the maximum velocity
+     * @param minm the minimum mass
+     * @param maxm the maximum mass
+     * @param seed the seed
+     * @param threads the number of threads, or 0 to use one thread for each processor
+     */
+    private static void random(BodyColumns s, double minp, double maxp, double minv, double maxv,
+            double minm, double maxm, long seed, int threads)
+    {
+        threads = threads>0 ? threads : Runtime.getRuntime().availableProcessors();
+        long n = s.count();
+        double[] ranges = {minp*PARSEC_TO_METER, maxp*PARSEC_TO_METER, minv*KMPS_TO_MPS,
+                maxv*KMPS_TO_MPS, minm*SOLARMASS_TO_KG, maxm*SOLARMASS_TO_KG};
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try
+        {
+            pool.invoke(new Blocks(s, ranges, seed, 0, (n+BLOCK-1)/BLOCK));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Generates the random bodies of one block, drawing the numbers in the same order as
+     * Star.random: the x, y, and z positions, the x, y, and z velocities, and the mass. The bodies
+     * are generated into arrays one tile at a time and then copied into the system.
+     *
+     * @param s the system of bodies
+     * @param ranges the minimum and maximum position, velocity, and mass in meters, meters per
+     * second, and kilograms
+     * @param seed the seed
+     * @param block the index of the block
+     */
+    private static void randomBlock(BodyColumns s, double[] ranges, long seed, long block)
+    {
+        RandomSource random = RandomSource.forBlock(seed, block);
+        double minp = ranges[0], maxp = ranges[1], minv = ranges[2], maxv = ranges[3];
+        double minm = ranges[4], maxm = ranges[5];
+
+        double[][] tile = new double[BodyColumns.M+1][BodyColumns.TILE];
+        long end = Math.min(s.count(), (block+1)*BLOCK);
+        for(long start=block*BLOCK; start<end; start+=BodyColumns.TILE)
+        {
+            int length = (int) Math.min(BodyColumns.TILE, end-start);
+            for(int i=0; i<length; i++)
+            {
+                tile[BodyColumns.X][i] = random.nextDouble()*maxp + minp;
+                tile[BodyColumns.Y][i] = random.nextDouble()*maxp + minp;
+                tile[BodyColumns.Z][i] = random.nextDouble()*maxp + minp;
+                tile[BodyColumns.VX][i] = random.nextDouble()*maxv + minv;
+                tile[BodyColumns.VY][i] = random.nextDouble()*maxv + minv;
+                tile[BodyColumns.VZ][i] = random.nextDouble()*maxv + minv;
+                tile[BodyColumns.M][i] = random.nextDouble()*maxm + minm;
+            }
+            for(int k=0; k<tile.length; k++)
+            {
+                s.write(k, start, tile[k], length);
+            }
+        }
+    }
+
+    /**
+     * Converts the units of a system from parsecs, kilometers per second, and solar masses to
+     * meters, meters per second, and kilograms, one tile at a time.
+     *
+     * @param s the system of bodies
+     */
+    private static void toSI(BodyColumns s)
+    {
+        double[] scales = {PARSEC_TO_METER, PARSEC_TO_METER, PARSEC_TO_METER,
+                KMPS_TO_MPS, KMPS_TO_MPS, KMPS_TO_MPS, SOLARMASS_TO_KG};
+        double[] tile = new double[BodyColumns.TILE];
+        long n = s.count();
+        for(long start=0; start<n; start+=BodyColumns.TILE)
+        {
+            int length = (int) Math.min(BodyColumns.TILE, n-start);
+            for(int k=0; k<scales.length; k++)
+            {
+                s.read(k, start, tile, length);
+                for(int i=0; i<length; i++)
+                {
+                    tile[i] *= scales[k];
+                }
+                s.write(k, start, tile, length);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a line holds a body, which is when it starts with a number, NaN, or
+     * Infinity. The lines that start with NaN or Infinity are counted as bodies so that parse
+     * can report them instead of skipping them.
+     *
+     * @param b the mapped chunk
+     * @param p the position of the start of the line
+     * @param limit the position of the end of the line
+     * @return true if the line holds a body
+     */
+    private static boolean isBody(ByteBuffer b, int p, int limit)
+    {
+        byte c = b.get(p);
+        return (c>='0' && c<='9') || c=='-' || c=='+' || c=='.' 
+                || startsWith(b, p, limit, "NaN") || startsWith(b, p, limit, "Infinity");
+    }
+
+    /**
+     * Checks whether the text at a position starts with a word.
+     *
+     * @param b the mapped chunk
+     * @param p the position of the text
+     * @param limit the position of the end of the line
+     * @param word the word
+     * @return true if the text starts with the word
+     */
+    private static boolean startsWith(ByteBuffer b, int p, int limit, String word)
+    {
+        if(limit-p<word.length())
+        {
+            return false;
+        }
+        for(int k=0; k<word.length(); k++)
+        {
+            if(b.get(p+k)!=word.charAt(k))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the line breaks in a chunk before a position.
+     *
+     * @param b the mapped chunk
+     * @param end the position to stop at
+     * @return the number of line breaks
+     */
+    private static long lineBreaks(ByteBuffer b, int end)
+    {
+        long lines = 0;
+        for(int p=0; p<end; p++)
+        {
+            if(b.get(p)=='\n')
+            {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Counts the bodies in a chunk, or parses them into the system if it is not null. When
+     * parsing, the first line that is not a valid body stops the parse, and the reason and the
+     * position of the line are stored.
+     *
+     * @param b the mapped chunk
+     * @param s the system of bodies, or null to only count
+     * @param first the index of the first body in the chunk
+     * @param error an array whose first value is set to the reason a line is not a valid body
+     * @param position an array whose first value is set to the position of the start of that line
+     * @return the number of bodies in the chunk
+     */
+    private static int parse(ByteBuffer b, BodyColumns s, long first, String[] error, int[] position)
+    {
+        int limit = b.limit(), p = 0, count = 0;
+        int[] end = new int[1];
+
+        while(p<limit)
+        {
+            int next = p;
+            while(next<limit && b.get(next)!='\n')
+            {
+                next++;
+            }
+            while(p<next && (b.get(p)==' ' || b.get(p)=='\t' || b.get(p)=='\r'))
+            {
+                p++;
+            }
+
+            if(p<next && isBody(b, p, next))
+            {
+                if(s!=null)
+                {
+                    String reason = parseBody(b, p, next, s, first+count, end);
+                    if(reason!=null)
+                    {
+                        error[0] = reason;
+                        position[0] = p;
+                        return count;
+                    }
+                }
+                count++;
+            }
+            p = next+1;
+        }
+        return count;
+    }
+
+    /**
+     * Parses the seven values of one body into the x, y, z, vx, vy, vz, and m columns.
+     *
+     * @param b the mapped chunk
+     * @param p the position of the first value
+     * @param limit the position of the end of the line
+     * @param s the system of bodies
+     * @param i the index of the body
+     * @param end an array used by parseDouble for the position of each comma
+     * @return null if the body is valid, or the reason it is not
+     */
+    private static String parseBody(ByteBuffer b, int p, int limit, BodyColumns s, long i, int[] end)
+    {
+        for(int k=0; k<7; k++)
+        {
+            if(k>0 && end[0]>=limit)
+            {
+                return "a body needs 7 values, but the line has " + k;
+            }
+            double value;
+            try
+            {
+                value = parseDouble(b, p, limit, end);
+            } catch(NumberFormatException e) {
+                return "value " + (k+1) + " is not a number";
+            }
+            if(Double.isNaN(value) || Double.isInfinite(value))
+            {
+                return "value " + (k+1) + " is " + value;
+            }
+            s.put(k, i, value);
+            p = end[0]+1;
+        }
+        return null;
+    }
+
+    /**
+     * Parses one number that ends at a comma or the end of the line. Numbers with at most 15
+     * significant digits and a power of ten of at most 22 are exact doubles divided or multiplied
+     * by an exact power of ten, which rounds correctly. Any other number is parsed with
+     * Double.parseDouble.
+     *
+     * @param b the mapped chunk
+     * @param p the position of the start of the number
+     * @param limit the position of the end of the line
+     * @param end an array whose first value is set to the position of the comma after the number
+     * @return the number
+     */
+    private static double parseDouble(ByteBuffer b, int p, int limit, int[] end)
+    {
+        int start = p, stop = p;
+        while(stop<limit && b.get(stop)!=',')
+        {
+            stop++;
+        }
+        end[0] = stop;
+        while(stop>start && (b.get(stop-1)==' ' || b.get(stop-1)=='\r' || b.get(stop-1)=='\t'))
+        {
+            stop--;
+        }
+        while(start<stop && b.get(start)==' ')
+        {
+            start++;
+        }
+
+        boolean negative = false;
+        int q = start;
+        if(q<stop && (b.get(q)=='-' || b.get(q)=='+'))
+        {
+            negative = b.get(q)=='-';
+            q++;
+        }
+
+        long mantissa = 0;
+        int digits = 0, read = 0, scale = 0;
+        boolean point = false, fast = true;
+        for(; q<stop; q++)
+        {
+            byte c = b.get(q);
+            if(c>='0' && c<='9')
+            {
+                read++;
+                if(mantissa>0 || c!='0')
+                {
+                    digits++;
+                }
+                mantissa = mantissa*10 + (c-'0');
+                if(point)
+                {
+                    scale--;
+                }
+            } else if(c=='.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if(q<stop && (b.get(q)=='e' || b.get(q)=='E'))
+        {
+            q++;
+            boolean negexp = false;
+            if(q<stop && (b.get(q)=='-' || b.get(q)=='+'))
+            {
+                negexp = b.get(q)=='-';
+                q++;
+            }
+            int exp = 0, expDigits = 0;
+            for(; q<stop && b.get(q)>='0' && b.get(q)<='9' && exp<1000; q++)
+            {
+                exp = exp*10 + (b.get(q)-'0');
+                expDigits++;
+            }
+            scale += negexp ? -exp : exp;
+            fast = expDigits>0;
+        }
+        fast &= read>0 && q==stop && digits<=15 && Math.abs(scale)<POWERS.length;
+        //Numbers without digits, like "." or "1e", go to Double.parseDouble, which rejects them
+
+        if(!fast)
+        {
+            byte[] bytes = new byte[stop-start];
+            for(int k=0; k<bytes.length; k++)
+            {
+                bytes[k] = b.get(start+k);
+            }
+            return Double.parseDouble(new String(bytes, StandardCharsets.ISO_8859_1));
+        }
+        double value = scale<0 ? mantissa/POWERS[-scale] : mantissa*POWERS[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * A task that counts or parses a range of chunks. Ranges of more than one chunk are split in
+     * half.
+     */
+    private static class Chunks extends RecursiveAction
+    {
+
+        private MappedByteBuffer[] maps;
+        private long[] counts;
+        private BodyColumns s;
+        private String[] errors;
+        private int[] positions;
+        private int lo, hi;
+
+        /**
+         * Constructor for the Chunks class.
+         *
+         * @param maps the mapped chunks
+         * @param counts the number of bodies in each chunk when counting, or the index of the
+         * first body in each chunk when parsing
+         * @param s the system of bodies, or null to count the bodies
+         * @param errors the reason the first bad line in each chunk is not a valid body, or null
+         * when counting
+         * @param positions the position of the first bad line in each chunk, or null when counting
+         * @param lo the index of the first chunk
+         * @param hi one more than the index of the last chunk
+         */
+        Chunks(MappedByteBuffer[] maps, long[] counts, BodyColumns s, String[] errors, int[] positions, 
+                int lo, int hi)
+        {
+            this.maps = maps;
+            this.counts = counts;
+            this.s = s;
+            this.errors = errors;
+            this.positions = positions;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Counts or parses the chunk directly or splits the range into two smaller ranges.
+         */
+        protected void compute()
+        {
+            if(hi-lo==1)
+            {
+                if(s==null)
+                {
+                    counts[lo] = parse(maps[lo], null, 0, null, null);
+                } else {
+                    String[] error = new String[1];
+                    int[] position = new int[1];
+                    parse(maps[lo], s, counts[lo], error, position);
+                    errors[lo] = error[0];
+                    positions[lo] = position[0];
+                }
+            } else {
+                int mid = (lo+hi)>>>1;
+                invokeAll(new Chunks(maps, counts, s, errors, positions, lo, mid), 
+                        new Chunks(maps, counts, s, errors, positions, mid, hi));
+            }
+        }
+
+    }
+
+    /**
+     * A task that generates a range of blocks of random bodies. Ranges of more than one block are
+     * split in half.
+     */
+    private static class Blocks extends RecursiveAction
+    {
+
+        private BodyColumns s;
+        private double[] ranges;
+        private long seed;
+        private long lo, hi;
+
+        /**
+         * Constructor for the Blocks class.
+         *
+         * @param s the system of bodies
+         * @param ranges the minimum and maximum position, velocity, and mass
+         * @param seed the seed
+         * @param lo the index of the first block
+         * @param hi one more than the index of the last block
+         */
+        Blocks(BodyColumns s, double[] ranges, long seed, long lo, long hi)
+        {
+            this.s = s;
+            this.ranges = ranges;
+            this.seed = seed;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Generates the block directly or splits the range into two smaller ranges.
+         */
+        protected void compute()
+        {
+            if(hi-lo<=1)
+            {
+                for(long b=lo; b<hi; b++)
+                {
+                    randomBlock(s, ranges, seed, b);
+                }
+            } else {
+                long mid = (lo+hi)>>>1;
+                invokeAll(new Blocks(s, ranges, seed, lo, mid), new Blocks(s, ranges, seed, mid, hi));
+            }
+        }
+
+    }
+
+    /**
+     * The main method converts an input file with the same layout as NBody's input.txt into an
+     * initial condition file. The first argument is the input file and the second argument is the
+     * output file, which is written as CSV if its name ends with ".csv" and as binary otherwise.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        BufferedReader br = new BufferedReader(new FileReader(args[0]));
+        String mode = br.readLine();
+        for(int k=0; k<3; k++)
+        {
+            br.readLine();
+        } //Skips the time step, maximum time, and print interval
+        int n = Integer.parseInt(br.readLine().trim());
+        BodySystem s = NBody.readSystem(br, mode, n);
+        br.close();
+
+        if(args[1].endsWith(".csv"))
+        {
+            writeCSV(s, args[1]);
+        } else {
+            writeBinary(s, args[1]);
+        }
+        System.out.println("Wrote " + s.size() + " bodies to " + args[1]);
+    }
+
+}
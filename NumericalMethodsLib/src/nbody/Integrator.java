@@ -0,0 +1,36 @@
+package nbody;
+
+/**
+ * The Integrator interface is used by the different ways of moving a system of bodies forward in
+ * time. An integrator uses a force engine to calculate the accelerations and updates the
+ * velocities and positions of the bodies in place. It works on the BodyColumns interface, so the
+ * same integrators can move a BodySystem or an OffHeapSystem.
+ *
+ * The integrators are built out of two steps. A kick updates the velocities with the current
+ * accelerations, and a drift updates the positions with the current velocities. Symplectic
+ * integrators such as leapfrog keep the energy error bounded instead of letting it grow, so they
+ * can use larger time steps than Euler's method.
+ *
+ * @author Matthew Jin
+ * @version 4/3/2018
+ */
+public interface Integrator
+{
+
+    /**
+     * Moves the system forward by one time step.
+     *
+     * @param s the system of bodies
+     * @param engine the force engine used to calculate the accelerations
+     * @param dt the time step in seconds
+     */
+    void step(BodyColumns s, ForceEngine engine, double dt);
+
+    /**
+     * Gets the number of times the integrator calls the force engine in one step
+     *
+     * @return the number of force calculations per step
+     */
+    int getForcePasses();
+
+}
@@ -0,0 +1,45 @@
+package nbody;
+
+/**
+ * The Leapfrog class moves the bodies with the drift-kick-drift leapfrog method. The positions
+ * are moved half a step, the velocities are updated with the accelerations at the half step, and
+ * then the positions are moved the other half of the step. It is second order accurate and
+ * symplectic, and it uses one force calculation per step.
+ *
+ * The force pass is half a step after the velocities, so the energy is recorded with the
+ * velocities kicked by half a step, which is the average of the velocities before and after the
+ * kick.
+ *
+ * @author Matthew Jin
+ * @version 4/3/2018
+ */
+public class Leapfrog implements Integrator
+{
+
+    /**
+     * Moves the system forward by one time step with a half drift, a kick, and a half drift.
+     *
+     * @param s the system of bodies
+     * @param engine the force engine used to calculate the accelerations
+     * @param dt the time step in seconds
+     */
+    public void step(BodyColumns s, ForceEngine engine, double dt)
+    {
+        s.drift(dt/2);
+        engine.accelerations(s);
+        s.recordEnergy(dt/2);
+        s.kick(dt);
+        s.drift(dt/2);
+    }
+
+    /**
+     * Gets the number of times the integrator calls the force engine in one step
+     *
+     * @return the number of force calculations per step
+     */
+    public int getForcePasses()
+    {
+        return 1;
+    }
+
+}
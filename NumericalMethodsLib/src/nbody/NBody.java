@@ -1,11 +1,13 @@
 package nbody;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringReader;
 import java.util.ArrayList;
 
 import function.Vector;
@@ -15,7 +17,10 @@ import function.Vector;
  * an input file.
  * 
  * The first line of the input file determines whether the positions of the bodies will be entered 
- * manually or if they will be randomly determined. The second line is the time step for the 
+ * manually or if they will be randomly determined. The random mode can be followed by a seed, as 
+ * in "rand 42", to generate the same bodies every time. It can also be "csv path" or "bin path" to 
+ * read the bodies from a CSV or binary initial condition file instead, in which case the fifth 
+ * line is ignored and no body lines follow it (see InitialConditions for the formats). The second line is the time step for the 
  * simulation, and the third line is the maximum time to run. The fourth line is the time interval 
  * between printing the body positions. The fifth line is the number of bodies that are going to 
  * be simulated. If the bodies are manually inputted, every three lines after the fifth represent 
@@ -24,6 +29,65 @@ import function.Vector;
  * randomly generated, the next three lines represent the minimum and maximum values of the 
  * position, velocity, and mass respectively.
  * 
+ * Any lines after the bodies are optional settings. Each setting is a name followed by its 
+ * values, separated by spaces. The settings are:
+ * 
+ *     force direct         uses the direct sum over every pair of bodies (default)
+ *     force tiled tile     uses the direct sum in tiles of tile bodies that fit in the cache (0 or 
+ *                          no value chooses the tile size by timing a few sizes)
+ *     force symmetric threads softening   uses the direct sum, calculating each pair of bodies 
+ *                          once with Newton's third law (threads of 0 uses every processor, default 
+ *                          1), and an optional softening length in parsecs
+ *     force simd softening uses the direct sum with the SIMD instructions of the processor and 
+ *                          an optional softening length in parsecs (needs the classes from 
+ *                          src-vector and the jdk.incubator.vector module, otherwise it uses the 
+ *                          normal direct sum)
+ *     force float softening   uses the direct sum with floats instead of doubles in the pair 
+ *                          loop, for runs that only need a few digits, and an optional softening 
+ *                          length in parsecs (see FloatDirectSum)
+ *     force tree theta     uses a Barnes-Hut octree with the opening angle theta
+ *     force parallel threads chunk   uses the direct sum split between threads, with at most 
+ *                          chunk bodies per task (threads of 0 uses every processor)
+ *     force pm grid softening   uses a particle mesh with a grid of grid points on each side 
+ *                          (a power of two, default 64) and a softening length in parsecs
+ *     integrator name      moves the bodies with "euler" (default), "leapfrog", "verlet", or 
+ *                          "yoshida" (fourth order, three force calculations per step)
+ *     integrator block eta levels   gives each body its own time step of dt divided by a power 
+ *                          of two, up to 2^levels (defaults 0.02 and 10); this always uses its own 
+ *                          Hermite direct sum, so the force setting is not used, and the telemetry 
+ *                          counts each global step as one force pass
+ *     collision radius log   combines bodies that are closer than radius parsecs (default 0, 
+ *                          which only combines bodies with equal positions), and writes the time 
+ *                          and the ids of the two bodies of every collision to the optional log 
+ *                          file
+ *     output format path   writes the positions as "text" (default) or as "binary" snapshots, 
+ *                          to the optional path (see SnapshotWriter for the binary format)
+ *     checkpoint path seconds   saves the state of the simulation to path every few seconds of 
+ *                          real time (default 300)
+ *     telemetry seconds energy   prints the steps per second, pair interactions per second, force 
+ *                          pass time, and output size every few seconds of real time (0 only 
+ *                          registers the values with JMX); "energy" also tracks the energy drift 
+ *                          every time the positions are printed (see Telemetry)
+ *     diagnostics energy momentum path pairs   writes the total energy, momentum, and angular 
+ *                          momentum and their drifts every time the positions are printed, to the 
+ *                          optional path, and stops the run if the relative energy drift goes above 
+ *                          energy or the momentum drift goes above momentum (0 never stops); 
+ *                          "pairs" calculates the energy with a loop over every pair of bodies 
+ *                          when the force engine does not give the potentials (see Diagnostics)
+ *     offheap softening path   keeps the bodies outside of the Java heap in an OffHeapSystem, in 
+ *                          direct memory or mapped from the optional path, with the softening 
+ *                          length in parsecs for the direct sum; only the direct sum and the 
+ *                          particle mesh can be used, the block time steps cannot, and the 
+ *                          collision, checkpoint, and diagnostics settings stop the run; "csv", 
+ *                          "bin", and "rand seed" bodies are read straight into the store, and 
+ *                          bodies listed in the input file are copied into it (see OffHeapSystem)
+ * 
+ * Running the main method with the argument "restart" reads the settings from the input file 
+ * and resumes the simulation from the checkpoint file instead of starting over. The checkpoint 
+ * file is the one from the checkpoint setting, or the second argument if there is one. The output 
+ * file and the collision log are cut back to their sizes when the checkpoint was saved, so they 
+ * end up the same as if the run had never stopped.
+ * 
  * This class will print out the x, y, and z positions of all the bodies as its output.
  * 
  * For more information on this project, read the "N-Body v1.pdf" file on athena.
@@ -36,11 +100,34 @@ public class NBody
 
     private final static String FILEPATH_INPUT = "src/nbody/input.txt";
     private final static String FILEPATH_OUTPUT = "src/nbody/output.txt";
+    private final static String FILEPATH_BINARY = "src/nbody/output.bin";
+    private final static String FILEPATH_CHECKPOINT = "src/nbody/checkpoint.bin";
 
     private final static double PARSEC_TO_METER = 3.086e+16;
     private final static double KMPS_TO_MPS = 1000;
     private final static double SOLARMASS_TO_KG = 1.98855e+30;
-    private final static double G = 6.67408e-11;
+    final static double G = 6.67408e-11;
+
+    private ForceEngine engine = new DirectSum();
+    private Integrator integrator = new SemiImplicitEuler();
+    private CollisionDetector collisions = new CollisionDetector(0);
+
+    private boolean binary = false;
+    private String output = FILEPATH_OUTPUT;
+    private PrintStream out;
+    private SnapshotWriter snapshots;
+    private CheckpointWriter checkpoints;
+    private Telemetry telemetry;
+    private Diagnostics diagnostics;
+    private String collisionLog;
+    private PrintStream log;
+    private FileOutputStream file;
+    private CountingOutputStream counter;
+    private FileOutputStream logFile;
+    private PrintStream console = System.out;
+    private boolean offHeap;
+    private double offHeapSoftening;
+    private String offHeapPath;
 
     /**
      * The update method calculates the forces between all the different bodies in the system. 
@@ -50,6 +137,10 @@ public class NBody
      * calculate the velocity and position of the new body. The collisions are considered to be 
      * inelastic
      * 
+     * This method always uses the direct sum and creates new Bodies every step. It is kept as the 
+     * reference that the other force engines are checked against. The simulate method uses the 
+     * step method instead, which updates a BodySystem in place.
+     * 
      * Refer to "N-Body v1.pdf" on athena for more information on the equations used to simulate 
      * n-body problem.
      * 
@@ -106,36 +197,695 @@ public class NBody
     }
 
     /**
-     * The simulate method repeatedly calls the update method in order to update the position 
+     * The step method advances a BodySystem by one time step in place. The integrator moves the 
+     * bodies using the accelerations from the force engine. The default integrator is the 
+     * semi-implicit Euler method, which uses the same equations as the update method. After the 
+     * bodies have moved, the collision detector combines any bodies that have collided, and the 
+     * absorbed bodies are removed from the system so that they are not part of any more force 
+     * calculations or output. The other bodies keep their ids.
+     * 
+     * @param s the system of bodies
+     * @param dt the change in time in seconds
+     */
+    public void step(BodySystem s, double dt)
+    {
+        integrator.step(s, engine, dt);
+        if(collisions.collide(s)>0)
+        {
+            s.compact();
+        }
+    }
+
+    /**
+     * Sets the force engine that is used by the step method to calculate the accelerations.
+     * 
+     * @param engine the force engine
+     */
+    public void setForceEngine(ForceEngine engine)
+    {
+        this.engine = engine;
+    }
+
+    /**
+     * Gets the force engine that is used by the step method
+     * 
+     * @return the force engine
+     */
+    public ForceEngine getForceEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * Sets the integrator that is used by the step method to move the bodies.
+     * 
+     * @param integrator the integrator
+     */
+    public void setIntegrator(Integrator integrator)
+    {
+        this.integrator = integrator;
+    }
+
+    /**
+     * Gets the integrator that is used by the step method
+     * 
+     * @return the integrator
+     */
+    public Integrator getIntegrator()
+    {
+        return integrator;
+    }
+
+    /**
+     * Sets the collision detector that is used by the step method to combine bodies that have 
+     * collided.
+     * 
+     * @param collisions the collision detector
+     */
+    public void setCollisionDetector(CollisionDetector collisions)
+    {
+        this.collisions = collisions;
+    }
+
+    /**
+     * Sets the path of the collision log, which gets one line for every collision with the time 
+     * in seconds, the id of the body that was kept, and the id of the body that was absorbed.
+     * 
+     * @param path the path of the collision log, or null for no log
+     */
+    public void setCollisionLog(String path)
+    {
+        collisionLog = path;
+    }
+
+    /**
+     * Sets the stream that the messages of a run are printed to: the notices about settings that 
+     * are not used, the reason a run stopped early, the block time step statistics, the 
+     * telemetry lines, and the diagnostics when they do not have their own file. The default is 
+     * System.out. This should be set before the settings are read.
+     * 
+     * @param console the stream for the messages
+     */
+    public void setConsole(PrintStream console)
+    {
+        this.console = console;
+    }
+
+    /**
+     * Keeps the bodies in an OffHeapSystem instead of a BodySystem when the simulation is run 
+     * from an input file.
+     * 
+     * @param softening the softening length in meters
+     * @param path the path of the file the bodies are mapped from, or null to use direct memory
+     */
+    public void setOffHeap(double softening, String path)
+    {
+        offHeap = true;
+        offHeapSoftening = softening;
+        offHeapPath = path;
+    }
+
+    /**
+     * Sets the format and path of the output file.
+     * 
+     * @param binary true to write binary snapshots; false to print the positions as text
+     * @param output the path of the output file
+     */
+    public void setOutput(boolean binary, String output)
+    {
+        this.binary = binary;
+        this.output = output;
+    }
+
+    /**
+     * Turns on checkpoints, which save the state of the simulation to a file every few minutes.
+     * 
+     * @param path the path of the checkpoint file
+     * @param seconds the real time between checkpoints in seconds
+     */
+    public void setCheckpoint(String path, double seconds)
+    {
+        checkpoints = new CheckpointWriter(path, seconds);
+    }
+
+    /**
+     * Turns on telemetry, which measures how fast the simulation runs. The values can be read 
+     * with JMX while the simulation runs, and are printed every few seconds of real time.
+     * 
+     * @param seconds the real time between log lines in seconds, or 0 for no log lines
+     * @param energy true to track the energy drift every time the positions are printed
+     */
+    public void setTelemetry(double seconds, boolean energy)
+    {
+        telemetry = new Telemetry(seconds, energy);
+    }
+
+    /**
+     * Gets the telemetry of the simulation
+     * 
+     * @return the telemetry, or null if it is turned off
+     */
+    public Telemetry getTelemetry()
+    {
+        return telemetry;
+    }
+
+    /**
+     * Turns on the diagnostics, which follow the drift of the energy, momentum, and angular 
+     * momentum every time the positions are printed.
+     * 
+     * @param diagnostics the diagnostics, or null to turn them off
+     */
+    public void setDiagnostics(Diagnostics diagnostics)
+    {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Reads one of the optional settings lines from the input file. See the documentation for 
+     * this class for the list of settings.
+     * 
+     * @param line the line from the input file
+     */
+    public void setOption(String line) throws IOException
+    {
+        String[] args = line.trim().split("\\s+");
+        if(args[0].isEmpty())
+        {
+            return;
+        }
+
+        if(args[0].equals("force"))
+        {
+            if(args[1].equals("tree"))
+            {
+                setForceEngine(new Octree(args.length>2 ? Double.parseDouble(args[2]) : 0.5));
+            } else if(args[1].equals("parallel")) {
+                setForceEngine(new ParallelDirectSum(
+                        args.length>2 ? Integer.parseInt(args[2]) : 0, 
+                        args.length>3 ? Integer.parseInt(args[3]) : 64));
+            } else if(args[1].equals("pm")) {
+                setForceEngine(new ParticleMesh(
+                        args.length>2 ? Integer.parseInt(args[2]) : 64, 
+                        args.length>3 ? Double.parseDouble(args[3])*PARSEC_TO_METER : 0));
+            } else if(args[1].equals("tiled")) {
+                setForceEngine(new TiledDirectSum(args.length>2 ? Integer.parseInt(args[2]) : 0));
+            } else if(args[1].equals("symmetric")) {
+                setForceEngine(new SymmetricDirectSum(
+                        args.length>2 ? Integer.parseInt(args[2]) : 1, 
+                        args.length>3 ? Double.parseDouble(args[3])*PARSEC_TO_METER : 0));
+            } else if(args[1].equals("simd")) {
+                setForceEngine(DirectSum.vectorized(
+                        args.length>2 ? Double.parseDouble(args[2])*PARSEC_TO_METER : 0));
+            } else if(args[1].equals("float")) {
+                setForceEngine(new FloatDirectSum(
+                        args.length>2 ? Double.parseDouble(args[2])*PARSEC_TO_METER : 0));
+            } else if(args[1].equals("direct")) {
+                setForceEngine(new DirectSum());
+            } else {
+                throw new IllegalArgumentException("Unknown force mode: " + line);
+            }
+        } else if(args[0].equals("integrator")) {
+            if(args[1].equals("euler"))
+            {
+                setIntegrator(new SemiImplicitEuler());
+            } else if(args[1].equals("leapfrog")) {
+                setIntegrator(new Leapfrog());
+            } else if(args[1].equals("verlet")) {
+                setIntegrator(new VelocityVerlet());
+            } else if(args[1].equals("yoshida")) {
+                setIntegrator(new Yoshida());
+            } else if(args[1].equals("block")) {
+                setIntegrator(new BlockTimesteps(
+                        args.length>2 ? Double.parseDouble(args[2]) : 0.02, 
+                        args.length>3 ? Integer.parseInt(args[3]) : 10));
+            } else {
+                throw new IllegalArgumentException("Unknown integrator: " + line);
+            }
+        } else if(args[0].equals("output")) {
+            boolean bin = args[1].equals("binary");
+            setOutput(bin, args.length>2 ? args[2] : (bin ? FILEPATH_BINARY : FILEPATH_OUTPUT));
+        } else if(args[0].equals("checkpoint")) {
+            setCheckpoint(args[1], args.length>2 ? Double.parseDouble(args[2]) : 300);
+        } else if(args[0].equals("telemetry")) {
+            setTelemetry(args.length>1 ? Double.parseDouble(args[1]) : 10, 
+                    args.length>2 && args[2].equals("energy"));
+        } else if(args[0].equals("diagnostics")) {
+            boolean pairs = args[args.length-1].equals("pairs");
+            int length = pairs ? args.length-1 : args.length;
+            double energy = length>1 ? Double.parseDouble(args[1]) : 0;
+            double momentum = length>2 ? Double.parseDouble(args[2]) : 0;
+            setDiagnostics(length>3 ? new Diagnostics(energy, momentum, args[3]) 
+                    : new Diagnostics(energy, momentum, console));
+            diagnostics.setPairLoop(pairs);
+        } else if(args[0].equals("offheap")) {
+            setOffHeap(args.length>1 ? Double.parseDouble(args[1])*PARSEC_TO_METER : 0, 
+                    args.length>2 ? args[2] : null);
+        } else if(args[0].equals("collision")) {
+            setCollisionDetector(new CollisionDetector(Double.parseDouble(args[1])*PARSEC_TO_METER));
+            setCollisionLog(args.length>2 ? args[2] : null);
+        } else {
+            throw new IllegalArgumentException("Unknown setting: " + line);
+        }
+    }
+
+    /**
+     * The simulate method repeatedly calls the step method in order to update the position 
      * vectors of the body. It run from t=0 to t=maxtime, with an interval of dt. It will also 
-     * print the positions of the bodies into an output file.
+     * print the positions of the bodies into an output file. The bodies are copied into a 
+     * BodySystem, which is updated in place. If the binary output is turned on, the positions 
+     * are written with a SnapshotWriter instead of being printed as text.
      * 
      * @param bodies the ArrayList of bodies
      * @param dt the time step
      * @param maxtime the maximum time to run
      * @param print the time interval before printing the positions
      */
-    public void simulate(ArrayList<Body> bodies, double dt, double maxtime, double printtime) throws FileNotFoundException
+    public void simulate(ArrayList<Body> bodies, double dt, double maxtime, double printtime) throws IOException
     {
-        FileOutputStream fos = new FileOutputStream(FILEPATH_OUTPUT);
-        PrintStream out = new PrintStream(fos);
+        simulate(new BodySystem(bodies), dt, maxtime, printtime);
+    }
 
-        double t = 0; double count = printtime;
-        while(t<=maxtime)
+    /**
+     * Runs the simulation in the same way as the other simulate method, starting from a 
+     * BodySystem that is updated in place.
+     * 
+     * @param s the system of bodies
+     * @param dt the time step
+     * @param maxtime the maximum time to run
+     * @param print the time interval before printing the positions
+     */
+    public void simulate(BodySystem s, double dt, double maxtime, double printtime) throws IOException
+    {
+        open(false);
+        run(s, 0, dt, printtime, maxtime, printtime);
+    }
+
+    /**
+     * Runs the simulation on bodies that are stored outside of the Java heap. The bodies are 
+     * moved with the force engine and the integrator through the BodyColumns interface, so the 
+     * engine has to be one that reads the columns, such as the direct sum or the particle mesh. 
+     * The softening length of the offheap setting is used by the default direct sum. The bodies 
+     * cannot be merged or saved in a checkpoint, and the energy cannot be calculated, so the run 
+     * stops before it starts if the collisions, the checkpoints, or the diagnostics are set. An 
+     * engine that only works on a BodySystem, such as the octree, throws an 
+     * UnsupportedOperationException on the first step. The telemetry measures the 
+     * steps, the force passes, and the output size. The positions are written in the same way as 
+     * the other simulate methods.
+     * 
+     * @param s the system of bodies
+     * @param dt the time step
+     * @param maxtime the maximum time to run
+     * @param printtime the time interval before printing the positions
+     */
+    public void simulate(OffHeapSystem s, double dt, double maxtime, double printtime) throws IOException
+    {
+        if(collisions.getRadius()>0 || collisionLog!=null || checkpoints!=null || diagnostics!=null)
+        {
+            throw new IllegalArgumentException("The off-heap store cannot merge, checkpoint, or sum the " 
+                    + "energy of its bodies, so it cannot be used with the collision, checkpoint, or " 
+                    + "diagnostics settings");
+        }
+
+        ForceEngine original = engine;
+        if(offHeapSoftening>0 && engine.getClass()==DirectSum.class)
         {
-            System.out.println(t);
-            if(count<=printtime)
+            engine = new DirectSum(offHeapSoftening);
+        }
+        if(telemetry!=null)
+        {
+            engine = telemetry.wrap(engine);
+            telemetry.setStream(console);
+            telemetry.register();
+        }
+
+        try
+        {
+            openOutput(false);
+            double t = 0, count = printtime;
+            while(t<=maxtime)
+            {
+                if(count<=printtime)
+                {
+                    count += dt;
+                } else {
+                    output(s, t);
+                    count = 0;
+                }
+                integrator.step(s, engine, dt);
+                t += dt;
+                if(telemetry!=null)
+                {
+                    telemetry.step(t);
+                }
+            }
+            output(s, t);
+
+            if(telemetry!=null)
             {
-                count += dt;
+                console.println(telemetry);
+            }
+            if(binary)
+            {
+                snapshots.close();
             } else {
-                printPos(out, bodies);
-                count = 0;
+                out.close();
+            }
+        } finally {
+            engine = original;
+            shutdown(original);
+            if(telemetry!=null)
+            {
+                telemetry.close();
             }
+        }
+    }
 
-            bodies = update(bodies, dt);
-            t += dt;
+    /**
+     * Resumes a simulation from a checkpoint file. The output file and the collision log are cut 
+     * back to their sizes when the checkpoint was saved, and the new output is added after that, 
+     * so nothing is written twice. Checkpoints from older versions do not have the size of the 
+     * collision log, so the log is only added to, and the collisions after the checkpoint are 
+     * written again.
+     * 
+     * @param path the path of the checkpoint file
+     */
+    public void restart(String path) throws IOException
+    {
+        Checkpoint state = Checkpoint.read(path);
+        open(true);
+        if(state.getOutputBytes()>=0)
+        {
+            if(binary)
+            {
+                snapshots.truncate(state.getOutputBytes());
+            } else {
+                truncate(file, state.getOutputBytes(), output);
+                counter.setCount(state.getOutputBytes());
+            }
+        }
+        if(logFile!=null && state.getLogBytes()>=0)
+        {
+            truncate(logFile, state.getLogBytes(), collisionLog);
+        }
+        if(diagnostics!=null && state.getBaseline()!=null)
+        {
+            diagnostics.setBaseline(state.getBaseline());
+        } //Keeps measuring the drifts from the start of the original run
+        if(telemetry!=null)
+        {
+            telemetry.setEnergyBaseline(state.getTelemetryEnergy());
+        }
+        run(state.getSystem(), state.getTime(), state.getDt(), state.getCount(), 
+                state.getMaxTime(), state.getPrintTime());
+    }
+
+    /**
+     * Runs the simulation loop from the time t to the maximum time and then closes the output 
+     * file. If checkpoints are turned on, the state at the start of each step is saved every few 
+     * minutes. If telemetry is turned on, the force engine is wrapped so that every force pass 
+     * is timed, the telemetry is updated after every step, and it is registered with JMX only 
+     * for the length of the run. If the diagnostics are turned on and one of the drifts goes 
+     * above its tolerance, the run stops early, after writing the last positions.
+     * 
+     * @param s the system of bodies
+     * @param t the starting time
+     * @param dt the time step
+     * @param count the time since the positions were last printed
+     * @param maxtime the maximum time to run
+     * @param printtime the time interval before printing the positions
+     */
+    private void run(BodySystem s, double t, double dt, double count, double maxtime, double printtime) throws IOException
+    {
+        ForceEngine original = engine;
+        if(telemetry!=null)
+        {
+            engine = telemetry.wrap(engine);
+        }
+        if(diagnostics!=null)
+        {
+            s.trackPotentials();
+        }
+        BlockTimesteps block = integrator instanceof BlockTimesteps ? (BlockTimesteps) integrator : null;
+        if(block!=null && original.getClass()!=DirectSum.class)
+        {
+            console.println("The block integrator uses its own Hermite direct sum, so the force setting " 
+                    + original.getClass().getSimpleName() + " is not used");
+        }
+
+        if(telemetry!=null)
+        {
+            telemetry.setStream(console);
+            telemetry.register();
+        }
+
+        try
+        {
+            while(t<=maxtime)
+            {
+                if(checkpoints!=null && checkpoints.isDue())
+                {
+                    Checkpoint state = new Checkpoint(s, t, dt, count, maxtime, printtime, 
+                            outputBytes(), logBytes());
+                    if(diagnostics!=null)
+                    {
+                        state.setBaseline(diagnostics.getBaseline());
+                    }
+                    if(telemetry!=null)
+                    {
+                        state.setTelemetryEnergy(telemetry.getEnergyBaseline());
+                    }
+                    checkpoints.save(state);
+                }
+
+                if(count<=printtime)
+                {
+                    count += dt;
+                } else {
+                    if(diagnostics!=null && !diagnostics.update(s, t))
+                    {
+                        console.println("Stopped at t=" + t + " s: energy drift " + diagnostics.getEnergyDrift() 
+                                + ", momentum drift " + diagnostics.getMomentumDrift() 
+                                + ", angular momentum drift " + diagnostics.getAngularMomentumDrift());
+                        break;
+                    } //The positions are written once more after the loop
+                    output(s, t);
+                    count = 0;
+                }
+
+                long pairs = block!=null ? block.getInteractions() : 0;
+                long start = System.nanoTime();
+                step(s, dt);
+                if(block!=null && telemetry!=null)
+                {
+                    telemetry.forcePass(System.nanoTime()-start, block.getInteractions()-pairs);
+                } //The block integrator does not call the force engine, so the whole step is recorded
+                if(diagnostics!=null && !diagnostics.finish(s))
+                {
+                    console.println("Stopped at t=" + t + " s: energy drift " + diagnostics.getEnergyDrift() 
+                            + ", momentum drift " + diagnostics.getMomentumDrift() 
+                            + ", angular momentum drift " + diagnostics.getAngularMomentumDrift());
+                    t += dt;
+                    break;
+                } //The energy of the last update may only be recorded during the step
+                t += dt;
+                if(log!=null)
+                {
+                    for(int k=0; k<collisions.getMerges(); k++)
+                    {
+                        log.println(t + " " + collisions.getKept(k) + " " + collisions.getAbsorbed(k));
+                    }
+                }
+                if(telemetry!=null)
+                {
+                    telemetry.step(t);
+                }
+            }
+            output(s, t);
+
+            if(block!=null)
+            {
+                console.println(block.getStatistics());
+            }
+            if(telemetry!=null)
+            {
+                console.println(telemetry);
+            }
+            if(checkpoints!=null)
+            {
+                checkpoints.close();
+            }
+            if(diagnostics!=null)
+            {
+                diagnostics.close();
+            }
+            if(log!=null)
+            {
+                log.close();
+            }
+            if(binary)
+            {
+                snapshots.close();
+            } else {
+                out.close();
+            }
+        } finally {
+            engine = original;
+            shutdown(original);
+            if(telemetry!=null)
+            {
+                telemetry.close();
+            }
+        } //Stops the threads of the force engine and removes the telemetry from JMX even if the run fails
+    }
+
+    /**
+     * Stops the threads of a force engine that has its own thread pool. The engine starts a new 
+     * pool if it is used again.
+     * 
+     * @param engine the force engine
+     */
+    private static void shutdown(ForceEngine engine)
+    {
+        if(engine instanceof ParallelDirectSum)
+        {
+            ((ParallelDirectSum) engine).shutdown();
+        } else if(engine instanceof SymmetricDirectSum) {
+            ((SymmetricDirectSum) engine).shutdown();
+        }
+    }
+
+    /**
+     * Opens the output file and the collision log.
+     * 
+     * @param append true to add to the end of the files; false to replace them
+     */
+    private void open(boolean append) throws IOException
+    {
+        if(collisionLog!=null)
+        {
+            logFile = new FileOutputStream(collisionLog, append);
+            log = new PrintStream(new BufferedOutputStream(logFile));
+        }
+        openOutput(append);
+    }
+
+    /**
+     * Opens the output file.
+     * 
+     * @param append true to add to the end of the file; false to replace it
+     */
+    private void openOutput(boolean append) throws IOException
+    {
+        if(binary)
+        {
+            snapshots = new SnapshotWriter(output, append);
+        } else {
+            file = new FileOutputStream(output, append);
+            counter = new CountingOutputStream(new BufferedOutputStream(file), file.getChannel().position());
+            out = new PrintStream(counter);
+        }
+    }
+
+    /**
+     * Cuts a file that was opened for appending back to the size it had when a checkpoint was 
+     * saved.
+     * 
+     * @param stream the stream of the file
+     * @param size the size of the file in the checkpoint
+     * @param path the path of the file, for the error message
+     */
+    private static void truncate(FileOutputStream stream, long size, String path) throws IOException
+    {
+        if(stream.getChannel().size()<size)
+        {
+            throw new IOException(path + " has " + stream.getChannel().size() + " bytes, less than the " 
+                    + size + " bytes in the checkpoint");
+        }
+        stream.getChannel().truncate(size);
+    }
+
+    /**
+     * Writes out everything written to the output file so far, makes sure it is stored on the 
+     * disk, and gets the size of the file. This is called when a checkpoint is saved, so that the 
+     * file is never shorter than the size in the checkpoint.
+     * 
+     * @return the size of the output file in bytes
+     */
+    private long outputBytes() throws IOException
+    {
+        if(binary)
+        {
+            snapshots.force();
+            return snapshots.getPosition();
+        }
+        out.flush();
+        file.getChannel().force(false);
+        return file.getChannel().position();
+    }
+
+    /**
+     * Writes out everything written to the collision log so far, makes sure it is stored on the 
+     * disk, and gets the size of the file.
+     * 
+     * @return the size of the collision log in bytes, or -1 if there is no log
+     */
+    private long logBytes() throws IOException
+    {
+        if(log==null)
+        {
+            return -1;
+        }
+        log.flush();
+        logFile.getChannel().force(false);
+        return logFile.getChannel().position();
+    }
+
+    /**
+     * Writes the positions of all the bodies to the output file, either as a binary snapshot or 
+     * as text. If telemetry is turned on, the size of the file is recorded, counting what is 
+     * still in the buffer, and the energy from the diagnostics is passed on if they were just 
+     * updated at the same time.
+     * 
+     * @param s the system of bodies
+     * @param t the current time
+     */
+    private void output(BodySystem s, double t) throws IOException
+    {
+        if(binary)
+        {
+            snapshots.write(s, t, PARSEC_TO_METER);
+        } else {
+            printPos(out, s);
+        }
+
+        if(telemetry!=null)
+        {
+            double energy = diagnostics!=null && diagnostics.getTime()==t ? diagnostics.getEnergy() : Double.NaN;
+            telemetry.output(s, binary ? snapshots.getPosition() : counter.getCount(), energy);
+        }
+    }
+
+    /**
+     * Writes the positions of all the bodies in an OffHeapSystem to the output file, either as a 
+     * binary snapshot or as text. If telemetry is turned on, the size of the file is recorded.
+     * 
+     * @param s the system of bodies
+     * @param t the current time
+     */
+    private void output(OffHeapSystem s, double t) throws IOException
+    {
+        if(binary)
+        {
+            snapshots.write(s, t, PARSEC_TO_METER);
+        } else {
+            printPos(out, s);
+        }
+
+        if(telemetry!=null)
+        {
+            telemetry.output(binary ? snapshots.getPosition() : counter.getCount());
         }
-        printPos(out, bodies);
     }
 
     /**
@@ -152,29 +902,137 @@ public class NBody
         }
 //        out.println(bodies.get(1).getPos() + ", ");
     }
+
+    /**
+     * Prints the positions of all the bodies in a BodySystem in the same format as the other 
+     * printPos method
+     * 
+     * @param out the PrintStream that will print the output into the file
+     * @param s the system of bodies
+     */
+    public void printPos(PrintStream out, BodySystem s)
+    {
+        for(int j=0; j<s.size(); j++)
+        {
+            out.println(s.getPos(j).mult(1/PARSEC_TO_METER) + ", ");
+        }
+    }
+
+    /**
+     * Prints the positions of all the bodies in an OffHeapSystem in the same format as the other 
+     * printPos methods
+     * 
+     * @param out the PrintStream that will print the output into the file
+     * @param s the system of bodies
+     */
+    public void printPos(PrintStream out, OffHeapSystem s)
+    {
+        for(long j=0; j<s.size(); j++)
+        {
+            Vector pos = new Vector(s.get(OffHeapSystem.X, j), s.get(OffHeapSystem.Y, j), 
+                    s.get(OffHeapSystem.Z, j));
+            out.println(pos.mult(1/PARSEC_TO_METER) + ", ");
+        }
+    }
     
     /**
-     * The main method reads the parameters from the input file and creates the ArrayList of 
-     * Bodies. Then it calls the simulate method to simulate the movement of the bodies.
+     * Reads the bodies after the number of bodies into a BodySystem. The mode can be "csv path" 
+     * or "bin path" to read an initial condition file, or "rand seed" to generate the random 
+     * bodies in parallel with a seed, so that the same seed always gives the same bodies. Any 
+     * other mode is read with the readBodies method.
+     * 
+     * @param br the reader of the input file
+     * @param mode the first line of the input file
+     * @param n the number of bodies
+     * @return the system of bodies
      */
-    public static void main(String[] args) throws IOException
+    static BodySystem readSystem(BufferedReader br, String mode, int n) throws IOException
     {
-        FileReader fr = new FileReader(FILEPATH_INPUT);
-        BufferedReader br = new BufferedReader(fr);
+        String[] args = mode.trim().split("\\s+");
+        if(args[0].equals("csv"))
+        {
+            return InitialConditions.readCSV(args[1], 0);
+        } else if(args[0].equals("bin")) {
+            return InitialConditions.readBinary(args[1]);
+        } else if(args[0].equals("rand") && args.length>1) {
+            String[] pos = br.readLine().trim().split("\\s+");
+            String[] vel = br.readLine().trim().split("\\s+");
+            String[] mass = br.readLine().trim().split("\\s+");
+            return InitialConditions.random(n, 
+                    Double.parseDouble(pos[0]), Double.parseDouble(pos[1]), 
+                    Double.parseDouble(vel[0]), Double.parseDouble(vel[1]), 
+                    Double.parseDouble(mass[0]), Double.parseDouble(mass[1]), 
+                    Long.parseLong(args[1]), 0);
+        }
+        return new BodySystem(readBodies(br, mode, n));
+    }
 
-        String str = br.readLine();
+    /**
+     * Reads the bodies straight into an OffHeapSystem, without putting them in a BodySystem 
+     * first. The mode can be "csv path", "bin path", or "rand seed", which are read in the same 
+     * way as readSystem.
+     * 
+     * @param br the reader of the lines that describe the bodies
+     * @param mode the first line of the input file
+     * @param n the number of bodies
+     * @param path the path of the file the system is mapped from, or null to use direct memory
+     * @return the system of bodies
+     */
+    static OffHeapSystem readOffHeap(BufferedReader br, String mode, int n, String path) throws IOException
+    {
+        String[] args = mode.trim().split("\\s+");
+        if(args[0].equals("csv"))
+        {
+            return InitialConditions.readCSVOffHeap(args[1], 0, path);
+        } else if(args[0].equals("bin")) {
+            return InitialConditions.readBinaryOffHeap(args[1], path);
+        }
+        String[] pos = br.readLine().trim().split("\\s+");
+        String[] vel = br.readLine().trim().split("\\s+");
+        String[] mass = br.readLine().trim().split("\\s+");
+        return InitialConditions.randomOffHeap(n, 
+                Double.parseDouble(pos[0]), Double.parseDouble(pos[1]), 
+                Double.parseDouble(vel[0]), Double.parseDouble(vel[1]), 
+                Double.parseDouble(mass[0]), Double.parseDouble(mass[1]), 
+                Long.parseLong(args[1]), 0, path);
+    }
 
-        double dt = Double.parseDouble(br.readLine());
-        double maxt = Double.parseDouble(br.readLine());
-        
-        int printtime = Integer.parseInt(br.readLine());
-        int numbodies = Integer.parseInt(br.readLine());
-        
+    /**
+     * Finds the number of lines in the input file that describe the bodies when they are not 
+     * listed one by one: none for "csv" and "bin", whose bodies are in another file, and the 
+     * three ranges for "rand seed". These bodies can be read after the settings, so that they can 
+     * go straight into an OffHeapSystem.
+     * 
+     * @param mode the first line of the input file
+     * @return the number of lines, or -1 if the bodies are listed in the input file
+     */
+    static int sourceLines(String mode)
+    {
+        String[] args = mode.trim().split("\\s+");
+        if(args[0].equals("csv") || args[0].equals("bin"))
+        {
+            return 0;
+        }
+        return args[0].equals("rand") && args.length>1 ? 3 : -1;
+    }
+
+    /**
+     * Reads the bodies from the input file after the number of bodies. If the mode is "man", 
+     * every three lines are the position, velocity, and mass of one body. Otherwise the three 
+     * lines are the ranges of the random positions, velocities, and masses.
+     * 
+     * @param br the reader of the input file
+     * @param mode the first line of the input file
+     * @param n the number of bodies
+     * @return the ArrayList of Stars
+     */
+    static ArrayList<Body> readBodies(BufferedReader br, String mode, int n) throws IOException
+    {
         ArrayList<Body> bodies = new ArrayList<Body>();
         
-        if(str.equals("man"))
+        if(mode.equals("man"))
         {
-            for(int i=0; i<numbodies; i++)
+            for(int i=0; i<n; i++)
             {
                 String p = br.readLine();
                 int p1 = p.indexOf(" "), p2 = p.indexOf(" ", p1+1);
@@ -212,7 +1070,7 @@ public class NBody
             double minm = Double.parseDouble(mass.substring(0, mass.indexOf(" ")));
             double maxm = Double.parseDouble(mass.substring(mass.indexOf(" ")+1));
             
-            for(int i=0; i<numbodies; i++)
+            for(int i=0; i<n; i++)
             {
                 Star star = new Star(new Vector(), new Vector(), 0);
                 
@@ -221,15 +1079,141 @@ public class NBody
                 bodies.add(star);
             }
         }
-        
+        return bodies;
+    }
+
+    /**
+     * The main method reads the parameters from the input file and creates the system of bodies, 
+     * either from the input file or from an initial condition file. Then it calls the simulate 
+     * method to simulate the movement of the bodies.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        runInput(FILEPATH_INPUT, null, args.length>0 && args[0].equals("restart"), 
+                args.length>1 ? args[1] : null, System.out);
+    }
+
+    /**
+     * Reads an input file and runs its simulation, printing the messages of the run to 
+     * System.out. See the documentation for this class for the format of the input file. This is 
+     * used by the main method.
+     * 
+     * @param input the path of the input file
+     * @param output the path of the output file, or null to use the output setting of the input 
+     * file
+     * @param restart true to resume the simulation from the checkpoint file
+     * @param checkpoint the path of the checkpoint file to resume from, or null to use the 
+     * checkpoint setting of the input file
+     * @param echo the stream the starting positions are printed to, or null to not print them
+     */
+    public static void runInput(String input, String output, boolean restart, String checkpoint, 
+            PrintStream echo) throws IOException
+    {
+        runInput(input, output, restart, checkpoint, echo, System.out);
+    }
+
+    /**
+     * Reads an input file and runs its simulation. See the documentation for this class for the 
+     * format of the input file. This is used by the Ensemble class, which runs many input files 
+     * at once and gives each of them its own stream for messages.
+     * 
+     * @param input the path of the input file
+     * @param output the path of the output file, or null to use the output setting of the input 
+     * file
+     * @param restart true to resume the simulation from the checkpoint file
+     * @param checkpoint the path of the checkpoint file to resume from, or null to use the 
+     * checkpoint setting of the input file
+     * @param echo the stream the starting positions are printed to, or null to not print them
+     * @param console the stream the messages of the run are printed to (see setConsole)
+     */
+    public static void runInput(String input, String output, boolean restart, String checkpoint, 
+            PrintStream echo, PrintStream console) throws IOException
+    {
         NBody nb = new NBody();
+        nb.setConsole(console);
+
+        double dt, maxt;
+        int printtime, numbodies;
+        String str;
+        StringBuilder source = new StringBuilder();
+        BodySystem s = null;
+        try(BufferedReader br = new BufferedReader(new FileReader(input)))
+        {
+            str = br.readLine();
+
+            dt = Double.parseDouble(br.readLine());
+            maxt = Double.parseDouble(br.readLine());
+
+            printtime = Integer.parseInt(br.readLine());
+            numbodies = Integer.parseInt(br.readLine());
+
+            int lines = sourceLines(str);
+            if(lines<0)
+            {
+                s = readSystem(br, str, numbodies);
+            } else {
+                for(int k=0; k<lines; k++)
+                {
+                    source.append(br.readLine()).append('\n');
+                }
+            } //Bodies from another file or a seed are read after the settings
+
+            String line;
+            while((line = br.readLine()) != null)
+            {
+                nb.setOption(line);
+            } //Reads the optional settings after the bodies
+        }
+
+        if(nb.offHeap && restart)
+        {
+            throw new IOException("A run with the off-heap store has no checkpoints to restart from");
+        }
+
+        OffHeapSystem o = null;
+        if(s==null)
+        {
+            BufferedReader br = new BufferedReader(new StringReader(source.toString()));
+            if(nb.offHeap)
+            {
+                o = readOffHeap(br, str, numbodies, nb.offHeapPath);
+            } else {
+                s = readSystem(br, str, numbodies);
+            }
+        } else if(nb.offHeap) {
+            o = OffHeapSystem.of(s, nb.offHeapPath);
+            s = null;
+        } //The bodies only go through the heap if they are listed in the input file
         
-        for(int j=0; j<bodies.size(); j++)
+        if(output!=null)
+        {
+            nb.setOutput(nb.binary, output);
+        }
+        if(echo!=null)
         {
-            System.out.println(bodies.get(j).getPos().mult(1/PARSEC_TO_METER) + ", ");
+            if(o!=null)
+            {
+                nb.printPos(echo, o);
+            } else {
+                nb.printPos(echo, s);
+            }
         }
         
-        nb.simulate(bodies, dt, maxt, printtime);
+        if(o!=null)
+        {
+            nb.simulate(o, dt, maxt, printtime);
+        } else if(restart) {
+            String path = FILEPATH_CHECKPOINT;
+            if(checkpoint!=null)
+            {
+                path = checkpoint;
+            } else if(nb.checkpoints!=null) {
+                path = nb.checkpoints.getPath();
+            }
+            nb.restart(path);
+        } else {
+            nb.simulate(s, dt, maxt, printtime);
+        }
     }
 
 }
@@ -0,0 +1,766 @@
+package nbody;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import function.RandomSource;
+import function.Vector;
+
+/**
+ * This class tests the different ways that the NBody class can calculate the forces between
+ * bodies. The direct sum in NBody.update is used as the reference, and the results from the other
+ * methods are compared against it. The errors and run times are printed out for evaluation and
+ * comparison.
+ *
+ * @author Matthew Jin
+ * @version 3/12/2018
+ */
+public class NBodyTester
+{
+
+    /**
+     * The main method creates a random cluster of stars and runs the comparisons.
+     */
+    public static void main(String[] args)
+    {
+        ArrayList<Body> bodies = randomCluster(2000);
+
+        compareTree(bodies, 86400);
+        compareParallel(randomCluster(10000), 64);
+        compareSymmetric(randomCluster(10000));
+        compareTiled(new int[] {1000, 10000, 50000});
+        compareInitialConditions(200000);
+        compareRandom(1000000, 42);
+        compareOffHeap(randomCluster(5000), 86400, 5);
+        compareVector(randomCluster(5000), 86400);
+        compareFloat(randomCluster(5000), 86400, 20);
+        compareIntegrators(earthSun(), 10*31536000.0);
+        compareDiagnostics(randomCluster(2000), 100*86400.0);
+        compareCollisions(randomCluster(20000), 0.01*3.086e+16);
+        compareParticleMesh(randomCluster(5000), 0.5*3.086e+16);
+        compareBlockTimesteps(solarSystem(), 31536000.0, 604800);
+    }
+
+    /**
+     * Creates a cluster of random stars with the same ranges as the "rand" input file.
+     *
+     * @param n the number of stars
+     * @return an ArrayList of the stars
+     */
+    public static ArrayList<Body> randomCluster(int n)
+    {
+        ArrayList<Body> bodies = new ArrayList<Body>();
+        for(int i=0; i<n; i++)
+        {
+            Star star = new Star(new Vector(), new Vector(), 0);
+            star.random(0, 10, 50, 150, 0.5, 8);
+            bodies.add(star);
+        }
+        return bodies;
+    }
+
+    /**
+     * Creates the Earth orbiting the Sun with the same values as the earthsun.txt input file.
+     *
+     * @return an ArrayList with the Sun and the Earth
+     */
+    public static ArrayList<Body> earthSun()
+    {
+        ArrayList<Body> bodies = new ArrayList<Body>();
+        bodies.add(new Star(new Vector(0, 0, 0), new Vector(0, 0, 0), 1));
+        bodies.add(new Star(new Vector(0.000004848, 0, 0), new Vector(0, 30, 0), 0.000003003));
+        return bodies;
+    }
+
+    /**
+     * Creates the Sun, the Earth, the Moon, and Jupiter. The Moon needs a much smaller time step
+     * than the planets.
+     *
+     * @return an ArrayList with the four bodies
+     */
+    public static ArrayList<Body> solarSystem()
+    {
+        ArrayList<Body> bodies = earthSun();
+        bodies.add(new Star(new Vector(0.000004848+1.2451e-8, 0, 0), new Vector(0, 30+1.022, 0), 3.694e-8));
+        bodies.add(new Star(new Vector(0.00002522, 0, 0), new Vector(0, 13.07, 0), 0.0009546));
+        return bodies;
+    }
+
+    /**
+     * Compares the block time steps with leapfrog using the smallest block time step for every
+     * body, which is what a shared time step would need for the closest pair. It prints the energy
+     * error, the number of body steps, and the number of pair interactions for both.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param maxtime the time to run each simulation
+     * @param dt the global time step of the block time steps
+     */
+    public static void compareBlockTimesteps(ArrayList<Body> bodies, double maxtime, double dt)
+    {
+        BodySystem s = new BodySystem(bodies);
+        BlockTimesteps block = new BlockTimesteps(0.02, 16);
+        double e0 = s.energy();
+        long globalSteps = 0;
+        for(double t=0; t<maxtime; t+=dt)
+        {
+            block.step(s, null, dt);
+            globalSteps++;
+        }
+        System.out.println("block time steps: energy error " + Math.abs((s.energy()-e0)/e0) + ", " 
+                + block.getStatistics());
+
+        double small = dt*globalSteps*bodies.size()/block.getSharedSteps();
+        double smallest = dt;
+        while(smallest>small*1.000001)
+        {
+            smallest /= 2;
+        } //Finds the average of the smallest block step as a power of two
+
+        s = new BodySystem(bodies);
+        Leapfrog leapfrog = new Leapfrog();
+        DirectSum engine = new DirectSum();
+        long steps = 0;
+        for(double t=0; t<maxtime; t+=smallest)
+        {
+            leapfrog.step(s, engine, smallest);
+            steps++;
+        }
+        System.out.println("leapfrog dt=" + smallest + ": energy error " 
+                + Math.abs((s.energy()-e0)/e0) + ", body steps " + steps*bodies.size() 
+                + ", pair interactions " + steps*bodies.size()*(bodies.size()-1));
+    }
+
+    /**
+     * Compares the integrators by running the same system with several time steps. It prints the
+     * largest relative energy error during the run and the number of force calculations for each
+     * integrator and time step.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param maxtime the time to run each simulation
+     */
+    public static void compareIntegrators(ArrayList<Body> bodies, double maxtime)
+    {
+        Integrator[] integrators = {new SemiImplicitEuler(), new Leapfrog(), new VelocityVerlet(), new Yoshida()};
+        double[] dts = {86400, 3*86400, 7*86400, 14*86400};
+
+        for(int k=0; k<integrators.length; k++)
+        {
+            for(int d=0; d<dts.length; d++)
+            {
+                BodySystem s = new BodySystem(bodies);
+                DirectSum engine = new DirectSum();
+                double e0 = s.energy(), maxerr = 0;
+                long steps = 0;
+
+                for(double t=0; t<maxtime; t+=dts[d])
+                {
+                    integrators[k].step(s, engine, dts[d]);
+                    maxerr = Math.max(maxerr, Math.abs((s.energy()-e0)/e0));
+                    steps++;
+                }
+
+                System.out.println(integrators[k].getClass().getSimpleName() + " dt=" + dts[d] 
+                        + ": energy error " + maxerr + ", force passes " 
+                        + steps*integrators[k].getForcePasses());
+            }
+        }
+    }
+
+    /**
+     * Checks the energy that the diagnostics calculate from the potentials of the force pass
+     * against BodySystem.energy, which loops over every pair, and checks that tracking the
+     * potentials does not change the accelerations. It prints the run time of a force pass with
+     * and without the potentials. Then it runs the leapfrog integrator with a few time steps,
+     * updating the diagnostics at the start and the end, and prints the drifts. The leapfrog
+     * integrator records the energy during the step after the end, so one more step is taken.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param maxtime the time to run each simulation
+     */
+    public static void compareDiagnostics(ArrayList<Body> bodies, double maxtime)
+    {
+        BodySystem exp = new BodySystem(bodies), obs = new BodySystem(bodies);
+        obs.trackPotentials();
+
+        double plain = time(new DirectSum(), exp);
+        double tracked = time(new DirectSum(), obs);
+        double energy = obs.energy(), k = 0;
+        for(int i=0; i<obs.size(); i++)
+        {
+            k += obs.m[i]*(obs.vx[i]*obs.vx[i]+obs.vy[i]*obs.vy[i]+obs.vz[i]*obs.vz[i])/2;
+        }
+        System.out.println("potentials: " + tracked + " s (without " + plain + " s), energy error " 
+                + Math.abs((k+obs.potentialEnergy()-energy)/energy) + ", identical " + same(obs, exp));
+
+        double[] dts = {3600, 86400, 7*86400};
+        for(int d=0; d<dts.length; d++)
+        {
+            BodySystem s = new BodySystem(bodies);
+            s.trackPotentials();
+            DirectSum engine = new DirectSum();
+            Leapfrog leapfrog = new Leapfrog();
+            Diagnostics diagnostics = new Diagnostics(0, 0, System.out);
+
+            engine.accelerations(s);
+            diagnostics.update(s, 0);
+            double t = 0;
+            for(; t<maxtime; t+=dts[d])
+            {
+                leapfrog.step(s, engine, dts[d]);
+            }
+            diagnostics.update(s, t);
+            leapfrog.step(s, engine, dts[d]);
+            diagnostics.finish(s);
+
+            System.out.println("Leapfrog dt=" + dts[d] + ": energy drift " + diagnostics.getEnergyDrift() 
+                    + ", momentum drift " + diagnostics.getMomentumDrift() 
+                    + ", angular momentum drift " + diagnostics.getAngularMomentumDrift());
+        }
+    }
+
+    /**
+     * Compares the spatial hash collision detector with a check of every pair of bodies. It
+     * prints the run time and the number of collisions for both, and whether the two systems are
+     * exactly the same afterwards. Then it removes the absorbed bodies and checks that the other
+     * bodies kept their ids.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param radius the collision radius in meters
+     */
+    public static void compareCollisions(ArrayList<Body> bodies, double radius)
+    {
+        BodySystem exp = new BodySystem(bodies), obs = new BodySystem(bodies);
+
+        long start = System.nanoTime();
+        int expcount = 0;
+        double r2 = radius*radius;
+        for(int j=0; j<exp.size(); j++)
+        {
+            for(int i=j+1; i<exp.size(); i++)
+            {
+                double dx = exp.x[i]-exp.x[j], dy = exp.y[i]-exp.y[j], dz = exp.z[i]-exp.z[j];
+                if(exp.m[j]!=0 && exp.m[i]!=0 && dx*dx+dy*dy+dz*dz<=r2)
+                {
+                    double total = exp.m[j]+exp.m[i];
+                    exp.vx[j] = (exp.vx[j]*exp.m[j] + exp.vx[i]*exp.m[i])/total;
+                    exp.vy[j] = (exp.vy[j]*exp.m[j] + exp.vy[i]*exp.m[i])/total;
+                    exp.vz[j] = (exp.vz[j]*exp.m[j] + exp.vz[i]*exp.m[i])/total;
+                    exp.x[j] = (exp.x[j]*exp.m[j] + exp.x[i]*exp.m[i])/total;
+                    exp.y[j] = (exp.y[j]*exp.m[j] + exp.y[i]*exp.m[i])/total;
+                    exp.z[j] = (exp.z[j]*exp.m[j] + exp.z[i]*exp.m[i])/total;
+                    exp.m[j] = total;
+                    exp.m[i] = 0;
+                    expcount++;
+                }
+            }
+        }
+        System.out.println("every pair: " + (System.nanoTime()-start)/1e9 + " s, " + expcount + " collisions");
+
+        CollisionDetector detector = new CollisionDetector(radius);
+        start = System.nanoTime();
+        int obscount = detector.collide(obs);
+        System.out.println("spatial hash: " + (System.nanoTime()-start)/1e9 + " s, " + obscount 
+                + " collisions, identical " + (Arrays.equals(exp.m, obs.m) && Arrays.equals(exp.x, obs.x)));
+
+        int removed = obs.compact();
+        boolean ids = true;
+        for(int i=0, k=0; i<exp.size(); i++)
+        {
+            if(exp.m[i]!=0)
+            {
+                ids &= obs.id[k]==i && obs.m[k]==exp.m[i];
+                k++;
+            }
+        }
+        System.out.println("compact: " + removed + " bodies removed, " + obs.size() 
+                + " left, ids kept " + ids);
+    }
+
+    /**
+     * Compares the Barnes-Hut octree with the direct sum for several opening angles. The error is
+     * the RMS of the difference in the change of velocity after one step, relative to the RMS
+     * change of velocity from the direct sum.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param dt the time step
+     */
+    public static void compareTree(ArrayList<Body> bodies, double dt)
+    {
+        NBody nb = new NBody();
+
+        long start = System.nanoTime();
+        ArrayList<Body> exp = nb.update(bodies, dt);
+        System.out.println("NBody.update: " + (System.nanoTime()-start)/1e9 + " s");
+
+        System.out.println("direct: " + time(nb, new DirectSum(), bodies, exp, dt));
+
+        double[] thetas = {0, 0.3, 0.5, 0.7, 1.0};
+        for(int k=0; k<thetas.length; k++)
+        {
+            System.out.println("tree theta=" + thetas[k] + ": "
+                    + time(nb, new Octree(thetas[k]), bodies, exp, dt));
+        }
+    }
+
+    /**
+     * Compares the parallel direct sum with the serial direct sum for an increasing number of
+     * threads. It prints the run time of one force pass, the speedup over the serial direct sum,
+     * and whether the accelerations are exactly the same.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param chunk the chunk size of the parallel direct sum
+     */
+    public static void compareParallel(ArrayList<Body> bodies, int chunk)
+    {
+        BodySystem exp = new BodySystem(bodies), obs = new BodySystem(bodies);
+
+        double serial = time(new DirectSum(), exp);
+        System.out.println("serial direct: " + serial + " s");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for(int threads=1; threads<=cores; threads*=2)
+        {
+            ParallelDirectSum engine = new ParallelDirectSum(threads, chunk);
+            double parallel = time(engine, obs);
+            engine.shutdown();
+
+            boolean same = Arrays.equals(exp.ax, obs.ax) && Arrays.equals(exp.ay, obs.ay) 
+                    && Arrays.equals(exp.az, obs.az);
+            System.out.println(threads + " threads: " + parallel + " s, speedup " 
+                    + serial/parallel + ", identical " + same);
+        }
+    }
+
+    /**
+     * Compares the ways of reading the initial conditions. A "man" input file is written with
+     * random bodies and converted into CSV and binary initial condition files, and each file is
+     * read back, into a BodySystem and straight into an OffHeapSystem. It prints the time to read
+     * each file and whether the bodies are exactly the same as the bodies read from the input
+     * file.
+     *
+     * @param n the number of bodies
+     */
+    public static void compareInitialConditions(int n)
+    {
+        try
+        {
+            File text = File.createTempFile("nbody", ".txt"), csv = File.createTempFile("nbody", ".csv");
+            File bin = File.createTempFile("nbody", ".bin");
+            text.deleteOnExit(); csv.deleteOnExit(); bin.deleteOnExit();
+
+            PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(text)));
+            out.println("man\n86400\n31536000\n86400\n" + n);
+            for(int i=0; i<n; i++)
+            {
+                out.println(Math.random() + " " + Math.random() + " " + Math.random());
+                out.println(Math.random()*100 + " " + Math.random()*100 + " " + Math.random()*100);
+                out.println(Math.random()*10);
+            }
+            out.close();
+
+            long start = System.nanoTime();
+            BufferedReader br = new BufferedReader(new FileReader(text));
+            for(int k=0; k<5; k++)
+            {
+                br.readLine();
+            }
+            BodySystem exp = new BodySystem(NBody.readBodies(br, "man", n));
+            br.close();
+            System.out.println("input file: " + (System.nanoTime()-start)/1e9 + " s");
+
+            InitialConditions.main(new String[] {text.getPath(), csv.getPath()});
+            InitialConditions.main(new String[] {text.getPath(), bin.getPath()});
+
+            start = System.nanoTime();
+            BodySystem obs = InitialConditions.readCSV(csv.getPath(), 0);
+            System.out.println("csv: " + (System.nanoTime()-start)/1e9 + " s, identical " + same(exp, obs));
+
+            start = System.nanoTime();
+            obs = InitialConditions.readBinary(bin.getPath());
+            System.out.println("binary: " + (System.nanoTime()-start)/1e9 + " s, identical " + same(exp, obs));
+
+            start = System.nanoTime();
+            obs = InitialConditions.readCSVOffHeap(csv.getPath(), 0, null).toSystem();
+            System.out.println("csv off the heap: " + (System.nanoTime()-start)/1e9 + " s, identical " 
+                    + same(exp, obs));
+
+            start = System.nanoTime();
+            obs = InitialConditions.readBinaryOffHeap(bin.getPath(), null).toSystem();
+            System.out.println("binary off the heap: " + (System.nanoTime()-start)/1e9 + " s, identical " 
+                    + same(exp, obs));
+        } catch(IOException e) {
+            System.out.println("initial conditions: " + e);
+        }
+    }
+
+    /**
+     * Generates random bodies from a seed with one thread, with four threads, straight into an
+     * OffHeapSystem, and with Stars using the same RandomSource for every block of 4096 bodies. It
+     * prints the time of each and whether the bodies are exactly the same.
+     *
+     * @param n the number of bodies
+     * @param seed the seed
+     */
+    public static void compareRandom(int n, long seed)
+    {
+        long start = System.nanoTime();
+        BodySystem one = InitialConditions.random(n, 0, 10, 50, 150, 0.5, 8, seed, 1);
+        System.out.println("1 thread: " + (System.nanoTime()-start)/1e9 + " s");
+
+        start = System.nanoTime();
+        BodySystem four = InitialConditions.random(n, 0, 10, 50, 150, 0.5, 8, seed, 4);
+        System.out.println("4 threads: " + (System.nanoTime()-start)/1e9 + " s, identical " + same(one, four));
+
+        try
+        {
+            start = System.nanoTime();
+            OffHeapSystem direct = InitialConditions.randomOffHeap(n, 0, 10, 50, 150, 0.5, 8, seed, 4, null);
+            System.out.println("off the heap: " + (System.nanoTime()-start)/1e9 + " s, identical " 
+                    + same(one, direct.toSystem()));
+        } catch(IOException e) {
+            System.out.println("off the heap: " + e);
+        }
+
+        start = System.nanoTime();
+        ArrayList<Body> stars = new ArrayList<Body>();
+        RandomSource random = null;
+        for(int i=0; i<n; i++)
+        {
+            if(i%4096==0)
+            {
+                random = RandomSource.forBlock(seed, i/4096);
+            }
+            Star star = new Star(new Vector(), new Vector(), 0);
+            star.random(0, 10, 50, 150, 0.5, 8, random);
+            stars.add(star);
+        }
+        System.out.println("stars: " + (System.nanoTime()-start)/1e9 + " s, identical " 
+                + same(one, new BodySystem(stars)));
+    }
+
+    /**
+     * Checks whether two systems have exactly the same positions, velocities, and masses.
+     *
+     * @param a the first system
+     * @param b the second system
+     * @return true if the systems are the same
+     */
+    public static boolean same(BodySystem a, BodySystem b)
+    {
+        return a.size()==b.size() && Arrays.equals(a.x, b.x) && Arrays.equals(a.y, b.y) 
+                && Arrays.equals(a.z, b.z) && Arrays.equals(a.vx, b.vx) && Arrays.equals(a.vy, b.vy) 
+                && Arrays.equals(a.vz, b.vz) && Arrays.equals(a.m, b.m);
+    }
+
+    /**
+     * Runs the same system on the heap with DirectSum and SemiImplicitEuler, in direct memory,
+     * and mapped from a temporary file. It prints the run time of the steps, whether the
+     * positions are exactly the same, and the memory used by each body. Then it runs the system
+     * with ParticleMesh and Leapfrog on the heap and in direct memory and checks that the
+     * positions are the same.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param dt the time step
+     * @param steps the number of steps to run
+     */
+    public static void compareOffHeap(ArrayList<Body> bodies, double dt, int steps)
+    {
+        BodySystem exp = new BodySystem(bodies);
+        SemiImplicitEuler euler = new SemiImplicitEuler();
+        DirectSum engine = new DirectSum();
+        long start = System.nanoTime();
+        for(int k=0; k<steps; k++)
+        {
+            euler.step(exp, engine, dt);
+        }
+        System.out.println("heap: " + (System.nanoTime()-start)/1e9 + " s, 80 bytes per body");
+
+        try
+        {
+            File file = File.createTempFile("nbody", ".bin");
+            file.deleteOnExit();
+            OffHeapSystem mapped = OffHeapSystem.create(file.getPath(), bodies.size());
+            for(int i=0; i<bodies.size(); i++)
+            {
+                mapped.set(i, bodies.get(i));
+            }
+            OffHeapSystem[] systems = {OffHeapSystem.of(bodies), mapped};
+            String[] names = {"direct memory", "mapped file"};
+
+            for(int k=0; k<systems.length; k++)
+            {
+                start = System.nanoTime();
+                for(int r=0; r<steps; r++)
+                {
+                    euler.step(systems[k], engine, dt);
+                }
+                double time = (System.nanoTime()-start)/1e9;
+
+                BodySystem obs = systems[k].toSystem();
+                boolean same = Arrays.equals(exp.x, obs.x) && Arrays.equals(exp.y, obs.y) 
+                        && Arrays.equals(exp.z, obs.z);
+                System.out.println(names[k] + ": " + time + " s, 56 bytes per body in the file and 24 "
+                        + "for the accelerations, identical " + same);
+            }
+        } catch(IOException e) {
+            System.out.println("mapped file: " + e);
+        }
+
+        BodySystem heap = new BodySystem(bodies);
+        OffHeapSystem direct = OffHeapSystem.of(bodies);
+        Leapfrog leapfrog = new Leapfrog();
+        ParticleMesh mesh = new ParticleMesh(32, 0);
+        for(int k=0; k<steps; k++)
+        {
+            leapfrog.step(heap, mesh, dt);
+            leapfrog.step(direct, mesh, dt);
+        }
+        BodySystem obs = direct.toSystem();
+        System.out.println("particle mesh in direct memory: identical " + (Arrays.equals(heap.x, obs.x) 
+                && Arrays.equals(heap.y, obs.y) && Arrays.equals(heap.z, obs.z)));
+    }
+
+    /**
+     * Compares the tiled direct sum with the direct sum for several numbers of bodies. It prints
+     * the run time of one force pass for both, the tile size that was chosen, and whether the
+     * accelerations are exactly the same.
+     *
+     * @param sizes the numbers of bodies
+     */
+    public static void compareTiled(int[] sizes)
+    {
+        for(int k=0; k<sizes.length; k++)
+        {
+            ArrayList<Body> bodies = randomCluster(sizes[k]);
+            BodySystem exp = new BodySystem(bodies), obs = new BodySystem(bodies);
+
+            double direct = time(new DirectSum(), exp);
+            TiledDirectSum engine = new TiledDirectSum(0);
+            double tiled = time(engine, obs);
+
+            boolean same = Arrays.equals(exp.ax, obs.ax) && Arrays.equals(exp.ay, obs.ay) 
+                    && Arrays.equals(exp.az, obs.az);
+            System.out.println(sizes[k] + " bodies: direct " + direct + " s, tiled " + tiled 
+                    + " s (tile " + engine.getTile() + "), speedup " + direct/tiled 
+                    + ", identical " + same);
+        }
+    }
+
+    /**
+     * Compares the symmetric direct sum, which calculates each pair once, with the direct sum for
+     * an increasing number of threads. It prints the run time of one force pass, the speedup over
+     * the serial direct sum, and the RMS difference of the accelerations and the potential energy.
+     *
+     * @param bodies the ArrayList of bodies
+     */
+    public static void compareSymmetric(ArrayList<Body> bodies)
+    {
+        BodySystem exp = new BodySystem(bodies), obs = new BodySystem(bodies);
+        exp.trackPotentials();
+        obs.trackPotentials();
+
+        double serial = time(new DirectSum(), exp);
+        System.out.println("serial direct: " + serial + " s");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for(int threads=1; threads<=Math.max(2, cores); threads*=2)
+        {
+            SymmetricDirectSum engine = new SymmetricDirectSum(threads, 0);
+            double symmetric = time(engine, obs);
+            engine.shutdown();
+
+            System.out.println("symmetric " + threads + " threads: " + symmetric + " s, speedup " 
+                    + serial/symmetric + ", difference " + RMS(obs, exp) + ", potential energy difference " 
+                    + Math.abs((obs.potentialEnergy()-exp.potentialEnergy())/exp.potentialEnergy()));
+        }
+    }
+
+    /**
+     * Compares the SIMD direct sum with NBody.update and the scalar direct sum. It prints the run
+     * time of one step and the error relative to NBody.update, and the run time of one force pass
+     * and the RMS difference of the accelerations and the potential energy from the scalar direct
+     * sum. If the Vector API is not available, the scalar direct sum is compared with itself.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param dt the time step
+     */
+    public static void compareVector(ArrayList<Body> bodies, double dt)
+    {
+        NBody nb = new NBody();
+        ArrayList<Body> exp = nb.update(bodies, dt);
+
+        ForceEngine vector = DirectSum.vectorized(0);
+        String name = vector instanceof DirectSum ? "scalar fallback" : "simd";
+        System.out.println(name + " step: " + time(nb, vector, bodies, exp, dt));
+
+        BodySystem scalar = new BodySystem(bodies), obs = new BodySystem(bodies);
+        scalar.trackPotentials();
+        obs.trackPotentials();
+        double serial = time(new DirectSum(), scalar);
+        double simd = time(vector, obs);
+        System.out.println("direct: " + serial + " s, " + name + ": " + simd + " s, speedup " 
+                + serial/simd + ", difference " + RMS(obs, scalar) + ", potential energy difference " 
+                + Math.abs((obs.potentialEnergy()-scalar.potentialEnergy())/scalar.potentialEnergy()));
+    }
+
+    /**
+     * Times one force pass of an engine. The pass is run twice and the second time is returned so 
+     * that the time does not include warming up.
+     *
+     * @param engine the force engine
+     * @param s the system of bodies
+     * @return the time of the force pass in seconds
+     */
+    public static double time(ForceEngine engine, BodySystem s)
+    {
+        engine.accelerations(s);
+        long start = System.nanoTime();
+        engine.accelerations(s);
+        return (System.nanoTime()-start)/1e9;
+    }
+
+    /**
+     * Compares the particle mesh with the direct sum for several grid sizes. It prints the run
+     * time of one force pass and the RMS error of the accelerations relative to the RMS
+     * acceleration from the direct sum. The error is calculated against the direct sum with the
+     * same softening length, and against the direct sum without softening.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param softening the softening length of the particle mesh in meters
+     */
+    public static void compareParticleMesh(ArrayList<Body> bodies, double softening)
+    {
+        BodySystem exp = new BodySystem(bodies), soft = new BodySystem(bodies);
+        BodySystem obs = new BodySystem(bodies);
+
+        System.out.println("direct: " + time(new DirectSum(), exp) + " s");
+        System.out.println("softened direct: " + time(new DirectSum(softening), soft) + " s");
+
+        int[] grids = {32, 64, 128};
+        for(int k=0; k<grids.length; k++)
+        {
+            double pm = time(new ParticleMesh(grids[k], softening), obs);
+            System.out.println("particle mesh grid=" + grids[k] + ": " + pm + " s, error " 
+                    + RMS(obs, soft) + " (softened), " + RMS(obs, exp) + " (unsoftened)");
+        }
+    }
+
+    /**
+     * Calculates the Root Mean Square difference between the accelerations of two systems, 
+     * relative to the Root Mean Square acceleration of the expected system.
+     *
+     * @precondition both systems have the same size and order
+     *
+     * @param obs the observed system
+     * @param exp the expected system
+     * @return the relative RMS error
+     */
+    public static double RMS(BodySystem obs, BodySystem exp)
+    {
+        double sumsquares = 0, expsquares = 0;
+
+        for(int i=0; i<exp.size(); i++)
+        {
+            double dx = obs.ax[i]-exp.ax[i], dy = obs.ay[i]-exp.ay[i], dz = obs.az[i]-exp.az[i];
+            sumsquares += dx*dx+dy*dy+dz*dz;
+            expsquares += exp.ax[i]*exp.ax[i]+exp.ay[i]*exp.ay[i]+exp.az[i]*exp.az[i];
+        }
+
+        return Math.sqrt(sumsquares/expsquares);
+    }
+
+    /**
+     * Compares the float direct sum with the double direct sum. It prints the run time of one
+     * force pass, the RMS difference and the largest relative difference of the accelerations,
+     * and the error of the change of velocity after a number of steps.
+     *
+     * @param bodies the ArrayList of bodies
+     * @param dt the time step
+     * @param steps the number of steps to run
+     */
+    public static void compareFloat(ArrayList<Body> bodies, double dt, int steps)
+    {
+        BodySystem exp = new BodySystem(bodies), obs = new BodySystem(bodies);
+        DirectSum direct = new DirectSum();
+        FloatDirectSum single = new FloatDirectSum();
+
+        double serial = time(direct, exp);
+        double fast = time(single, obs);
+        double worst = 0;
+        for(int i=0; i<exp.size(); i++)
+        {
+            double dx = obs.ax[i]-exp.ax[i], dy = obs.ay[i]-exp.ay[i], dz = obs.az[i]-exp.az[i];
+            worst = Math.max(worst, Math.sqrt((dx*dx+dy*dy+dz*dz)
+                    /(exp.ax[i]*exp.ax[i]+exp.ay[i]*exp.ay[i]+exp.az[i]*exp.az[i])));
+        }
+        System.out.println("direct: " + serial + " s, float: " + fast + " s, speedup " 
+                + serial/fast + ", difference " + RMS(obs, exp) + ", largest " + worst);
+
+        exp = new BodySystem(bodies);
+        obs = new BodySystem(bodies);
+        SemiImplicitEuler euler = new SemiImplicitEuler();
+        for(int k=0; k<steps; k++)
+        {
+            euler.step(exp, direct, dt);
+            euler.step(obs, single, dt);
+        }
+        System.out.println("float after " + steps + " steps: error " 
+                + RMS(bodies, obs.toBodies(), exp.toBodies()));
+    }
+
+    /**
+     * Runs one step with a force engine and compares the result with the expected bodies.
+     *
+     * @param nb the NBody that runs the step
+     * @param engine the force engine
+     * @param bodies the bodies before the step
+     * @param exp the expected bodies after the step
+     * @param dt the time step
+     * @return a string with the run time and the error
+     */
+    public static String time(NBody nb, ForceEngine engine, ArrayList<Body> bodies, ArrayList<Body> exp, double dt)
+    {
+        BodySystem s = new BodySystem(bodies);
+        nb.setForceEngine(engine);
+
+        long start = System.nanoTime();
+        nb.step(s, dt);
+        double time = (System.nanoTime()-start)/1e9;
+
+        return time + " s, error " + RMS(bodies, s.toBodies(), exp);
+    }
+
+    /**
+     * Calculates the Root Mean Square difference between the changes of velocity of two updated
+     * lists of bodies, relative to the Root Mean Square change of velocity of the expected list.
+     *
+     * @precondition all three lists have the same size and order
+     *
+     * @param bodies the bodies before the update
+     * @param obs the observed bodies after the update
+     * @param exp the expected bodies after the update
+     * @return the relative RMS error
+     */
+    public static double RMS(ArrayList<Body> bodies, ArrayList<Body> obs, ArrayList<Body> exp)
+    {
+        double sumsquares = 0, expsquares = 0;
+
+        for(int i=0; i<bodies.size(); i++)
+        {
+            Vector v = bodies.get(i).getVel();
+            Vector dobs = obs.get(i).getVel().sub(v), dexp = exp.get(i).getVel().sub(v);
+            sumsquares += Math.pow(dobs.sub(dexp).magnitude(), 2);
+            expsquares += Math.pow(dexp.magnitude(), 2);
+        }
+
+        return Math.sqrt(sumsquares/expsquares);
+    }
+
+}
@@ -0,0 +1,387 @@
+package nbody;
+
+import java.util.Arrays;
+
+/**
+ * The Octree class approximates the gravitational accelerations of a set of bodies using the
+ * Barnes-Hut method. The space containing the bodies is recursively divided into eight cubes
+ * until every cube holds at most one body. Each cube stores the total mass and the center of
+ * mass of the bodies inside of it. When a cube is far enough away from a body, the force from
+ * all of the bodies in the cube is approximated by the force from a single point at its center
+ * of mass.
+ *
+ * A cube with side length s at a distance d from a body is treated as a single point if
+ * s/d < theta, where theta is the opening angle. A theta of 0 opens every cube and gives the
+ * same result as the direct sum. Larger values of theta are faster but less accurate. Values
+ * around 0.5 are common.
+ *
+ * The nodes of the tree are stored in arrays that are reused every time the tree is rebuilt, so
+ * rebuilding the tree each step does not allocate new objects once the arrays are large enough.
+ * As a ForceEngine, the tree is rebuilt from the system every time the accelerations are
+ * calculated. If the system is tracking potentials, the potential at every body is added up from
+ * the same bodies and cubes as its acceleration.
+ *
+ * @author Matthew Jin
+ * @version 3/12/2018
+ */
+public class Octree implements ForceEngine
+{
+
+    private final static int MAX_DEPTH = 64;
+
+    private double theta;
+
+    private double[] x, y, z, m;
+    private int n;
+
+    private int nodes;
+    private double[] cx = new double[0], cy = new double[0], cz = new double[0], half = new double[0];
+    private double[] mass = new double[0], mx = new double[0], my = new double[0], mz = new double[0];
+    private int[] child = new int[0];
+    private int[] first = new int[0];
+    private boolean[] internal = new boolean[0];
+    private int[] next = new int[0];
+    private double[] pot;
+
+    private int[] stack = new int[8*MAX_DEPTH+8];
+    private long interactions;
+
+    /**
+     * Constructor for the Octree class which sets the opening angle.
+     *
+     * @param theta the opening angle
+     */
+    public Octree(double theta)
+    {
+        this.theta = theta;
+    }
+
+    /**
+     * Gets the opening angle of the tree
+     *
+     * @return the opening angle
+     */
+    public double getTheta()
+    {
+        return theta;
+    }
+
+    /**
+     * Gets the number of body-body and body-node interactions used by the last call to
+     * accelerations
+     *
+     * @return the number of interactions
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+    /**
+     * Rebuilds the tree from the positions and masses of the bodies in the system and calculates
+     * the acceleration of every body.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodySystem s)
+    {
+        build(s.x, s.y, s.z, s.m, s.size());
+        pot = s.getPotentials();
+        accelerations(s.ax, s.ay, s.az);
+        if(pot!=null)
+        {
+            pot = null;
+            s.potentialsUpdated();
+        }
+    }
+
+    /**
+     * Builds the tree from the positions and masses of the bodies. The arrays are not copied, so
+     * they should not be changed until the accelerations have been calculated. Bodies with zero
+     * mass are not placed in the tree because they do not pull on any other body.
+     *
+     * @param x the x positions of the bodies in meters
+     * @param y the y positions of the bodies in meters
+     * @param z the z positions of the bodies in meters
+     * @param m the masses of the bodies in kilograms
+     * @param n the number of bodies
+     */
+    public void build(double[] x, double[] y, double[] z, double[] m, int n)
+    {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.m = m;
+        this.n = n;
+
+        if(next.length<n)
+        {
+            next = new int[n];
+        }
+
+        double minx = Double.MAX_VALUE, miny = Double.MAX_VALUE, minz = Double.MAX_VALUE;
+        double maxx = -Double.MAX_VALUE, maxy = -Double.MAX_VALUE, maxz = -Double.MAX_VALUE;
+        for(int i=0; i<n; i++)
+        {
+            minx = Math.min(minx, x[i]); maxx = Math.max(maxx, x[i]);
+            miny = Math.min(miny, y[i]); maxy = Math.max(maxy, y[i]);
+            minz = Math.min(minz, z[i]); maxz = Math.max(maxz, z[i]);
+        } //Finds the bounding box of the bodies
+
+        double size = Math.max(maxx-minx, Math.max(maxy-miny, maxz-minz));
+        if(!(size>0))
+        {
+            size = 1;
+        }
+
+        nodes = 0;
+        newNode((minx+maxx)/2, (miny+maxy)/2, (minz+maxz)/2, size/2*(1+1e-9));
+
+        for(int i=0; i<n; i++)
+        {
+            if(m[i]!=0)
+            {
+                insert(i);
+            }
+        }
+
+        for(int node=nodes-1; node>=0; node--)
+        {
+            double sm = 0, sx = 0, sy = 0, sz = 0;
+            if(internal[node])
+            {
+                for(int k=0; k<8; k++)
+                {
+                    int c = child[8*node+k];
+                    if(c>=0)
+                    {
+                        sm += mass[c];
+                        sx += mass[c]*mx[c]; sy += mass[c]*my[c]; sz += mass[c]*mz[c];
+                    }
+                }
+            } else {
+                for(int b=first[node]; b>=0; b=next[b])
+                {
+                    sm += m[b];
+                    sx += m[b]*x[b]; sy += m[b]*y[b]; sz += m[b]*z[b];
+                }
+            }
+            mass[node] = sm;
+            if(sm!=0)
+            {
+                mx[node] = sx/sm; my[node] = sy/sm; mz[node] = sz/sm;
+            } else {
+                mx[node] = cx[node]; my[node] = cy[node]; mz[node] = cz[node];
+            }
+        } //Children are always created after their parents, so looping backwards sums them first
+    }
+
+    /**
+     * Calculates the acceleration of every body in the tree. The tree has to be built first.
+     *
+     * @param ax the array that the x accelerations are stored in, in meters per second squared
+     * @param ay the array that the y accelerations are stored in
+     * @param az the array that the z accelerations are stored in
+     */
+    public void accelerations(double[] ax, double[] ay, double[] az)
+    {
+        interactions = 0;
+        for(int i=0; i<n; i++)
+        {
+            acceleration(i, ax, ay, az);
+        }
+    }
+
+    /**
+     * Calculates the acceleration of one body by walking the tree. Cubes that pass the opening
+     * angle test are treated as a single point and the rest are opened. A cube is always opened
+     * if the body is inside of it.
+     *
+     * @param i the index of the body
+     * @param ax the array that the x accelerations are stored in
+     * @param ay the array that the y accelerations are stored in
+     * @param az the array that the z accelerations are stored in
+     */
+    private void acceleration(int i, double[] ax, double[] ay, double[] az)
+    {
+        double xi = x[i], yi = y[i], zi = z[i];
+        double sumx = 0, sumy = 0, sumz = 0, sump = 0;
+        double theta2 = theta*theta;
+        long count = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+        while(top>0)
+        {
+            int node = stack[--top];
+            if(mass[node]==0)
+            {
+                continue;
+            }
+
+            if(!internal[node])
+            {
+                for(int b=first[node]; b>=0; b=next[b])
+                {
+                    if(b!=i)
+                    {
+                        double dx = x[b]-xi, dy = y[b]-yi, dz = z[b]-zi;
+                        double d2 = dx*dx+dy*dy+dz*dz;
+                        double scalar = NBody.G*m[b]/(d2*Math.sqrt(d2));
+                        sumx += dx*scalar; sumy += dy*scalar; sumz += dz*scalar;
+                        sump -= scalar*d2;
+                        count++;
+                    }
+                }
+                continue;
+            }
+
+            double dx = mx[node]-xi, dy = my[node]-yi, dz = mz[node]-zi;
+            double d2 = dx*dx+dy*dy+dz*dz;
+            double s = 2*half[node];
+            boolean inside = Math.abs(xi-cx[node])<=half[node]
+                    && Math.abs(yi-cy[node])<=half[node]
+                    && Math.abs(zi-cz[node])<=half[node];
+
+            if(!inside && s*s<theta2*d2)
+            {
+                double scalar = NBody.G*mass[node]/(d2*Math.sqrt(d2));
+                sumx += dx*scalar; sumy += dy*scalar; sumz += dz*scalar;
+                sump -= scalar*d2;
+                count++;
+            } else {
+                for(int k=0; k<8; k++)
+                {
+                    int c = child[8*node+k];
+                    if(c>=0)
+                    {
+                        stack[top++] = c;
+                    }
+                }
+            }
+        } //Walks the tree using a stack instead of recursion
+
+        ax[i] = sumx; ay[i] = sumy; az[i] = sumz;
+        if(pot!=null)
+        {
+            pot[i] = sump;
+        } //G*m/r is the scalar times r squared
+        interactions += count;
+    }
+
+    /**
+     * Inserts a body into the tree. If the body lands in a cube that already has a body, the
+     * cube is split into eight smaller cubes until the two bodies are in different cubes. Bodies
+     * that are still in the same cube at the maximum depth are kept together in a list.
+     *
+     * @param i the index of the body
+     */
+    private void insert(int i)
+    {
+        int node = 0, depth = 0;
+        while(true)
+        {
+            if(internal[node])
+            {
+                int k = octant(node, x[i], y[i], z[i]);
+                int c = child[8*node+k];
+                if(c<0)
+                {
+                    c = newChild(node, k);
+                    first[c] = i;
+                    next[i] = -1;
+                    return;
+                }
+                node = c;
+                depth++;
+            } else if(first[node]<0) {
+                first[node] = i;
+                next[i] = -1;
+                return;
+            } else if(depth>=MAX_DEPTH) {
+                next[i] = first[node];
+                first[node] = i;
+                return;
+            } else {
+                int b = first[node];
+                first[node] = -1;
+                internal[node] = true;
+                int c = newChild(node, octant(node, x[b], y[b], z[b]));
+                first[c] = b;
+                next[b] = -1;
+            } //Splits a leaf and moves its body down a level before trying again
+        }
+    }
+
+    /**
+     * Finds which of the eight smaller cubes of a node a position is in.
+     *
+     * @param node the index of the node
+     * @param px the x position
+     * @param py the y position
+     * @param pz the z position
+     * @return the index of the smaller cube from 0 to 7
+     */
+    private int octant(int node, double px, double py, double pz)
+    {
+        int k = 0;
+        if(px>=cx[node]) k |= 1;
+        if(py>=cy[node]) k |= 2;
+        if(pz>=cz[node]) k |= 4;
+        return k;
+    }
+
+    /**
+     * Creates one of the eight smaller cubes of a node.
+     *
+     * @param node the index of the parent node
+     * @param k the index of the smaller cube from 0 to 7
+     * @return the index of the new node
+     */
+    private int newChild(int node, int k)
+    {
+        double h = half[node]/2;
+        int c = newNode(
+                cx[node] + ((k&1)!=0 ? h : -h),
+                cy[node] + ((k&2)!=0 ? h : -h),
+                cz[node] + ((k&4)!=0 ? h : -h), h);
+        child[8*node+k] = c;
+        return c;
+    }
+
+    /**
+     * Creates an empty node, growing the node arrays if they are full.
+     *
+     * @param px the x position of the center of the cube
+     * @param py the y position of the center of the cube
+     * @param pz the z position of the center of the cube
+     * @param h half of the side length of the cube
+     * @return the index of the new node
+     */
+    private int newNode(double px, double py, double pz, double h)
+    {
+        if(nodes==cx.length)
+        {
+            int size = Math.max(16, 2*nodes);
+            cx = Arrays.copyOf(cx, size);
+            cy = Arrays.copyOf(cy, size);
+            cz = Arrays.copyOf(cz, size);
+            half = Arrays.copyOf(half, size);
+            mass = Arrays.copyOf(mass, size);
+            mx = Arrays.copyOf(mx, size);
+            my = Arrays.copyOf(my, size);
+            mz = Arrays.copyOf(mz, size);
+            child = Arrays.copyOf(child, 8*size);
+            first = Arrays.copyOf(first, size);
+            internal = Arrays.copyOf(internal, size);
+        }
+
+        int node = nodes++;
+        cx[node] = px; cy[node] = py; cz[node] = pz; half[node] = h;
+        Arrays.fill(child, 8*node, 8*node+8, -1);
+        first[node] = -1;
+        internal[node] = false;
+        return node;
+    }
+
+}
@@ -0,0 +1,432 @@
+package nbody;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * The OffHeapSystem class stores the positions, velocities, and masses of a very large number of
+ * bodies outside of the Java heap. Each of the x, y, z, vx, vy, vz, and m columns is made of
+ * buffers of doubles, either in direct memory or mapped from a file, so a body takes 56 bytes and
+ * the garbage collector never has to look at the bodies. A Star with its two Vectors takes about
+ * three times as much memory, and a BodySystem also stores three accelerations for every body.
+ *
+ * A single Java buffer can hold at most about 268 million doubles, so each column is split into
+ * chunks of CHUNK bodies, and the bodies are numbered with longs. The number of bodies is only
+ * limited by the memory or the disk. The tiles of the BodyColumns interface are a power of two
+ * smaller than a chunk, so a tile is never split between two chunks.
+ *
+ * The system implements BodyColumns, so the integrators and the force engines that work on
+ * columns, such as DirectSum and ParticleMesh, can move it. The ax, ay, and az columns are only
+ * needed by those engines, so they are made in direct memory the first time they are used and are
+ * never part of the file, which adds 24 bytes for every body. The kick and drift methods copy one
+ * tile of each column at a time into arrays.
+ *
+ * A file-backed system starts with the int MAGIC, the int VERSION, and the number of bodies as a
+ * long, followed by the x, y, z, vx, vy, vz, and m columns, one after another. All of the values
+ * are little endian. Version 1 files have the number of bodies as an int followed by 4 bytes of
+ * padding. Changes to a mapped system are written to the file by the operating system, and the
+ * file can be opened again to continue the run.
+ *
+ * @author Matthew Jin
+ * @version 6/12/2018
+ */
+public class OffHeapSystem implements BodyColumns
+{
+
+    public final static int MAGIC = 0x4E424F48;
+    public final static int VERSION = 2;
+
+    private final static int HEADER = 16;
+    private final static int CHUNK_BITS = 27;
+    public final static int CHUNK = 1<<CHUNK_BITS;
+
+    private DoubleBuffer[][] columns;
+
+    private long n;
+    private double[] tx = new double[TILE], ty = new double[TILE], tz = new double[TILE];
+    private double[] ux = new double[TILE], uy = new double[TILE], uz = new double[TILE];
+
+    /**
+     * Constructor for the OffHeapSystem class which creates space for n bodies in direct memory.
+     * All of the values start at zero.
+     *
+     * @param n the number of bodies
+     */
+    public OffHeapSystem(long n)
+    {
+        this(n, allocate(n));
+    }
+
+    /**
+     * Constructor for the OffHeapSystem class which uses the given columns. The acceleration
+     * columns are left out until they are used.
+     *
+     * @param n the number of bodies
+     * @param columns the chunks of the x, y, z, vx, vy, vz, and m columns
+     */
+    private OffHeapSystem(long n, DoubleBuffer[][] columns)
+    {
+        this.n = n;
+        this.columns = new DoubleBuffer[AZ+1][];
+        System.arraycopy(columns, 0, this.columns, 0, columns.length);
+    }
+
+    /**
+     * Creates the x, y, z, vx, vy, vz, and m columns for n bodies in direct memory.
+     *
+     * @param n the number of bodies
+     * @return the chunks of the seven columns
+     */
+    private static DoubleBuffer[][] allocate(long n)
+    {
+        DoubleBuffer[][] columns = new DoubleBuffer[M+1][];
+        for(int k=0; k<columns.length; k++)
+        {
+            columns[k] = allocateColumn(n);
+        }
+        return columns;
+    }
+
+    /**
+     * Creates the chunks of one column for n bodies in direct memory.
+     *
+     * @param n the number of bodies
+     * @return the chunks of the column
+     */
+    private static DoubleBuffer[] allocateColumn(long n)
+    {
+        DoubleBuffer[] column = new DoubleBuffer[chunks(n)];
+        for(int c=0; c<column.length; c++)
+        {
+            int length = (int) Math.min(CHUNK, n-((long) c<<CHUNK_BITS));
+            column[c] = ByteBuffer.allocateDirect(8*length).order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+        }
+        return column;
+    }
+
+    /**
+     * Finds the number of chunks needed for n bodies.
+     *
+     * @param n the number of bodies
+     * @return the number of chunks in each column
+     */
+    private static int chunks(long n)
+    {
+        if(n<0)
+        {
+            throw new IllegalArgumentException("The number of bodies cannot be negative: " + n);
+        }
+        return (int) ((n+CHUNK-1)>>CHUNK_BITS);
+    }
+
+    /**
+     * Creates a system of n bodies that is mapped from a new file. All of the values start at
+     * zero.
+     *
+     * @param path the path of the file
+     * @param n the number of bodies
+     * @return the system
+     */
+    public static OffHeapSystem create(String path, long n) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(n).flip();
+            channel.write(header, 0);
+            return new OffHeapSystem(n, map(channel, n));
+        }
+    }
+
+    /**
+     * Opens a system that was created with the create method.
+     *
+     * @param path the path of the file
+     * @return the system
+     */
+    public static OffHeapSystem open(String path) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ,
+                StandardOpenOption.WRITE))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+
+            if(header.remaining()<HEADER || header.getInt()!=MAGIC)
+            {
+                throw new IOException(path + " is not an off-heap body file");
+            }
+            int version = header.getInt();
+            if(version<1 || version>VERSION)
+            {
+                throw new IOException("Unsupported off-heap body file version " + version);
+            }
+            long n = version==1 ? header.getInt() : header.getLong();
+            if(n<0 || channel.size()<HEADER+56*n)
+            {
+                throw new IOException(path + " is incomplete");
+            }
+            return new OffHeapSystem(n, map(channel, n));
+        }
+    }
+
+    /**
+     * Maps the seven columns of a file one chunk at a time. The mapping stays valid after the
+     * channel is closed.
+     *
+     * @param channel the file channel
+     * @param n the number of bodies
+     * @return the chunks of the seven columns
+     */
+    private static DoubleBuffer[][] map(FileChannel channel, long n) throws IOException
+    {
+        DoubleBuffer[][] columns = new DoubleBuffer[M+1][chunks(n)];
+        for(int k=0; k<columns.length; k++)
+        {
+            for(int c=0; c<columns[k].length; c++)
+            {
+                long start = (long) c<<CHUNK_BITS;
+                long length = Math.min(CHUNK, n-start);
+                columns[k][c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER+8*(n*k+start), 8*length)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Gets the number of bodies
+     *
+     * @return the number of bodies
+     */
+    public long size()
+    {
+        return n;
+    }
+
+    /**
+     * Gets the number of bodies, for the BodyColumns interface
+     *
+     * @return the number of bodies
+     */
+    public long count()
+    {
+        return n;
+    }
+
+    /**
+     * Finds the chunk of a column that holds a body, making the column first if it is an
+     * acceleration column that has not been used yet.
+     *
+     * @param column the column, from X to AZ
+     * @param i the index of the body
+     * @return the chunk
+     */
+    private DoubleBuffer chunk(int column, long i)
+    {
+        if(columns[column]==null)
+        {
+            columns[column] = allocateColumn(n);
+        }
+        return columns[column][(int) (i>>CHUNK_BITS)];
+    }
+
+    /**
+     * Gets one value of a body.
+     *
+     * @param column the column, from X to AZ
+     * @param i the index of the body
+     * @return the value
+     */
+    public double get(int column, long i)
+    {
+        return chunk(column, i).get((int) (i&(CHUNK-1)));
+    }
+
+    /**
+     * Sets one value of a body.
+     *
+     * @param column the column, from X to AZ
+     * @param i the index of the body
+     * @param value the new value
+     */
+    public void put(int column, long i, double value)
+    {
+        chunk(column, i).put((int) (i&(CHUNK-1)), value);
+    }
+
+    /**
+     * Copies the values of a tile of bodies out of a column. The tile cannot cross the end of a
+     * chunk.
+     *
+     * @param column the column, from X to AZ
+     * @param start the index of the first body
+     * @param dst the array the values are copied to
+     * @param length the number of bodies
+     */
+    public void read(int column, long start, double[] dst, int length)
+    {
+        chunk(column, start).get((int) (start&(CHUNK-1)), dst, 0, length);
+    }
+
+    /**
+     * Copies the values of a tile of bodies into a column. The tile cannot cross the end of a
+     * chunk.
+     *
+     * @param column the column, from X to AZ
+     * @param start the index of the first body
+     * @param src the array the values are copied from
+     * @param length the number of bodies
+     */
+    public void write(int column, long start, double[] src, int length)
+    {
+        chunk(column, start).put((int) (start&(CHUNK-1)), src, 0, length);
+    }
+
+    /**
+     * Copies the position, velocity, and mass of a Body into the system.
+     *
+     * @param i the index of the body
+     * @param b the Body
+     */
+    public void set(long i, Body b)
+    {
+        put(X, i, b.getPos().x); put(Y, i, b.getPos().y); put(Z, i, b.getPos().z);
+        put(VX, i, b.getVel().x); put(VY, i, b.getVel().y); put(VZ, i, b.getVel().z);
+        put(M, i, b.getMass());
+    }
+
+    /**
+     * Copies the positions, velocities, and masses from an ArrayList of Bodies into a new system
+     * in direct memory.
+     *
+     * @param bodies the ArrayList of Bodies
+     * @return the system
+     */
+    public static OffHeapSystem of(ArrayList<Body> bodies)
+    {
+        OffHeapSystem s = new OffHeapSystem(bodies.size());
+        for(int i=0; i<s.n; i++)
+        {
+            s.set(i, bodies.get(i));
+        }
+        return s;
+    }
+
+    /**
+     * Copies the positions, velocities, and masses of the bodies with mass in a BodySystem into
+     * a system, either in direct memory or mapped from a new file.
+     *
+     * @param s the BodySystem
+     * @param path the path of the file, or null to use direct memory
+     * @return the system
+     */
+    public static OffHeapSystem of(BodySystem s, String path) throws IOException
+    {
+        int n = 0;
+        for(int i=0; i<s.size(); i++)
+        {
+            if(s.m[i]!=0)
+            {
+                n++;
+            }
+        }
+
+        OffHeapSystem o = path!=null ? create(path, n) : new OffHeapSystem(n);
+        double[][] arrays = {s.x, s.y, s.z, s.vx, s.vy, s.vz, s.m};
+        long live = 0;
+        for(int i=0; i<s.size(); i++)
+        {
+            if(s.m[i]!=0)
+            {
+                for(int k=0; k<arrays.length; k++)
+                {
+                    o.put(k, live, arrays[k][i]);
+                }
+                live++;
+            }
+        } //Absorbed bodies are left out
+        return o;
+    }
+
+    /**
+     * Copies the positions, velocities, and masses into a new BodySystem on the heap.
+     *
+     * @precondition the number of bodies fits in an int
+     *
+     * @return the BodySystem
+     */
+    public BodySystem toSystem()
+    {
+        if(n>Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException(n + " bodies do not fit in a BodySystem");
+        }
+        BodySystem s = new BodySystem((int) n);
+        double[][] arrays = {s.x, s.y, s.z, s.vx, s.vy, s.vz, s.m};
+        for(int k=0; k<arrays.length; k++)
+        {
+            for(int start=0; start<n; start+=CHUNK)
+            {
+                columns[k][start>>CHUNK_BITS].get(0, arrays[k], start, (int) Math.min(CHUNK, n-start));
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Updates the velocity of every body with its acceleration over a time interval, one tile at
+     * a time.
+     *
+     * @param dt the time interval in seconds
+     */
+    public void kick(double dt)
+    {
+        for(long start=0; start<n; start+=TILE)
+        {
+            int length = (int) Math.min(TILE, n-start);
+            read(VX, start, tx, length); read(VY, start, ty, length); read(VZ, start, tz, length);
+            read(AX, start, ux, length); read(AY, start, uy, length); read(AZ, start, uz, length);
+            for(int j=0; j<length; j++)
+            {
+                tx[j] += ux[j]*dt;
+                ty[j] += uy[j]*dt;
+                tz[j] += uz[j]*dt;
+            }
+            write(VX, start, tx, length); write(VY, start, ty, length); write(VZ, start, tz, length);
+        }
+    }
+
+    /**
+     * Updates the position of every body with its velocity over a time interval, one tile at a
+     * time.
+     *
+     * @param dt the time interval in seconds
+     */
+    public void drift(double dt)
+    {
+        for(long start=0; start<n; start+=TILE)
+        {
+            int length = (int) Math.min(TILE, n-start);
+            read(X, start, tx, length); read(Y, start, ty, length); read(Z, start, tz, length);
+            read(VX, start, ux, length); read(VY, start, uy, length); read(VZ, start, uz, length);
+            for(int j=0; j<length; j++)
+            {
+                tx[j] += ux[j]*dt;
+                ty[j] += uy[j]*dt;
+                tz[j] += uz[j]*dt;
+            }
+            write(X, start, tx, length); write(Y, start, ty, length); write(Z, start, tz, length);
+        }
+    }
+
+}
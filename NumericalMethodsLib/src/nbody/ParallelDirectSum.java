@@ -0,0 +1,129 @@
+package nbody;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The ParallelDirectSum class calculates the same direct sum as the DirectSum class, but splits
+ * the bodies between several threads. The bodies are split into ranges of at most chunk bodies,
+ * and the ranges are run on a fork-join pool with the given number of threads. Every body is
+ * still summed over the other bodies in the same order as the serial direct sum, so the results
+ * are exactly the same as DirectSum, bit for bit, for any number of threads or chunk size.
+ *
+ * @author Matthew Jin
+ * @version 3/27/2018
+ */
+public class ParallelDirectSum implements ForceEngine
+{
+
+    private ForkJoinPool pool;
+    private int threads;
+    private int chunk;
+    private long interactions;
+
+    /**
+     * Constructor for the ParallelDirectSum class which sets the number of threads and the chunk
+     * size.
+     *
+     * @param threads the number of threads, or 0 to use one thread for each processor
+     * @param chunk the largest number of bodies calculated by one task
+     */
+    public ParallelDirectSum(int threads, int chunk)
+    {
+        this.threads = threads>0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunk = Math.max(1, chunk);
+    }
+
+    /**
+     * Gets the number of threads
+     *
+     * @return the number of threads
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Calculates the acceleration of every body using the threads in the pool.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodySystem s)
+    {
+        int n = s.size();
+        if(pool==null || pool.isShutdown())
+        {
+            pool = new ForkJoinPool(threads);
+        } //Starts the pool the first time and after a shutdown
+        pool.invoke(new Range(s, 0, n));
+        if(s.getPotentials()!=null)
+        {
+            s.potentialsUpdated();
+        }
+        interactions = (long) n*(n-1);
+    }
+
+    /**
+     * Gets the number of pair interactions that were calculated by the last call to
+     * accelerations
+     *
+     * @return the number of interactions
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+    /**
+     * Stops the threads in the pool. If the engine is used again, a new pool is started.
+     */
+    public void shutdown()
+    {
+        if(pool!=null)
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A task that calculates the accelerations of a range of bodies. Ranges larger than the chunk
+     * size are split in half.
+     */
+    private class Range extends RecursiveAction
+    {
+
+        private BodySystem s;
+        private int lo, hi;
+
+        /**
+         * Constructor for the Range class.
+         *
+         * @param s the system of bodies
+         * @param lo the index of the first body
+         * @param hi one more than the index of the last body
+         */
+        Range(BodySystem s, int lo, int hi)
+        {
+            this.s = s;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Calculates the range directly or splits it into two smaller ranges.
+         */
+        protected void compute()
+        {
+            if(hi-lo<=chunk)
+            {
+                DirectSum.accelerations(s, lo, hi, 0);
+            } else {
+                int mid = (lo+hi)>>>1;
+                invokeAll(new Range(s, lo, mid), new Range(s, mid, hi));
+            }
+        }
+
+    }
+
+}
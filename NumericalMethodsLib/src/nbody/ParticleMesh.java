@@ -0,0 +1,335 @@
+package nbody;
+
+import java.util.Arrays;
+
+/**
+ * The ParticleMesh class approximates the gravitational accelerations of a very large number of
+ * bodies using a grid. Instead of calculating the force between every pair of bodies, the mass of
+ * the bodies is spread onto a grid, the gravitational potential of the grid is found by solving
+ * Poisson's equation with the fast Fourier transform, and the accelerations at the grid points are
+ * interpolated back to the bodies. Each step takes about O(n + g log g) time for n bodies and g
+ * grid points, so it works for millions of bodies. Forces between bodies closer than a few grid
+ * cells are smoothed out, so this is meant for large systems where close encounters do not matter.
+ *
+ * The mass is spread with the cloud-in-cell method, where each body is treated as a cube the size
+ * of one grid cell and its mass is split between the eight grid points around it. The same
+ * weights are used to interpolate the accelerations back to the bodies.
+ *
+ * The bodies are not in a periodic box, so the potential is found with the method of Hockney and
+ * Eastwood. The bodies are placed in one corner of a grid that is twice as large in each
+ * direction, with the rest of the grid left empty. The potential is the convolution of the mass
+ * with the softened Green's function -G/sqrt(r*r+e*e), which is done by multiplying their Fourier
+ * transforms. Because of the empty half of the grid, the copies of the bodies that the Fourier
+ * transform adds are too far away to change the potential where the bodies are.
+ *
+ * The mass and the potential are real, so they are transformed with the real transforms of the
+ * FFT class, which only keep half of the Fourier transform. The Green's function only depends on
+ * the grid spacing, so its transform is kept and only calculated again when the spacing changes.
+ * It is real and symmetric, so its transform is also real and only the real parts are kept. Each
+ * step then only needs one forward and one inverse transform.
+ *
+ * The grid is resized every step to fit around the bodies, so the grid spacing is the size of the
+ * system divided by about half the grid size. Without softening, the Green's function for any
+ * spacing h is the one for a spacing of 1 divided by h, so its transform is only calculated once.
+ * With softening, the spacing is rounded up to the next power of 2^(1/16), which makes the grid at
+ * most about 4% coarser, so the transform is only calculated again when the system grows or
+ * shrinks by more than that. The acceleration at each grid point is found from the potential with
+ * central differences.
+ *
+ * The bodies are read and the accelerations are written one tile at a time through the
+ * BodyColumns interface, so the same engine works on a BodySystem and on an OffHeapSystem that
+ * is too large for the Java heap. Only the grid has to fit in memory.
+ *
+ * @author Matthew Jin
+ * @version 5/1/2018
+ */
+public class ParticleMesh implements ForceEngine
+{
+
+    private final static int STEPS = 16; //Values of the spacing in every factor of two
+
+    private int grid;
+    private int half;
+    private double softening;
+
+    private FFT fft;
+    private double[] rho, rhore, rhoim, kernel;
+    private double kernelh = Double.NaN;
+    private int kernelPasses;
+
+    private double h;
+    private double ox, oy, oz;
+    private long interactions;
+
+    private double[] tx = new double[BodyColumns.TILE], ty = new double[BodyColumns.TILE];
+    private double[] tz = new double[BodyColumns.TILE], tm = new double[BodyColumns.TILE];
+    private double[] ax = new double[BodyColumns.TILE], ay = new double[BodyColumns.TILE];
+    private double[] az = new double[BodyColumns.TILE];
+
+    /**
+     * Constructor for the ParticleMesh class which sets the size of the grid and the softening
+     * length.
+     *
+     * @precondition grid is a power of two and at least 8
+     *
+     * @param grid the number of grid points along each side of the Fourier transform grid, which
+     * is twice the number of points along each side of the region holding the bodies
+     * @param softening the softening length in meters
+     */
+    public ParticleMesh(int grid, double softening)
+    {
+        if(grid<8)
+        {
+            throw new IllegalArgumentException("The particle mesh grid has to be at least 8: " + grid);
+        }
+        this.grid = grid;
+        this.softening = softening;
+        half = grid/2;
+
+        fft = new FFT(grid);
+        int size = grid*grid*(grid/2+1);
+        rho = new double[grid*grid*grid];
+        rhore = new double[size]; rhoim = new double[size];
+        kernel = new double[size];
+    }
+
+    /**
+     * Gets the spacing between grid points from the last call to accelerations
+     *
+     * @return the grid spacing in meters
+     */
+    public double getSpacing()
+    {
+        return h;
+    }
+
+    /**
+     * Gets the number of times the transform of the Green's function has been calculated
+     *
+     * @return the number of times
+     */
+    public int getKernelPasses()
+    {
+        return kernelPasses;
+    }
+
+    /**
+     * Calculates the acceleration of every body using the grid.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodySystem s)
+    {
+        accelerations((BodyColumns) s);
+    }
+
+    /**
+     * Calculates the acceleration of every body in a system that is stored in columns using the
+     * grid. The bodies are read one tile at a time, so the system does not have to fit in the
+     * Java heap.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodyColumns s)
+    {
+        long n = s.count();
+
+        fitGrid(s);
+        updateKernel();
+        deposit(s);
+        potential();
+
+        for(long start=0; start<n; start+=BodyColumns.TILE)
+        {
+            int length = (int) Math.min(BodyColumns.TILE, n-start);
+            s.read(BodyColumns.X, start, tx, length);
+            s.read(BodyColumns.Y, start, ty, length);
+            s.read(BodyColumns.Z, start, tz, length);
+            for(int p=0; p<length; p++)
+            {
+                interpolate(p);
+            }
+            s.write(BodyColumns.AX, start, ax, length);
+            s.write(BodyColumns.AY, start, ay, length);
+            s.write(BodyColumns.AZ, start, az, length);
+        }
+        interactions = n;
+    }
+
+    /**
+     * Gets the number of bodies that were interpolated by the last call to accelerations. The
+     * particle mesh does not calculate any pair interactions, so this is the number of body-grid
+     * interactions instead.
+     *
+     * @return the number of bodies
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+    /**
+     * Sets the grid spacing and the position of the corner of the grid so that every body is at
+     * least half a cell away from the edges of the region holding the bodies.
+     *
+     * @param s the system of bodies
+     */
+    private void fitGrid(BodyColumns s)
+    {
+        long n = s.count();
+        double minx = Double.MAX_VALUE, miny = Double.MAX_VALUE, minz = Double.MAX_VALUE;
+        double maxx = -Double.MAX_VALUE, maxy = -Double.MAX_VALUE, maxz = -Double.MAX_VALUE;
+        for(long start=0; start<n; start+=BodyColumns.TILE)
+        {
+            int length = (int) Math.min(BodyColumns.TILE, n-start);
+            s.read(BodyColumns.X, start, tx, length);
+            s.read(BodyColumns.Y, start, ty, length);
+            s.read(BodyColumns.Z, start, tz, length);
+            for(int i=0; i<length; i++)
+            {
+                minx = Math.min(minx, tx[i]); maxx = Math.max(maxx, tx[i]);
+                miny = Math.min(miny, ty[i]); maxy = Math.max(maxy, ty[i]);
+                minz = Math.min(minz, tz[i]); maxz = Math.max(maxz, tz[i]);
+            }
+        }
+
+        double size = Math.max(maxx-minx, Math.max(maxy-miny, maxz-minz));
+        h = size>0 ? size/(half-2) : 1;
+        if(softening>0)
+        {
+            h = Math.pow(2, Math.ceil(Math.log(h)/Math.log(2)*STEPS)/STEPS);
+        } //Rounds the spacing up so that the Green's function can be kept between steps
+        ox = minx-h/2; oy = miny-h/2; oz = minz-h/2;
+    }
+
+    /**
+     * Spreads the mass of every body onto the grid with the cloud-in-cell weights.
+     *
+     * @param s the system of bodies
+     */
+    private void deposit(BodyColumns s)
+    {
+        Arrays.fill(rho, 0);
+
+        long n = s.count();
+        for(long start=0; start<n; start+=BodyColumns.TILE)
+        {
+            int length = (int) Math.min(BodyColumns.TILE, n-start);
+            s.read(BodyColumns.X, start, tx, length);
+            s.read(BodyColumns.Y, start, ty, length);
+            s.read(BodyColumns.Z, start, tz, length);
+            s.read(BodyColumns.M, start, tm, length);
+            for(int p=0; p<length; p++)
+            {
+                double u = (tx[p]-ox)/h, v = (ty[p]-oy)/h, w = (tz[p]-oz)/h;
+                int i = (int) u, j = (int) v, k = (int) w;
+                double fx = u-i, fy = v-j, fz = w-k;
+
+                for(int c=0; c<8; c++)
+                {
+                    int di = c&1, dj = (c>>1)&1, dk = (c>>2)&1;
+                    double weight = (di==0 ? 1-fx : fx)*(dj==0 ? 1-fy : fy)*(dk==0 ? 1-fz : fz);
+                    rho[index(i+di, j+dj, k+dk)] += tm[p]*weight;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the transform of the Green's function if the grid spacing changed since it was
+     * last calculated. Without softening the transform is calculated for a spacing of 1 and
+     * divided by the spacing in potential. The rho array is used to hold the Green's function
+     * before it is transformed.
+     */
+    private void updateKernel()
+    {
+        double spacing = softening>0 ? h : 1;
+        if(spacing==kernelh)
+        {
+            return;
+        }
+
+        double e2 = softening*softening;
+        for(int i=0; i<grid; i++)
+        {
+            double dx = Math.min(i, grid-i)*spacing;
+            for(int j=0; j<grid; j++)
+            {
+                double dy = Math.min(j, grid-j)*spacing;
+                for(int k=0; k<grid; k++)
+                {
+                    double dz = Math.min(k, grid-k)*spacing;
+                    double r2 = dx*dx+dy*dy+dz*dz+e2;
+                    rho[index(i, j, k)] = r2>0 ? -NBody.G/Math.sqrt(r2) : 0;
+                }
+            }
+        } //The Green's function uses the distance to the nearest copy of the origin
+
+        fft.realTransform3D(rho, kernel, rhoim);
+        kernelh = spacing;
+        kernelPasses++;
+    }
+
+    /**
+     * Calculates the potential on the grid by convolving the mass with the Green's function. The
+     * potential is left in rho.
+     */
+    private void potential()
+    {
+        double scale = softening>0 ? 1 : 1/h;
+        fft.realTransform3D(rho, rhore, rhoim);
+
+        for(int c=0; c<rhore.length; c++)
+        {
+            double g = kernel[c]*scale;
+            rhore[c] *= g;
+            rhoim[c] *= g;
+        } //The transform of the Green's function is real
+
+        fft.realInverse3D(rhore, rhoim, rho);
+    }
+
+    /**
+     * Interpolates the acceleration at the grid points around a body in the current tile to the
+     * body, using the cloud-in-cell weights. The acceleration at each grid point is minus the
+     * gradient of the potential, found with central differences.
+     *
+     * @param p the index of the body in the tile
+     */
+    private void interpolate(int p)
+    {
+        double u = (tx[p]-ox)/h, v = (ty[p]-oy)/h, w = (tz[p]-oz)/h;
+        int i = (int) u, j = (int) v, k = (int) w;
+        double fx = u-i, fy = v-j, fz = w-k;
+
+        double sumx = 0, sumy = 0, sumz = 0;
+        for(int c=0; c<8; c++)
+        {
+            int di = c&1, dj = (c>>1)&1, dk = (c>>2)&1;
+            double weight = (di==0 ? 1-fx : fx)*(dj==0 ? 1-fy : fy)*(dk==0 ? 1-fz : fz);
+            int a = i+di, b = j+dj, d = k+dk;
+
+            sumx -= weight*(rho[index(a+1, b, d)]-rho[index(a-1, b, d)]);
+            sumy -= weight*(rho[index(a, b+1, d)]-rho[index(a, b-1, d)]);
+            sumz -= weight*(rho[index(a, b, d+1)]-rho[index(a, b, d-1)]);
+        }
+
+        ax[p] = sumx/(2*h); ay[p] = sumy/(2*h); az[p] = sumz/(2*h);
+    }
+
+    /**
+     * Finds the index of a grid point in the grid arrays. Indices outside of the grid wrap around
+     * to the other side.
+     *
+     * @param i the x index of the grid point
+     * @param j the y index of the grid point
+     * @param k the z index of the grid point
+     * @return the index in the grid arrays
+     */
+    private int index(int i, int j, int k)
+    {
+        int mask = grid-1;
+        return (((i&mask)*grid)+(j&mask))*grid+(k&mask);
+    }
+
+}
@@ -0,0 +1,43 @@
+package nbody;
+
+/**
+ * The SemiImplicitEuler class moves the bodies with the semi-implicit Euler method that was
+ * originally used by NBody.update. The velocities are updated with the accelerations first, and
+ * then the positions are updated with the new velocities. It is first order accurate and uses one
+ * force calculation per step.
+ *
+ * The force pass is at the same time as the velocities before the kick, so the energy is recorded
+ * right after it.
+ *
+ * @author Matthew Jin
+ * @version 4/3/2018
+ */
+public class SemiImplicitEuler implements Integrator
+{
+
+    /**
+     * Moves the system forward by one time step with a kick followed by a drift.
+     *
+     * @param s the system of bodies
+     * @param engine the force engine used to calculate the accelerations
+     * @param dt the time step in seconds
+     */
+    public void step(BodyColumns s, ForceEngine engine, double dt)
+    {
+        engine.accelerations(s);
+        s.recordEnergy(0);
+        s.kick(dt);
+        s.drift(dt);
+    }
+
+    /**
+     * Gets the number of times the integrator calls the force engine in one step
+     *
+     * @return the number of force calculations per step
+     */
+    public int getForcePasses()
+    {
+        return 1;
+    }
+
+}
@@ -0,0 +1,213 @@
+package nbody;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import function.Vector;
+
+/**
+ * The SnapshotReader class reads the binary files written by the SnapshotWriter class one
+ * snapshot at a time. See the documentation for the SnapshotWriter class for the file format.
+ * Files from version 1, which do not have ids, can still be read, and the bodies are given the
+ * ids 0 to n-1.
+ *
+ * The main method converts a binary file into the same text format that NBody.printPos writes.
+ *
+ * @author Matthew Jin
+ * @version 4/17/2018
+ */
+public class SnapshotReader
+{
+
+    private final static int BUFFER_SIZE = 1<<20;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+
+    private int n;
+    private double t;
+    private double unit;
+    private int version;
+    private double[] pos = new double[0];
+    private int[] ids = new int[0];
+
+    /**
+     * Constructor for the SnapshotReader class which opens the file and checks the file header.
+     *
+     * @param path the path of the file
+     */
+    public SnapshotReader(String path) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+
+        if(!fill(8) || buffer.getInt()!=SnapshotWriter.MAGIC)
+        {
+            throw new IOException(path + " is not a snapshot file");
+        }
+        version = buffer.getInt();
+        if(version!=1 && version!=SnapshotWriter.VERSION)
+        {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+    }
+
+    /**
+     * Reads the next snapshot in the file.
+     *
+     * @return true if a snapshot was read; false if the end of the file was reached
+     */
+    public boolean next() throws IOException
+    {
+        if(!fill(20))
+        {
+            return false;
+        }
+        n = buffer.getInt();
+        t = buffer.getDouble();
+        unit = buffer.getDouble();
+
+        if(pos.length<3*n)
+        {
+            pos = new double[3*n];
+            ids = new int[n];
+        }
+        for(int i=0; i<n; i++)
+        {
+            if(version==1)
+            {
+                ids[i] = i;
+            } else if(!fill(4)) {
+                throw new EOFException("Snapshot at t=" + t + " is incomplete");
+            } else {
+                ids[i] = buffer.getInt();
+            }
+        }
+        for(int i=0; i<3*n; i++)
+        {
+            if(!fill(8))
+            {
+                throw new EOFException("Snapshot at t=" + t + " is incomplete");
+            }
+            pos[i] = buffer.getDouble();
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of bodies in the current snapshot
+     *
+     * @return the number of bodies
+     */
+    public int size()
+    {
+        return n;
+    }
+
+    /**
+     * Gets the time of the current snapshot
+     *
+     * @return the time in seconds
+     */
+    public double getTime()
+    {
+        return t;
+    }
+
+    /**
+     * Gets the number of meters in one unit of length in the current snapshot
+     *
+     * @return the number of meters in one unit
+     */
+    public double getUnit()
+    {
+        return unit;
+    }
+
+    /**
+     * Gets the id of a body in the current snapshot
+     *
+     * @param i the index of the body
+     * @return the id of the body
+     */
+    public int getId(int i)
+    {
+        return ids[i];
+    }
+
+    /**
+     * Gets the position of a body in the current snapshot
+     *
+     * @param i the index of the body
+     * @return the position vector in the snapshot's unit of length
+     */
+    public Vector getPos(int i)
+    {
+        return new Vector(pos[3*i], pos[3*i+1], pos[3*i+2]);
+    }
+
+    /**
+     * Closes the file.
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Makes sure that the buffer has at least a number of bytes left, reading more of the file if
+     * it does not.
+     *
+     * @param bytes the number of bytes needed
+     * @return true if there are enough bytes; false if the end of the file was reached first
+     */
+    private boolean fill(int bytes) throws IOException
+    {
+        if(buffer.remaining()>=bytes)
+        {
+            return true;
+        }
+        buffer.compact();
+        while(buffer.position()<bytes)
+        {
+            if(channel.read(buffer)<0)
+            {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * The main method converts a binary snapshot file into the text format. The first argument is
+     * the binary file and the second argument is the text file.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        SnapshotReader reader = new SnapshotReader(args[0]);
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(args[1])));
+
+        while(reader.next())
+        {
+            for(int j=0; j<reader.size(); j++)
+            {
+                out.println(reader.getPos(j) + ", ");
+            }
+        }
+
+        out.close();
+        reader.close();
+    }
+
+}
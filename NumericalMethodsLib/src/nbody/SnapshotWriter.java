@@ -0,0 +1,274 @@
+package nbody;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The SnapshotWriter class writes the positions of the bodies to a binary file. This is much
+ * smaller and faster than printing the positions as text. The file starts with a header, and then
+ * has one snapshot for every time the positions are written. All of the values are little endian.
+ *
+ * The file header is the int MAGIC followed by the int VERSION. Each snapshot starts with the
+ * number of bodies as an int, the time in seconds as a double, and the number of meters in one
+ * unit of length as a double. It is followed by the id of every body as an int, and then the x,
+ * y, and z positions of every body as doubles in that unit of length, in the order x0 y0 z0 x1 y1
+ * z1 and so on. The ids let a body be followed between snapshots after absorbed bodies have been
+ * removed. Version 1 files do not have the ids. When snapshots are added to an existing file,
+ * they are written in the version of that file, so a version 1 file stays readable.
+ *
+ * The SnapshotReader class reads these files and can convert them back to the text format.
+ *
+ * @author Matthew Jin
+ * @version 4/17/2018
+ */
+public class SnapshotWriter
+{
+
+    public final static int MAGIC = 0x4E42534E;
+    public final static int VERSION = 2;
+
+    private final static int BUFFER_SIZE = 1<<20;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long bytes;
+    private int version = VERSION;
+
+    /**
+     * Constructor for the SnapshotWriter class which creates the file and writes the file header.
+     * If the file already exists, it is replaced.
+     *
+     * @param path the path of the file
+     */
+    public SnapshotWriter(String path) throws IOException
+    {
+        this(path, false);
+    }
+
+    /**
+     * Constructor for the SnapshotWriter class which opens the file. If append is true and the
+     * file already has snapshots in it, the file header is checked and the new snapshots are
+     * added to the end of the file in the file's version. Otherwise the file is replaced and the
+     * file header is written.
+     *
+     * @param path the path of the file
+     * @param append true to add to the end of an existing file
+     */
+    public SnapshotWriter(String path, boolean append) throws IOException
+    {
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        if(append && Files.exists(Paths.get(path)) && Files.size(Paths.get(path))>0)
+        {
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            readHeader(path);
+            channel.position(channel.size());
+        } else {
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            flush();
+        }
+    }
+
+    /**
+     * Reads the header of a file that is being added to and sets the version the snapshots are
+     * written in. The file is closed if the header is wrong.
+     *
+     * @param path the path of the file, for the error messages
+     */
+    private void readHeader(String path) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+
+        String error = null;
+        if(header.remaining()<8 || header.getInt()!=MAGIC)
+        {
+            error = path + " is not a snapshot file";
+        } else {
+            version = header.getInt();
+            if(version<1 || version>VERSION)
+            {
+                error = "Cannot add to " + path + ", which has the unsupported snapshot version " + version;
+            }
+        }
+        if(error!=null)
+        {
+            channel.close();
+            throw new IOException(error);
+        }
+    }
+
+    /**
+     * Gets the version of the snapshots that are written, which is the version of the file
+     *
+     * @return the version
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Writes one snapshot with the ids and positions of all the bodies in the system. The positions are
+     * packed into a buffer that is reused, and the buffer is written to the file whenever it is
+     * full.
+     *
+     * @param s the system of bodies
+     * @param t the time in seconds
+     * @param unit the number of meters in one unit of length
+     */
+    public void write(BodySystem s, double t, double unit) throws IOException
+    {
+        int n = s.size();
+        double scale = 1/unit;
+
+        buffer.putInt(n);
+        buffer.putDouble(t);
+        buffer.putDouble(unit);
+
+        for(int i=0; i<n && version>1; i++)
+        {
+            if(buffer.remaining()<4)
+            {
+                flush();
+            }
+            buffer.putInt(s.id[i]);
+        } //Version 1 files do not have the ids
+        for(int i=0; i<n; i++)
+        {
+            if(buffer.remaining()<24)
+            {
+                flush();
+            }
+            buffer.putDouble(s.x[i]*scale);
+            buffer.putDouble(s.y[i]*scale);
+            buffer.putDouble(s.z[i]*scale);
+        }
+        flush();
+    }
+
+    /**
+     * Writes one snapshot with the positions of all the bodies in an OffHeapSystem. The bodies in
+     * an OffHeapSystem are never removed, so the id of each body is its index.
+     *
+     * @param s the system of bodies
+     * @param t the time in seconds
+     * @param unit the number of meters in one unit of length
+     */
+    public void write(OffHeapSystem s, double t, double unit) throws IOException
+    {
+        if(s.size()>Integer.MAX_VALUE)
+        {
+            throw new IOException("A snapshot can have at most " + Integer.MAX_VALUE + " bodies, not " 
+                    + s.size());
+        }
+        int n = (int) s.size();
+        double scale = 1/unit;
+
+        buffer.putInt(n);
+        buffer.putDouble(t);
+        buffer.putDouble(unit);
+
+        for(int i=0; i<n && version>1; i++)
+        {
+            if(buffer.remaining()<4)
+            {
+                flush();
+            }
+            buffer.putInt(i);
+        } //Version 1 files do not have the ids
+        for(int i=0; i<n; i++)
+        {
+            if(buffer.remaining()<24)
+            {
+                flush();
+            }
+            buffer.putDouble(s.get(OffHeapSystem.X, i)*scale);
+            buffer.putDouble(s.get(OffHeapSystem.Y, i)*scale);
+            buffer.putDouble(s.get(OffHeapSystem.Z, i)*scale);
+        }
+        flush();
+    }
+
+    /**
+     * Gets the total number of bytes that have been written to the file
+     *
+     * @return the number of bytes
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Gets the size of the file, including the file header and any snapshots that were in the
+     * file before it was opened
+     *
+     * @return the size of the file in bytes
+     */
+    public long getPosition() throws IOException
+    {
+        return channel.position() + buffer.position();
+    }
+
+    /**
+     * Writes everything in the buffer and makes sure that it is stored on the disk, so the file
+     * is at least as long as getPosition even if the program crashes.
+     */
+    public void force() throws IOException
+    {
+        flush();
+        channel.force(false);
+    }
+
+    /**
+     * Cuts the file back to a size, removing the snapshots that were written after the file had
+     * that size. New snapshots are written after the cut.
+     *
+     * @param size the new size of the file in bytes
+     */
+    public void truncate(long size) throws IOException
+    {
+        flush();
+        if(channel.size()<size)
+        {
+            throw new IOException("The snapshot file has " + channel.size() + " bytes, less than " 
+                    + size + " bytes");
+        }
+        channel.truncate(size);
+        channel.position(size);
+    }
+
+    /**
+     * Writes anything left in the buffer and closes the file.
+     */
+    public void close() throws IOException
+    {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Writes everything in the buffer to the file and empties the buffer.
+     */
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+        {
+            bytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
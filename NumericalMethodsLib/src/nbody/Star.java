@@ -1,5 +1,6 @@
 package nbody;
 
+import function.RandomSource;
 import function.Vector;
 
 /**
@@ -55,4 +56,23 @@ public class Star extends Body
         
         super.random(minp, maxp, minv, maxv, minm, maxm);
     }
+    
+    /**
+     * Sets a random position, velocity, and mass for this body using a RandomSource, so that the 
+     * values can be repeated. The ranges are in the same units as the constructor.
+     * 
+     * @param minp the minimum position
+     * @param maxp the maximum position
+     * @param minv the minimum velocity
+     * @param maxv the maximum velocity
+     * @param minm the minimum mass
+     * @param maxm the maximum mass
+     * @param random the source of the random numbers
+     */
+    public void random(double minp, double maxp, double minv, double maxv, double minm, double maxm, 
+            RandomSource random)
+    {
+        super.random(minp*PARSEC_TO_METER, maxp*PARSEC_TO_METER, minv*KMPS_TO_MPS, maxv*KMPS_TO_MPS, 
+                minm*SOLARMASS_TO_KG, maxm*SOLARMASS_TO_KG, random);
+    }
 }
@@ -0,0 +1,334 @@
+package nbody;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The SymmetricDirectSum class calculates the same direct sum as the DirectSum class, but uses
+ * Newton's third law to calculate each pair of bodies only once. The force of body j on body i is
+ * equal and opposite to the force of body i on body j, so the distance and the inverse cube are
+ * calculated once for every pair i<j and added to both bodies. This does half as many square roots
+ * and divisions as DirectSum, so it takes about half the time.
+ *
+ * With more than one thread, the rows of pairs are split into one block for each thread, with
+ * about the same number of pairs in every block. Every block adds its accelerations into its own
+ * arrays, because two blocks can both add to the same body, and the arrays are added together at
+ * the end. The arrays are kept between calls so that no memory is allocated after the first call.
+ *
+ * If the system is tracking potentials, the potential of every pair is added to both bodies in
+ * the same loop, with its own array for each block.
+ *
+ * The sums are done in a different order than DirectSum, so the results are the same as DirectSum
+ * to within rounding error, but not bit for bit. They are the same every time for the same number
+ * of threads.
+ *
+ * @author Matthew Jin
+ * @version 5/29/2018
+ */
+public class SymmetricDirectSum implements ForceEngine
+{
+
+    private double softening;
+    private int threads;
+    private ForkJoinPool pool;
+    private long interactions;
+
+    private int[] starts = new int[0];
+    private double[][] bx, by, bz, bp;
+
+    /**
+     * Constructor for the SymmetricDirectSum class with one thread and no softening.
+     */
+    public SymmetricDirectSum()
+    {
+        this(1, 0);
+    }
+
+    /**
+     * Constructor for the SymmetricDirectSum class which sets the number of threads and the
+     * softening length.
+     *
+     * @param threads the number of threads, or 0 to use one thread for each processor
+     * @param softening the softening length in meters
+     */
+    public SymmetricDirectSum(int threads, double softening)
+    {
+        this.threads = threads>0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.softening = softening;
+    }
+
+    /**
+     * Gets the number of threads
+     *
+     * @return the number of threads
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Calculates the acceleration of every body, calculating each pair of bodies once.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodySystem s)
+    {
+        int n = s.size();
+        double e2 = softening*softening;
+        double[] pot = s.getPotentials();
+
+        if(threads==1)
+        {
+            Arrays.fill(s.ax, 0, n, 0);
+            Arrays.fill(s.ay, 0, n, 0);
+            Arrays.fill(s.az, 0, n, 0);
+            if(pot!=null)
+            {
+                Arrays.fill(pot, 0, n, 0);
+            }
+            pairs(s, 0, n, e2, s.ax, s.ay, s.az, pot);
+        } else {
+            if(pool==null || pool.isShutdown())
+            {
+                pool = new ForkJoinPool(threads);
+            } //Starts the pool the first time and after a shutdown
+            split(n, pot!=null);
+            pool.invoke(new Blocks(s, 0, threads, e2));
+            pool.invoke(new Reduce(s, 0, n));
+        }
+        if(pot!=null)
+        {
+            s.potentialsUpdated();
+        }
+        interactions = (long) n*(n-1);
+    }
+
+    /**
+     * Gets the number of pair interactions that were calculated by the last call to
+     * accelerations. Each pair is calculated once but counts as two interactions, so that this
+     * can be compared with DirectSum.
+     *
+     * @return the number of interactions
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+    /**
+     * Stops the threads in the pool. If the engine is used again, a new pool is started.
+     */
+    public void shutdown()
+    {
+        if(pool!=null)
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Adds the accelerations from every pair i<j with i from index lo up to but not including index
+     * hi to the given arrays. Body i gets the force from body j, and body j gets the opposite force.
+     * The potential of the pair is added to both bodies if there is an array for the potentials.
+     *
+     * @param s the system of bodies
+     * @param lo the index of the first row
+     * @param hi one more than the index of the last row
+     * @param e2 the square of the softening length
+     * @param ax the array the x accelerations are added to
+     * @param ay the array the y accelerations are added to
+     * @param az the array the z accelerations are added to
+     * @param pot the array the potentials are added to, or null to skip the potentials
+     */
+    static void pairs(BodySystem s, int lo, int hi, double e2, double[] ax, double[] ay, double[] az, 
+            double[] pot)
+    {
+        int n = s.size();
+        double[] x = s.x, y = s.y, z = s.z, m = s.m;
+        boolean potentials = pot!=null;
+
+        for(int i=lo; i<hi; i++)
+        {
+            double xi = x[i], yi = y[i], zi = z[i], mi = m[i];
+            double sumx = 0, sumy = 0, sumz = 0, sump = 0;
+            for(int j=i+1; j<n; j++)
+            {
+                double dx = x[j]-xi, dy = y[j]-yi, dz = z[j]-zi;
+                double d2 = dx*dx+dy*dy+dz*dz+e2;
+                double inv3 = NBody.G/(d2*Math.sqrt(d2));
+                double si = m[j]*inv3, sj = mi*inv3;
+                sumx += dx*si; sumy += dy*si; sumz += dz*si;
+                ax[j] -= dx*sj; ay[j] -= dy*sj; az[j] -= dz*sj;
+                if(potentials)
+                {
+                    sump -= si*d2;
+                    pot[j] -= sj*d2;
+                } //G*m/r is the scalar times r squared
+            }
+            ax[i] += sumx; ay[i] += sumy; az[i] += sumz;
+            if(potentials)
+            {
+                pot[i] += sump;
+            }
+        }
+    }
+
+    /**
+     * Splits the rows into one block for each thread with about the same number of pairs, and
+     * makes sure that every block has arrays that are large enough. Row i has n-1-i pairs, so the
+     * blocks near the end have more rows.
+     *
+     * @param n the number of bodies
+     * @param pot true if the blocks also need arrays for the potentials
+     */
+    private void split(int n, boolean pot)
+    {
+        if(starts.length!=threads+1)
+        {
+            starts = new int[threads+1];
+            bx = new double[threads][0]; by = new double[threads][0]; bz = new double[threads][0];
+            bp = new double[threads][0];
+        }
+        if(bx[0].length<n)
+        {
+            for(int b=0; b<threads; b++)
+            {
+                bx[b] = new double[n]; by[b] = new double[n]; bz[b] = new double[n];
+            }
+        }
+        if(pot && bp[0].length<n)
+        {
+            for(int b=0; b<threads; b++)
+            {
+                bp[b] = new double[n];
+            }
+        } //The potential arrays are only made if the system is tracking potentials
+
+        double total = (double) n*(n-1)/2;
+        int row = 0;
+        double pairs = 0;
+        for(int b=0; b<threads; b++)
+        {
+            starts[b] = row;
+            while(row<n && pairs<total*(b+1)/threads)
+            {
+                pairs += n-1-row;
+                row++;
+            }
+        }
+        starts[threads] = n;
+    }
+
+    /**
+     * A task that calculates a range of blocks, each into its own arrays. Ranges of more than one
+     * block are split in half.
+     */
+    private class Blocks extends RecursiveAction
+    {
+
+        private BodySystem s;
+        private int lo, hi;
+        private double e2;
+
+        /**
+         * Constructor for the Blocks class.
+         *
+         * @param s the system of bodies
+         * @param lo the index of the first block
+         * @param hi one more than the index of the last block
+         * @param e2 the square of the softening length
+         */
+        Blocks(BodySystem s, int lo, int hi, double e2)
+        {
+            this.s = s;
+            this.lo = lo;
+            this.hi = hi;
+            this.e2 = e2;
+        }
+
+        /**
+         * Calculates the block directly or splits the range into two smaller ranges.
+         */
+        protected void compute()
+        {
+            if(hi-lo==1)
+            {
+                int first = starts[lo], n = s.size();
+                boolean potentials = s.getPotentials()!=null;
+                Arrays.fill(bx[lo], first, n, 0);
+                Arrays.fill(by[lo], first, n, 0);
+                Arrays.fill(bz[lo], first, n, 0);
+                if(potentials)
+                {
+                    Arrays.fill(bp[lo], first, n, 0);
+                }
+                pairs(s, first, starts[lo+1], e2, bx[lo], by[lo], bz[lo], potentials ? bp[lo] : null);
+            } else {
+                int mid = (lo+hi)>>>1;
+                invokeAll(new Blocks(s, lo, mid, e2), new Blocks(s, mid, hi, e2));
+            }
+        }
+
+    }
+
+    /**
+     * A task that adds up the arrays of every block for a range of bodies. A block only adds to
+     * bodies at or after its first row, so the other blocks are skipped. Ranges are split in half
+     * until there is about one range for each thread.
+     */
+    private class Reduce extends RecursiveAction
+    {
+
+        private BodySystem s;
+        private int lo, hi;
+
+        /**
+         * Constructor for the Reduce class.
+         *
+         * @param s the system of bodies
+         * @param lo the index of the first body
+         * @param hi one more than the index of the last body
+         */
+        Reduce(BodySystem s, int lo, int hi)
+        {
+            this.s = s;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Adds up the range directly or splits it into two smaller ranges.
+         */
+        protected void compute()
+        {
+            if(hi-lo<=Math.max(1024, s.size()/threads))
+            {
+                double[] pot = s.getPotentials();
+                for(int k=lo; k<hi; k++)
+                {
+                    double sumx = 0, sumy = 0, sumz = 0, sump = 0;
+                    for(int b=0; b<threads && starts[b]<=k; b++)
+                    {
+                        sumx += bx[b][k]; sumy += by[b][k]; sumz += bz[b][k];
+                        if(pot!=null)
+                        {
+                            sump += bp[b][k];
+                        }
+                    }
+                    s.ax[k] = sumx; s.ay[k] = sumy; s.az[k] = sumz;
+                    if(pot!=null)
+                    {
+                        pot[k] = sump;
+                    }
+                }
+            } else {
+                int mid = (lo+hi)>>>1;
+                invokeAll(new Reduce(s, lo, mid), new Reduce(s, mid, hi));
+            }
+        }
+
+    }
+
+}
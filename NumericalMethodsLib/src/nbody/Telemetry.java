@@ -0,0 +1,347 @@
+package nbody;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The Telemetry class keeps track of how fast a simulation is running. It counts the steps, the
+ * pair interactions calculated by the force engine, the time spent in the force engine, and the
+ * number of bytes written to the output file, and it can follow the drift in the total energy.
+ *
+ * The values can be read while the simulation runs through JMX. The register method adds them
+ * under the name "nbody:type=Telemetry,id=n", and close removes them again, so a finished run
+ * does not stay in the MBean server. They can also be printed as one line every few seconds of
+ * real time. Nothing is printed if the log interval is zero.
+ *
+ * The force pass time is measured by wrapping the force engine with the engine returned by the
+ * wrap method. Measuring it only adds two calls to System.nanoTime per force pass.
+ *
+ * The energy drift is measured from the first energy that is calculated. That energy can be saved
+ * in a checkpoint with getEnergyBaseline and set again with setEnergyBaseline, so that a resumed
+ * run keeps measuring the drift from the start of the original run.
+ *
+ * @author Matthew Jin
+ * @version 5/15/2018
+ */
+public class Telemetry implements TelemetryMBean
+{
+
+    private final static AtomicInteger IDS = new AtomicInteger();
+
+    private long interval;
+    private long lastLog;
+    private ObjectName name;
+    private PrintStream out = System.out;
+
+    private volatile long steps;
+    private volatile double time;
+    private volatile long interactions;
+    private volatile long forceNanos, lastForceNanos, forcePasses;
+    private volatile long outputBytes;
+    private volatile double energy0 = Double.NaN, drift;
+    private boolean trackEnergy;
+
+    private long windowStart, windowSteps, windowInteractions;
+    private volatile double stepRate, interactionRate;
+
+    /**
+     * Constructor for the Telemetry class which sets the log interval and whether the energy
+     * drift is followed. The values are not readable through JMX until register is called.
+     *
+     * @param seconds the real time between log lines in seconds, or 0 for no log lines
+     * @param trackEnergy true to calculate the energy drift every time the positions are printed
+     */
+    public Telemetry(double seconds, boolean trackEnergy)
+    {
+        interval = (long) (seconds*1e9);
+        this.trackEnergy = trackEnergy;
+        windowStart = lastLog = System.nanoTime();
+    }
+
+    /**
+     * Sets the stream that the log lines are printed to. The default is System.out.
+     *
+     * @param out the stream for the log lines
+     */
+    public void setStream(PrintStream out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * Registers the telemetry with JMX, if it is not registered already. If it cannot be
+     * registered, a message is printed and the simulation runs without it.
+     */
+    public void register()
+    {
+        if(name!=null)
+        {
+            return;
+        }
+        try
+        {
+            ObjectName id = new ObjectName("nbody:type=Telemetry,id=" + IDS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, id);
+            name = id;
+        } catch(JMException e) {
+            System.err.println("Could not register telemetry with JMX: " + e);
+        }
+    }
+
+    /**
+     * Removes the telemetry from JMX, if it was registered. It can be registered again later
+     * under a new id.
+     */
+    public void close()
+    {
+        if(name==null)
+        {
+            return;
+        }
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch(JMException e) {
+            System.err.println("Could not unregister telemetry from JMX: " + e);
+        }
+        name = null;
+    }
+
+    /**
+     * Wraps a force engine so that the time and interactions of every force pass are recorded.
+     *
+     * @param engine the force engine
+     * @return a force engine that calls the given engine and records its force passes
+     */
+    public ForceEngine wrap(final ForceEngine engine)
+    {
+        return new ForceEngine()
+        {
+            public void accelerations(BodySystem s)
+            {
+                long start = System.nanoTime();
+                engine.accelerations(s);
+                forcePass(System.nanoTime()-start, engine.getInteractions());
+            }
+
+            public void accelerations(BodyColumns s)
+            {
+                long start = System.nanoTime();
+                engine.accelerations(s);
+                forcePass(System.nanoTime()-start, engine.getInteractions());
+            }
+
+            public long getInteractions()
+            {
+                return engine.getInteractions();
+            }
+        };
+    }
+
+    /**
+     * Records one force pass.
+     *
+     * @param nanos the real time taken by the force pass in nanoseconds
+     * @param pairs the number of pair interactions calculated
+     */
+    public void forcePass(long nanos, long pairs)
+    {
+        lastForceNanos = nanos;
+        forceNanos += nanos;
+        forcePasses++;
+        interactions += pairs;
+    }
+
+    /**
+     * Records the end of a step and prints a log line if enough time has passed since the last one.
+     *
+     * @param t the simulation time after the step in seconds
+     */
+    public void step(double t)
+    {
+        steps++;
+        time = t;
+
+        long now = System.nanoTime();
+        if(now-windowStart>=1000000000L)
+        {
+            double seconds = (now-windowStart)/1e9;
+            stepRate = (steps-windowSteps)/seconds;
+            interactionRate = (interactions-windowInteractions)/seconds;
+            windowStart = now;
+            windowSteps = steps;
+            windowInteractions = interactions;
+        } //Updates the rates once per second
+
+        if(interval>0 && now-lastLog>=interval)
+        {
+            out.println(toString());
+            lastLog = now;
+        }
+    }
+
+    /**
+     * Records the number of bytes written to the output file when the positions are printed,
+     * without the energy drift, for a system whose energy is not calculated, such as an
+     * OffHeapSystem.
+     *
+     * @param bytes the total number of bytes written to the output file
+     */
+    public void output(long bytes)
+    {
+        outputBytes = bytes;
+    }
+
+    /**
+     * Records the values that change when the positions are printed: the number of bytes written
+     * and, if energy tracking is on, the energy drift. If the energy was already calculated for
+     * these positions, for example by the diagnostics, it is used. Otherwise it is calculated with
+     * a loop over every pair of bodies, so it is only done at the print interval.
+     *
+     * @param s the system of bodies
+     * @param bytes the total number of bytes written to the output file
+     * @param energy the total energy of the system in joules, or NaN if it is not known
+     */
+    public void output(BodySystem s, long bytes, double energy)
+    {
+        output(bytes);
+        if(trackEnergy)
+        {
+            double e = Double.isNaN(energy) ? s.energy() : energy;
+            if(Double.isNaN(energy0))
+            {
+                energy0 = e;
+            } //The first energy is the baseline, even if it is zero
+            drift = (e-energy0)/Math.abs(energy0);
+        }
+    }
+
+    /**
+     * Returns a log line with all of the values
+     *
+     * @return a string with the values
+     */
+    public String toString()
+    {
+        return String.format("t=%.6g s, steps=%d, steps/s=%.3g, pairs/s=%.3g, force pass=%.3f ms (avg %.3f ms), output=%d bytes, energy drift=%.3g",
+                time, steps, stepRate, interactionRate, getLastForcePassMillis(),
+                getAverageForcePassMillis(), outputBytes, drift);
+    }
+
+    /**
+     * Gets the number of steps that have been run
+     *
+     * @return the number of steps
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Gets the current simulation time
+     *
+     * @return the simulation time in seconds
+     */
+    public double getSimulationTime()
+    {
+        return time;
+    }
+
+    /**
+     * Gets the number of steps per second of real time, measured over the last second
+     *
+     * @return the number of steps per second
+     */
+    public double getStepsPerSecond()
+    {
+        return stepRate;
+    }
+
+    /**
+     * Gets the total number of pair interactions calculated by the force engine
+     *
+     * @return the number of pair interactions
+     */
+    public long getPairInteractions()
+    {
+        return interactions;
+    }
+
+    /**
+     * Gets the number of pair interactions per second of real time, measured over the last second
+     *
+     * @return the number of pair interactions per second
+     */
+    public double getPairInteractionsPerSecond()
+    {
+        return interactionRate;
+    }
+
+    /**
+     * Gets the real time taken by the last force pass
+     *
+     * @return the time in milliseconds
+     */
+    public double getLastForcePassMillis()
+    {
+        return lastForceNanos/1e6;
+    }
+
+    /**
+     * Gets the average real time taken by a force pass
+     *
+     * @return the time in milliseconds
+     */
+    public double getAverageForcePassMillis()
+    {
+        return forcePasses>0 ? forceNanos/1e6/forcePasses : 0;
+    }
+
+    /**
+     * Gets the number of bytes that have been written to the output file, as of the last time
+     * the positions were printed
+     *
+     * @return the number of bytes
+     */
+    public long getOutputBytes()
+    {
+        return outputBytes;
+    }
+
+    /**
+     * Gets the energy that the drift is measured from, so that it can be saved in a checkpoint
+     *
+     * @return the energy in joules, or NaN if no energy has been calculated yet
+     */
+    public double getEnergyBaseline()
+    {
+        return energy0;
+    }
+
+    /**
+     * Sets the energy that the drift is measured from, such as the energy from a checkpoint,
+     * instead of taking it from the first time the positions are printed.
+     *
+     * @param energy0 the energy in joules, or NaN to take it from the next print
+     */
+    public void setEnergyBaseline(double energy0)
+    {
+        this.energy0 = energy0;
+    }
+
+    /**
+     * Gets the relative change in the total energy since the start of the run, (E-E0)/|E0|
+     *
+     * @return the relative energy drift, or zero if energy tracking is off
+     */
+    public double getEnergyDrift()
+    {
+        return drift;
+    }
+
+}
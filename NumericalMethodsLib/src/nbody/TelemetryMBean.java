@@ -0,0 +1,77 @@
+package nbody;
+
+/**
+ * The TelemetryMBean interface lists the values of a running simulation that can be read through
+ * JMX, for example with jconsole. See the Telemetry class for more information.
+ *
+ * @author Matthew Jin
+ * @version 5/15/2018
+ */
+public interface TelemetryMBean
+{
+
+    /**
+     * Gets the number of steps that have been run
+     *
+     * @return the number of steps
+     */
+    long getSteps();
+
+    /**
+     * Gets the current simulation time
+     *
+     * @return the simulation time in seconds
+     */
+    double getSimulationTime();
+
+    /**
+     * Gets the number of steps per second of real time, measured over the last second
+     *
+     * @return the number of steps per second
+     */
+    double getStepsPerSecond();
+
+    /**
+     * Gets the total number of pair interactions calculated by the force engine
+     *
+     * @return the number of pair interactions
+     */
+    long getPairInteractions();
+
+    /**
+     * Gets the number of pair interactions per second of real time, measured over the last second
+     *
+     * @return the number of pair interactions per second
+     */
+    double getPairInteractionsPerSecond();
+
+    /**
+     * Gets the real time taken by the last force pass
+     *
+     * @return the time in milliseconds
+     */
+    double getLastForcePassMillis();
+
+    /**
+     * Gets the average real time taken by a force pass
+     *
+     * @return the time in milliseconds
+     */
+    double getAverageForcePassMillis();
+
+    /**
+     * Gets the number of bytes that have been written to the output file
+     *
+     * @return the number of bytes
+     */
+    long getOutputBytes();
+
+    /**
+     * Gets the relative change in the total energy since the start of the run, (E-E0)/|E0|. This
+     * is only updated when the positions are printed, and is zero if energy tracking is off.
+     *
+     * @return the relative energy drift
+     */
+    double getEnergyDrift();
+
+}
@@ -0,0 +1,193 @@
+package nbody;
+
+import java.util.Arrays;
+
+/**
+ * The TiledDirectSum class calculates the same direct sum as the DirectSum class, but splits the
+ * bodies into tiles so that the positions it is reading stay in the processor's cache. DirectSum
+ * reads the positions and masses of every body for every body, so once they are larger than the
+ * cache they are read from memory n times. Here a tile of target bodies is summed over one tile
+ * of source bodies at a time, so each source tile is read from memory once and then used from the
+ * cache for every target in the tile.
+ *
+ * The sum for each target body is still done over the source bodies in the same order, with the
+ * partial sums kept in the acceleration arrays between source tiles, so the results are exactly
+ * the same as DirectSum, bit for bit, for any tile size.
+ *
+ * The tile size can be set, or it can be chosen when the engine is first used by timing a few
+ * sizes on the first bodies of the system and keeping the fastest one.
+ *
+ * @author Matthew Jin
+ * @version 6/5/2018
+ */
+public class TiledDirectSum implements ForceEngine
+{
+
+    private final static int[] SIZES = {64, 128, 256, 512, 1024, 2048, 4096};
+
+    private double softening;
+    private int tile;
+    private long interactions;
+
+    /**
+     * Constructor for the TiledDirectSum class which sets the tile size.
+     *
+     * @param tile the number of bodies in each tile, or 0 to choose the tile size when the engine
+     * is first used
+     */
+    public TiledDirectSum(int tile)
+    {
+        this(tile, 0);
+    }
+
+    /**
+     * Constructor for the TiledDirectSum class which sets the tile size and the softening length.
+     *
+     * @param tile the number of bodies in each tile, or 0 to choose the tile size when the engine
+     * is first used
+     * @param softening the softening length in meters
+     */
+    public TiledDirectSum(int tile, double softening)
+    {
+        this.tile = Math.max(0, tile);
+        this.softening = softening;
+    }
+
+    /**
+     * Gets the tile size
+     *
+     * @return the number of bodies in each tile, or 0 if it has not been chosen yet
+     */
+    public int getTile()
+    {
+        return tile;
+    }
+
+    /**
+     * Calculates the acceleration of every body one tile at a time.
+     *
+     * @param s the system of bodies
+     */
+    public void accelerations(BodySystem s)
+    {
+        int n = s.size();
+        double e2 = softening*softening;
+        if(tile==0)
+        {
+            tile = tune(s, e2);
+        }
+        accelerations(s, 0, n, e2, tile);
+        if(s.getPotentials()!=null)
+        {
+            s.potentialsUpdated();
+        }
+        interactions = (long) n*(n-1);
+    }
+
+    /**
+     * Gets the number of pair interactions that were calculated by the last call to
+     * accelerations
+     *
+     * @return the number of interactions
+     */
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+    /**
+     * Calculates the accelerations of the bodies from index lo up to but not including index hi,
+     * one tile of targets and one tile of sources at a time.
+     *
+     * @param s the system of bodies
+     * @param lo the index of the first body
+     * @param hi one more than the index of the last body
+     * @param e2 the square of the softening length
+     * @param tile the number of bodies in each tile
+     */
+    static void accelerations(BodySystem s, int lo, int hi, double e2, int tile)
+    {
+        int n = s.size();
+        double[] x = s.x, y = s.y, z = s.z, m = s.m;
+        double[] ax = s.ax, ay = s.ay, az = s.az;
+        double[] pot = s.getPotentials();
+        boolean potentials = pot!=null;
+
+        Arrays.fill(ax, lo, hi, 0);
+        Arrays.fill(ay, lo, hi, 0);
+        Arrays.fill(az, lo, hi, 0);
+        if(potentials)
+        {
+            Arrays.fill(pot, lo, hi, 0);
+        }
+
+        for(int jt=lo; jt<hi; jt+=tile)
+        {
+            int jend = Math.min(jt+tile, hi);
+            for(int it=0; it<n; it+=tile)
+            {
+                int iend = Math.min(it+tile, n);
+                for(int j=jt; j<jend; j++)
+                {
+                    double xj = x[j], yj = y[j], zj = z[j];
+                    double sumx = ax[j], sumy = ay[j], sumz = az[j];
+                    double sump = potentials ? pot[j] : 0;
+                    for(int i=it; i<iend; i++)
+                    {
+                        if(i!=j)
+                        {
+                            double dx = x[i]-xj, dy = y[i]-yj, dz = z[i]-zj;
+                            double d2 = dx*dx+dy*dy+dz*dz+e2;
+                            double scalar = NBody.G*m[i]/(d2*Math.sqrt(d2));
+                            sumx += dx*scalar; sumy += dy*scalar; sumz += dz*scalar;
+                            if(potentials)
+                            {
+                                sump -= scalar*d2;
+                            }
+                        }
+                    }
+                    ax[j] = sumx; ay[j] = sumy; az[j] = sumz;
+                    if(potentials)
+                    {
+                        pot[j] = sump;
+                    }
+                }
+            } //Sums one tile of targets over every tile of sources
+        }
+    }
+
+    /**
+     * Chooses the tile size by timing the accelerations of the first few hundred bodies with each
+     * of the tile sizes, and keeping the fastest. Each size is run twice and the second time is
+     * used so that the time does not include warming up.
+     *
+     * @param s the system of bodies
+     * @param e2 the square of the softening length
+     * @return the fastest tile size
+     */
+    private static int tune(BodySystem s, double e2)
+    {
+        int n = s.size();
+        int targets = Math.min(n, 512);
+        int best = SIZES[0];
+        long fastest = Long.MAX_VALUE;
+
+        for(int k=0; k<SIZES.length && (k==0 || SIZES[k-1]<n); k++)
+        {
+            long time = 0;
+            for(int r=0; r<2; r++)
+            {
+                long start = System.nanoTime();
+                accelerations(s, 0, targets, e2, SIZES[k]);
+                time = System.nanoTime()-start;
+            }
+            if(time<fastest)
+            {
+                fastest = time;
+                best = SIZES[k];
+            }
+        }
+        return best;
+    }
+
+}
@@ -0,0 +1,60 @@
+package nbody;
+
+/**
+ * The VelocityVerlet class moves the bodies with the kick-drift-kick velocity Verlet method. The
+ * velocities are updated for half a step with the current accelerations, the positions are moved a
+ * full step, and the velocities are updated for the other half of the step with the new
+ * accelerations. It is second order accurate and symplectic.
+ *
+ * The accelerations at the end of one step are the same as the accelerations at the start of the
+ * next step, so they are kept in the system and only calculated once per step. They are
+ * calculated again whenever the integrator is given a different system, the number of bodies
+ * changes, or the system was modified by a collision or by another class.
+ *
+ * At the end of a step the velocities and the accelerations are both at the new positions, so the
+ * energy is recorded after the last kick.
+ *
+ * @author Matthew Jin
+ * @version 4/3/2018
+ */
+public class VelocityVerlet implements Integrator
+{
+
+    private BodyColumns last;
+    private long size;
+    private long modifications;
+
+    /**
+     * Moves the system forward by one time step with a half kick, a drift, and a half kick.
+     *
+     * @param s the system of bodies
+     * @param engine the force engine used to calculate the accelerations
+     * @param dt the time step in seconds
+     */
+    public void step(BodyColumns s, ForceEngine engine, double dt)
+    {
+        if(s!=last || s.count()!=size || s.getModifications()!=modifications)
+        {
+            engine.accelerations(s);
+            last = s;
+        }
+        s.kick(dt/2);
+        s.drift(dt);
+        engine.accelerations(s);
+        s.kick(dt/2);
+        s.recordEnergy(0);
+        size = s.count();
+        modifications = s.getModifications();
+    }
+
+    /**
+     * Gets the number of times the integrator calls the force engine in one step
+     *
+     * @return the number of force calculations per step
+     */
+    public int getForcePasses()
+    {
+        return 1;
+    }
+
+}
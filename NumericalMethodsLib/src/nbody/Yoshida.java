@@ -0,0 +1,60 @@
+package nbody;
+
+/**
+ * The Yoshida class moves the bodies with Yoshida's fourth order symplectic method. One step is
+ * made out of three leapfrog steps with the sizes w1*dt, w0*dt, and w1*dt, where the middle step
+ * goes backwards in time. This cancels the third order error of leapfrog, so the error drops much
+ * faster as dt gets smaller and much larger steps can be taken for the same energy error. It uses
+ * three force calculations per step.
+ *
+ * The first force pass is in the middle of the first leapfrog step, so the energy is recorded
+ * after it with the velocities kicked by half of that step.
+ *
+ * See H. Yoshida, "Construction of higher order symplectic integrators" (1990) for the
+ * coefficients.
+ *
+ * @author Matthew Jin
+ * @version 4/3/2018
+ */
+public class Yoshida implements Integrator
+{
+
+    private final static double W1 = 1/(2-Math.cbrt(2));
+    private final static double W0 = -Math.cbrt(2)/(2-Math.cbrt(2));
+
+    private final static double C1 = W1/2, C2 = (W0+W1)/2;
+    private final static double D1 = W1, D2 = W0;
+
+    /**
+     * Moves the system forward by one time step with four drifts and three kicks.
+     *
+     * @param s the system of bodies
+     * @param engine the force engine used to calculate the accelerations
+     * @param dt the time step in seconds
+     */
+    public void step(BodyColumns s, ForceEngine engine, double dt)
+    {
+        s.drift(C1*dt);
+        engine.accelerations(s);
+        s.recordEnergy(D1*dt/2);
+        s.kick(D1*dt);
+        s.drift(C2*dt);
+        engine.accelerations(s);
+        s.kick(D2*dt);
+        s.drift(C2*dt);
+        engine.accelerations(s);
+        s.kick(D1*dt);
+        s.drift(C1*dt);
+    }
+
+    /**
+     * Gets the number of times the integrator calls the force engine in one step
+     *
+     * @return the number of force calculations per step
+     */
+    public int getForcePasses()
+    {
+        return 3;
+    }
+
+}
@@ -3,10 +3,14 @@ package zeros;
 import java.util.ArrayList;
 
 import derivatives.Derivative;
+import function.Dual;
 import function.Vector;
 
 /**
  * The NewtonsMethod class uses Newton's Method to find a zero in a function given a range. 
+ * The y value and the slope at each x value come from one evaluation of the function with 
+ * Duals (see Function.calcDual), so each iteration only evaluates the function once. For the 
+ * hand-written calcOther function the slope comes from calcOtherDeriv.
  * 
  * @author Matthew Jin
  * @version 10/6/17
@@ -39,9 +43,10 @@ public class NewtonsMethod extends Derivative {
 	 */
 	public ArrayList<Double> findZero(double start, double maxiter) {
 		ArrayList<Double> zero = new ArrayList<Double>();
-		double x = start, deriv = calcYDeriv(x), iter = 0;
+		Dual y = calcDual(start);
+		double x = start, deriv = y.deriv, iter = 0;
 
-		if(Double.isNaN(calcY(x)) || Double.isInfinite(calcY(x)) || deriv==0) {
+		if(Double.isNaN(y.value) || Double.isInfinite(y.value) || deriv==0) {
 			return null;
 		}
 
@@ -56,11 +61,12 @@ public class NewtonsMethod extends Derivative {
 
 		if(Math.abs(deriv)>MIN) {
 			x = start; iter = 0;
-			while(Math.abs(calcY(x))>MIN && x-calcY(x)/calcYDeriv(x)!=x) {
-				Vector next = nextX(x);
-				x = next.x;
+			y = calcDual(x);
+			while(Math.abs(y.value)>MIN && x-y.value/y.deriv!=x) {
+				x -= y.value/y.deriv;
+				y = calcDual(x);
 				iter++;
-//				System.out.println(x + " yval: " + calcY(x));
+//				System.out.println(x + " yval: " + y.value);
 			}
 			zero.add(0, iter);
 			zero.add(0, x);
@@ -79,7 +85,8 @@ public class NewtonsMethod extends Derivative {
 	 * @return a Point containing the x value and the slope of the line
 	 */
 	public Vector nextX(double x0) {
-		double m = calcYDeriv(x0), y0 = calcY(x0);
+		Dual y = calcDual(x0);
+		double m = y.deriv, y0 = y.value;
 		return new Vector(-y0/m+x0, m);
 	}
 